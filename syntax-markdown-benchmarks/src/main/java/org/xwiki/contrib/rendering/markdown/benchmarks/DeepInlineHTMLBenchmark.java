@@ -0,0 +1,92 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.benchmarks;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.Parser;
+
+/**
+ * Measures the merging of deeply nested inline HTML tags, which used to take a time quadratic in the number of tags.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeepInlineHTMLBenchmark
+{
+    @Param({ "10", "100", "1000", "5000" })
+    private int depth;
+
+    private String source;
+
+    private Parser parser;
+
+    /**
+     * Lookup the parser and generate a paragraph with nested inline HTML tags.
+     *
+     * @throws Exception if the parser cannot be found
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        EmbeddableComponentManager componentManager = new EmbeddableComponentManager();
+        componentManager.initialize(getClass().getClassLoader());
+        this.parser = componentManager.getInstance(Parser.class, "markdown/1.2");
+
+        StringBuilder builder = new StringBuilder("Start ");
+        for (int i = 0; i < this.depth; i++) {
+            builder.append("<span class=\"level").append(i).append("\">*text* ").append(i).append(' ');
+        }
+        for (int i = 0; i < this.depth; i++) {
+            builder.append("</span> after ");
+        }
+        this.source = builder.append("end.\n").toString();
+    }
+
+    /**
+     * @return the parsed XDOM
+     * @throws Exception if the parsing fails
+     */
+    @Benchmark
+    public XDOM parseNestedInlineHTML() throws Exception
+    {
+        return this.parser.parse(new StringReader(this.source));
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.benchmarks;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.listener.WrappingListener;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.parser.StreamParser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+
+/**
+ * Measures the throughput of the Markdown parsers and renderers for each syntax and corpus.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkdownBenchmark
+{
+    @Param({ "markdown/1.2", "markdown+github/1.0" })
+    private String syntax;
+
+    @Param
+    private MarkdownCorpus corpus;
+
+    private String source;
+
+    private StreamParser streamParser;
+
+    private Parser parser;
+
+    private BlockRenderer renderer;
+
+    private XDOM xdom;
+
+    /**
+     * A listener ignoring all events, since the wrapped listener is {@code null}.
+     */
+    private WrappingListener voidListener;
+
+    /**
+     * Lookup the components and prepare the inputs.
+     *
+     * @throws Exception if a component cannot be found or the corpus cannot be parsed
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        EmbeddableComponentManager componentManager = new EmbeddableComponentManager();
+        componentManager.initialize(getClass().getClassLoader());
+
+        this.streamParser = componentManager.getInstance(StreamParser.class, this.syntax);
+        this.parser = componentManager.getInstance(Parser.class, this.syntax);
+        this.renderer = componentManager.getInstance(BlockRenderer.class, this.syntax);
+
+        this.source = this.corpus.generate();
+        this.xdom = this.parser.parse(new StringReader(this.source));
+        this.voidListener = new WrappingListener();
+    }
+
+    /**
+     * Streams the parsing events to a listener doing nothing.
+     *
+     * @throws Exception if the parsing fails
+     */
+    @Benchmark
+    public void streamParse() throws Exception
+    {
+        this.streamParser.parse(new StringReader(this.source), this.voidListener);
+    }
+
+    /**
+     * @return the parsed XDOM
+     * @throws Exception if the parsing fails
+     */
+    @Benchmark
+    public XDOM parse() throws Exception
+    {
+        return this.parser.parse(new StringReader(this.source));
+    }
+
+    /**
+     * @return the rendered Markdown
+     */
+    @Benchmark
+    public String render()
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.renderer.render(this.xdom, printer);
+        return printer.toString();
+    }
+
+    /**
+     * @return the Markdown rendered from the parsed XDOM
+     * @throws Exception if the parsing fails
+     */
+    @Benchmark
+    public String roundTrip() throws Exception
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.renderer.render(this.parser.parse(new StringReader(this.source)), printer);
+        return printer.toString();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.benchmarks;
+
+/**
+ * Synthetic Markdown documents exercising the various hot paths of the parsers and renderers. The documents are
+ * generated deterministically so that results are comparable between runs.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public enum MarkdownCorpus
+{
+    /**
+     * A typical wiki page of a few kilobytes.
+     */
+    SMALL_PAGE(2 * 1024)
+    {
+        @Override
+        protected void appendSection(StringBuilder builder, int index)
+        {
+            appendProse(builder, index);
+        }
+    },
+
+    /**
+     * A large README of 1 MB, mostly prose with lists, links and code.
+     */
+    README(1024 * 1024)
+    {
+        @Override
+        protected void appendSection(StringBuilder builder, int index)
+        {
+            appendProse(builder, index);
+            builder.append("* item with `code` and a [link](https://www.xwiki.org/").append(index).append(")\n");
+            builder.append("* item with **bold** and ~~strike~~\n");
+            builder.append("  1. nested item\n  2. other nested item\n\n");
+            builder.append("```java\nint value = ").append(index).append(";\nreturn value * 2;\n```\n\n");
+            builder.append("> A quote with *emphasis* and an image ![alt](image").append(index).append(".png)\n\n");
+        }
+    },
+
+    /**
+     * A document made of deeply nested bulleted and numbered lists.
+     */
+    LISTS(128 * 1024)
+    {
+        @Override
+        protected void appendSection(StringBuilder builder, int index)
+        {
+            for (int item = 0; item < 10; item++) {
+                builder.append("* item ").append(item).append(" of list ").append(index).append('\n');
+                builder.append("    1. nested item with *emphasis*\n");
+                builder.append("    2. nested item with `code`\n");
+                builder.append("        * deeper item\n");
+            }
+            builder.append('\n');
+        }
+    },
+
+    /**
+     * A document made of large tables.
+     */
+    TABLES(128 * 1024)
+    {
+        @Override
+        protected void appendSection(StringBuilder builder, int index)
+        {
+            builder.append("| Name | Value | Description |\n| :--- | ---: | :---: |\n");
+            for (int row = 0; row < 20; row++) {
+                builder.append("| name").append(row).append(" | ").append(index * row)
+                    .append(" | cell with *emphasis* and `code` |\n");
+            }
+            builder.append('\n');
+        }
+    },
+
+    /**
+     * A document made of many inline and block XWiki macros.
+     */
+    MACROS(128 * 1024)
+    {
+        @Override
+        protected void appendSection(StringBuilder builder, int index)
+        {
+            builder.append("{{info}}\nInformation number ").append(index).append(" with **bold** text.\n{{/info}}\n\n");
+            builder.append("Some text with an inline {{id name=\"anchor").append(index)
+                .append("\"/}} macro and {{code language=\"java\"}}int i = 0;{{/code}}.\n\n");
+        }
+    },
+
+    /**
+     * A document mixing Markdown with inline and block HTML.
+     */
+    HTML(128 * 1024)
+    {
+        @Override
+        protected void appendSection(StringBuilder builder, int index)
+        {
+            builder.append("<div class=\"box\">\n<p>HTML block ").append(index).append("</p>\n</div>\n\n");
+            builder.append("Text with <span style=\"color:red\">inline *HTML* ").append(index)
+                .append("</span>, an entity &copy; and <b>bold</b> HTML.<!-- comment -->\n\n");
+        }
+    };
+
+    private final int size;
+
+    MarkdownCorpus(int size)
+    {
+        this.size = size;
+    }
+
+    /**
+     * @return the generated document, of at least the size of the corpus
+     */
+    public String generate()
+    {
+        StringBuilder builder = new StringBuilder(this.size + 1024);
+        for (int index = 0; builder.length() < this.size; index++) {
+            builder.append("# Section ").append(index).append("\n\n");
+            appendSection(builder, index);
+        }
+        return builder.toString();
+    }
+
+    protected abstract void appendSection(StringBuilder builder, int index);
+
+    protected void appendProse(StringBuilder builder, int index)
+    {
+        builder.append("Lorem ipsum dolor sit amet, *consectetur* adipiscing elit, sed do **eiusmod** tempor ")
+            .append("incididunt ut labore et dolore magna aliqua. Ut enim ad minim veniam, quis nostrud ")
+            .append("exercitation ").append(index).append(" ullamco laboris nisi ut aliquip ex ea commodo.\n")
+            .append("Duis aute irure dolor in reprehenderit in voluptate velit esse cillum dolore eu fugiat ")
+            .append("nulla pariatur.\n\n");
+    }
+}
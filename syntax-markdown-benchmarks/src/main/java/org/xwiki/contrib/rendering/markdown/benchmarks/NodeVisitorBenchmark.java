@@ -0,0 +1,94 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.CommonMark12SyntaxProvider;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.MarkdownConfiguration;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.CompiledMarkdownParser;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.FlexmarkNodeVisitor;
+import org.xwiki.rendering.listener.WrappingListener;
+
+import com.vladsch.flexmark.util.ast.Node;
+
+/**
+ * Measures the conversion of a flexmark document to XWiki events alone, without the flexmark parsing, so that the
+ * allocation rate reported by the GC profiler is the one of the node visitors.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeVisitorBenchmark
+{
+    @Param({ "TABLES", "README", "HTML" })
+    private MarkdownCorpus corpus;
+
+    private Node document;
+
+    private FlexmarkNodeVisitor visitor;
+
+    private WrappingListener voidListener;
+
+    /**
+     * Lookup the visitor and parse the corpus.
+     *
+     * @throws Exception if a component cannot be found
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        EmbeddableComponentManager componentManager = new EmbeddableComponentManager();
+        componentManager.initialize(getClass().getClassLoader());
+
+        MarkdownConfiguration configuration = componentManager.getInstance(MarkdownConfiguration.class);
+        CompiledMarkdownParser parser = new CompiledMarkdownParser(configuration.getOptions());
+        this.document = parser.getParser().parse(this.corpus.generate());
+        this.visitor = componentManager.getInstance(FlexmarkNodeVisitor.class);
+        this.voidListener = new WrappingListener();
+    }
+
+    /**
+     * Sends the events of the parsed document to a listener doing nothing.
+     */
+    @Benchmark
+    public void visit()
+    {
+        this.visitor.visit(this.document, this.voidListener, CommonMark12SyntaxProvider.MARKDOWN_COMMON_1_2);
+    }
+}
@@ -22,14 +22,22 @@ package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
+import javax.inject.Inject;
+
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.configuration.ConfigurationSource;
 
 import com.vladsch.flexmark.ext.abbreviation.AbbreviationExtension;
 import com.vladsch.flexmark.ext.autolink.AutolinkExtension;
 import com.vladsch.flexmark.ext.definition.DefinitionExtension;
+import com.vladsch.flexmark.ext.gfm.strikethrough.StrikethroughExtension;
 import com.vladsch.flexmark.ext.gfm.strikethrough.StrikethroughSubscriptExtension;
 import com.vladsch.flexmark.ext.superscript.SuperscriptExtension;
 import com.vladsch.flexmark.ext.tables.TablesExtension;
@@ -37,18 +45,34 @@ import com.vladsch.flexmark.ext.wikilink.WikiLinkExtension;
 import com.vladsch.flexmark.ext.xwiki.macros.MacroExtension;
 import com.vladsch.flexmark.parser.Parser;
 import com.vladsch.flexmark.parser.ParserEmulationProfile;
+import com.vladsch.flexmark.util.data.DataHolder;
 import com.vladsch.flexmark.util.data.MutableDataHolder;
 import com.vladsch.flexmark.util.data.MutableDataSet;
 import com.vladsch.flexmark.util.misc.Extension;
 
 /**
  * Common class to create markdown configurations for flexmark-based parsers.
+ * <p>
+ * The rendering settings and the parse limits are read from the {@code xwikiproperties} configuration source when
+ * it's available (i.e. from {@code xwiki.properties} in XWiki), or else from the default configuration source, under
+ * the {@value #PROPERTY_PREFIX} prefix, e.g. {@code rendering.markdown.compactTableRendering=true} or
+ * {@code rendering.markdown.maxDocumentSize=1000000}. They keep their default value when there's no configuration
+ * source.
  *
  * @version $Id$
  * @since 8.8
  */
 public abstract class AbstractMarkdownConfiguration
 {
+    /**
+     * The prefix of the configuration properties of the Markdown syntaxes.
+     *
+     * @since 8.9.2
+     */
+    public static final String PROPERTY_PREFIX = "rendering.markdown.";
+
+    private static final String XWIKI_PROPERTIES = "xwikiproperties";
+
     // Default extensions we want to have in all MD flavors for XWiki.
     private static final List<Class<?>> DEFAULT_EXTENSIONS = Arrays.asList(
         WikiLinkExtension.class,
@@ -61,6 +85,207 @@ public abstract class AbstractMarkdownConfiguration
         MacroExtension.class
     );
 
+    /**
+     * The options computed by {@link #createOptions()} along with the capabilities derived from them. They're cached
+     * since computing them requires instantiating all the flexmark extensions.
+     */
+    private volatile Snapshot snapshot;
+
+    @Inject
+    private ComponentManager componentManager;
+
+    private volatile ConfigurationSource configurationSource;
+
+    /**
+     * Frozen options and the capabilities derived from them, published together so that readers never see options
+     * and flags that don't match.
+     */
+    private static final class Snapshot
+    {
+        private final DataHolder options;
+
+        private final boolean strikethroughSupported;
+
+        private final boolean abbreviationSupported;
+
+        Snapshot(MutableDataHolder mutableOptions)
+        {
+            boolean hasStrikethrough = false;
+            boolean hasAbbreviation = false;
+            Collection<Extension> extensions = Parser.EXTENSIONS.get(mutableOptions);
+            for (Extension extension : extensions) {
+                hasStrikethrough |= extension instanceof StrikethroughExtension
+                    || extension instanceof StrikethroughSubscriptExtension;
+                hasAbbreviation |= extension instanceof AbbreviationExtension;
+            }
+            mutableOptions.set(Parser.EXTENSIONS, Collections.unmodifiableList(new ArrayList<>(extensions)));
+
+            this.options = mutableOptions.toImmutable();
+            this.strikethroughSupported = hasStrikethrough;
+            this.abbreviationSupported = hasAbbreviation;
+        }
+    }
+
+    /**
+     * @return the flexmark options to use, computed once and then frozen and cached until {@link #reset()} is called
+     */
+    public DataHolder getOptions()
+    {
+        return getSnapshot().options;
+    }
+
+    /**
+     * @return {@code true} if one of the configured extensions parses strikethrough syntax, cached along with the
+     *     options
+     */
+    public boolean isStrikethroughSupported()
+    {
+        return getSnapshot().strikethroughSupported;
+    }
+
+    /**
+     * @return {@code true} if the abbreviation extension is configured, cached along with the options
+     */
+    public boolean isAbbreviationSupported()
+    {
+        return getSnapshot().abbreviationSupported;
+    }
+
+    /**
+     * @return {@code true} if tables are rendered row by row without aligning their columns, from the
+     *     {@code rendering.markdown.compactTableRendering} property, {@code false} by default
+     * @since 8.9.2
+     */
+    public boolean isCompactTableRendering()
+    {
+        return getProperty("compactTableRendering", Boolean.FALSE);
+    }
+
+    /**
+     * @return the number of rows from which the width of the table columns is computed, from the
+     *     {@code rendering.markdown.tableLookahead} property, {@code 0} (the default) for all the rows
+     * @since 8.9.2
+     */
+    public int getTableLookahead()
+    {
+        return getPositiveProperty("tableLookahead");
+    }
+
+    /**
+     * @return the maximum number of characters of the parsed content, read from the
+     *     {@code rendering.markdown.maxDocumentSize} property, {@code 0} (the default) for no limit
+     * @since 8.9.2
+     */
+    public int getMaxDocumentSize()
+    {
+        return getPositiveProperty("maxDocumentSize");
+    }
+
+    /**
+     * @return the maximum depth of nested elements of the parsed content, read from the
+     *     {@code rendering.markdown.maxNestingDepth} property, {@code 0} (the default) for no limit
+     * @since 8.9.2
+     */
+    public int getMaxNestingDepth()
+    {
+        return getPositiveProperty("maxNestingDepth");
+    }
+
+    /**
+     * @return the maximum number of elements of the parsed content, read from the
+     *     {@code rendering.markdown.maxNodeCount} property, {@code 0} (the default) for no limit
+     * @since 8.9.2
+     */
+    public int getMaxNodeCount()
+    {
+        return getPositiveProperty("maxNodeCount");
+    }
+
+    /**
+     * @return the maximum time taken to convert a content once flexmark has parsed it, in milliseconds, read from the
+     *     {@code rendering.markdown.maxParseTime} property, {@code 0} (the default) for no limit
+     * @since 8.9.2
+     */
+    public long getMaxParseTime()
+    {
+        return Math.max(getProperty("maxParseTime", 0L), 0L);
+    }
+
+    /**
+     * Discard the cached options so that they are computed again on next access. Parsers built from the previous
+     * options are rebuilt when they notice the change.
+     */
+    public void reset()
+    {
+        this.snapshot = null;
+    }
+
+    /**
+     * @param name the name of the property, without the {@value #PROPERTY_PREFIX} prefix
+     * @param defaultValue the value to return when the property is not set
+     * @param <T> the type of the property
+     * @return the value of the property
+     * @since 8.9.2
+     */
+    protected <T> T getProperty(String name, T defaultValue)
+    {
+        ConfigurationSource source = getConfigurationSource();
+        if (source == null) {
+            return defaultValue;
+        }
+        T value = source.getProperty(PROPERTY_PREFIX + name, defaultValue);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * @param name the name of the property, without the {@value #PROPERTY_PREFIX} prefix
+     * @return the value of the property, {@code 0} when it's not set or negative
+     */
+    private int getPositiveProperty(String name)
+    {
+        return Math.max(getProperty(name, 0), 0);
+    }
+
+    private ConfigurationSource getConfigurationSource()
+    {
+        ConfigurationSource result = this.configurationSource;
+        if (result == null && this.componentManager != null) {
+            // Looked up lazily since the configuration sources may be registered after this component
+            try {
+                if (this.componentManager.hasComponent(ConfigurationSource.class, XWIKI_PROPERTIES)) {
+                    result = this.componentManager.getInstance(ConfigurationSource.class, XWIKI_PROPERTIES);
+                } else if (this.componentManager.hasComponent(ConfigurationSource.class)) {
+                    result = this.componentManager.getInstance(ConfigurationSource.class);
+                }
+            } catch (ComponentLookupException e) {
+                getLogger().warn("Failed to look up the configuration source. Root cause: [{}]",
+                    ExceptionUtils.getRootCauseMessage(e));
+            }
+            this.configurationSource = result;
+        }
+        return result;
+    }
+
+    private Snapshot getSnapshot()
+    {
+        Snapshot result = this.snapshot;
+        if (result == null) {
+            synchronized (this) {
+                result = this.snapshot;
+                if (result == null) {
+                    result = new Snapshot(createOptions());
+                    this.snapshot = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the newly computed flexmark options for this Markdown flavor
+     */
+    protected abstract MutableDataHolder createOptions();
+
     protected abstract Logger getLogger();
 
     protected MutableDataHolder getDefaultOptions(ParserEmulationProfile parserEmulationProfile,
@@ -40,7 +40,7 @@ public class DefaultMarkdownConfiguration extends AbstractMarkdownConfiguration
     private Logger logger;
 
     @Override
-    public MutableDataHolder getOptions()
+    protected MutableDataHolder createOptions()
     {
         MutableDataHolder options = getDefaultOptions(ParserEmulationProfile.COMMONMARK,
             Collections.singletonList(DeepInlineHTMLExtension.class));
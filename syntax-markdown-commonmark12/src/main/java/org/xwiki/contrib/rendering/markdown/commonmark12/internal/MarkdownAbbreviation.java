@@ -0,0 +1,246 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * An abbreviation and its definition. Since XWiki doesn't support abbreviations, the parser represents them as an
+ * HTML {@code <abbr>} element in an HTML macro, which the renderer converts back to the Markdown abbreviation syntax.
+ * This class is the single place defining that representation, and reads it back with a simple scanner instead of
+ * an XML parser.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public final class MarkdownAbbreviation
+{
+    private static final String START = "<abbr";
+
+    private static final String TITLE = "title";
+
+    private static final String END = "</abbr>";
+
+    private final String text;
+
+    private final String title;
+
+    /**
+     * @param text the abbreviated text
+     * @param title the definition of the abbreviation, can be empty
+     */
+    public MarkdownAbbreviation(String text, String title)
+    {
+        this.text = text;
+        this.title = title;
+    }
+
+    /**
+     * @return the abbreviated text
+     */
+    public String getText()
+    {
+        return this.text;
+    }
+
+    /**
+     * @return the definition of the abbreviation
+     */
+    public String getTitle()
+    {
+        return this.title;
+    }
+
+    /**
+     * @return the HTML representation of the abbreviation, e.g. {@code <abbr title="World Wide Web">WWW</abbr>},
+     *     with the {@code &}, {@code <}, {@code >} and {@code "} characters of the text and title escaped
+     */
+    public String toHTML()
+    {
+        StringBuilder html = new StringBuilder(START.length() + END.length() + this.text.length() + 32);
+        html.append(START);
+        if (StringUtils.isNotEmpty(this.title)) {
+            html.append(' ').append(TITLE).append("=\"");
+            encode(this.title, html);
+            html.append('"');
+        }
+        html.append('>');
+        encode(this.text, html);
+        html.append(END);
+
+        return html.toString();
+    }
+
+    private static void encode(String value, StringBuilder html)
+    {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    html.append("&amp;");
+                    break;
+                case '<':
+                    html.append("&lt;");
+                    break;
+                case '>':
+                    html.append("&gt;");
+                    break;
+                case '"':
+                    html.append("&quot;");
+                    break;
+                default:
+                    html.append(c);
+            }
+        }
+    }
+
+    /**
+     * Read an abbreviation from its HTML representation. Only an {@code abbr} element with a single {@code title}
+     * attribute and text content is accepted, so that any other HTML is kept as is.
+     *
+     * @param html the HTML to read, e.g. {@code <abbr title="World Wide Web">WWW</abbr>}
+     * @return the abbreviation, or {@code null} if the HTML is not an abbreviation with a title
+     */
+    public static MarkdownAbbreviation parse(String html)
+    {
+        int length = html.length();
+        if (!html.startsWith(START) || length == START.length() || !isWhitespace(html.charAt(START.length()))) {
+            return null;
+        }
+
+        // Title attribute
+        int index = skipWhitespaces(html, START.length());
+        if (!html.startsWith(TITLE, index)) {
+            return null;
+        }
+        index = skipWhitespaces(html, index + TITLE.length());
+        if (index == length || html.charAt(index) != '=') {
+            return null;
+        }
+        index = skipWhitespaces(html, index + 1);
+        if (index == length || (html.charAt(index) != '"' && html.charAt(index) != '\'')) {
+            return null;
+        }
+        int titleEnd = html.indexOf(html.charAt(index), index + 1);
+        if (titleEnd < 0) {
+            return null;
+        }
+        String title = decode(html, index + 1, titleEnd);
+
+        // Text content, up to the end of the element which must end the HTML
+        index = skipWhitespaces(html, titleEnd + 1);
+        if (index == length || html.charAt(index) != '>') {
+            return null;
+        }
+        int textEnd = html.indexOf(END, index + 1);
+        if (textEnd < 0 || skipWhitespaces(html, textEnd + END.length()) != length) {
+            return null;
+        }
+        String text = decode(html, index + 1, textEnd);
+
+        return title != null && text != null ? new MarkdownAbbreviation(text, title) : null;
+    }
+
+    private static int skipWhitespaces(String html, int start)
+    {
+        int index = start;
+        while (index < html.length() && isWhitespace(html.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isWhitespace(char c)
+    {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * @return the text between the passed indexes with the XML entities replaced, or {@code null} if it contains
+     *     markup or unknown entities
+     */
+    private static String decode(String html, int start, int end)
+    {
+        int ampersand = html.indexOf('&', start);
+        if (ampersand < 0 || ampersand >= end) {
+            int markup = html.indexOf('<', start);
+            return markup < 0 || markup >= end ? html.substring(start, end) : null;
+        }
+
+        StringBuilder decoded = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = html.charAt(i);
+            if (c == '<') {
+                return null;
+            } else if (c == '&') {
+                int entityEnd = html.indexOf(';', i);
+                if (entityEnd < 0 || entityEnd >= end) {
+                    return null;
+                }
+                int character = decodeEntity(html.substring(i + 1, entityEnd));
+                if (character < 0) {
+                    return null;
+                }
+                decoded.appendCodePoint(character);
+                i = entityEnd;
+            } else {
+                decoded.append(c);
+            }
+        }
+
+        return decoded.toString();
+    }
+
+    private static int decodeEntity(String entity)
+    {
+        switch (entity) {
+            case "amp":
+                return '&';
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            case "quot":
+                return '"';
+            case "apos":
+                return '\'';
+            default:
+                return decodeCharacterReference(entity);
+        }
+    }
+
+    private static int decodeCharacterReference(String entity)
+    {
+        if (entity.length() < 2 || entity.charAt(0) != '#') {
+            return -1;
+        }
+        try {
+            int character;
+            if (entity.charAt(1) == 'x') {
+                character = Integer.parseInt(entity.substring(2), 16);
+            } else {
+                character = Integer.parseInt(entity.substring(1));
+            }
+            return Character.isValidCodePoint(character) ? character : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -21,10 +21,114 @@ package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
 
 import org.xwiki.component.annotation.Role;
 
-import com.vladsch.flexmark.util.data.MutableDataHolder;
+import com.vladsch.flexmark.ext.abbreviation.AbbreviationExtension;
+import com.vladsch.flexmark.ext.gfm.strikethrough.StrikethroughExtension;
+import com.vladsch.flexmark.ext.gfm.strikethrough.StrikethroughSubscriptExtension;
+import com.vladsch.flexmark.parser.Parser;
+import com.vladsch.flexmark.util.data.DataHolder;
+import com.vladsch.flexmark.util.misc.Extension;
 
 @Role
 public interface MarkdownConfiguration
 {
-    MutableDataHolder getOptions();
+    /**
+     * @return the frozen flexmark options, computed once and shared by all parsers and renderers
+     */
+    DataHolder getOptions();
+
+    /**
+     * @return {@code true} if the configured extensions support the strikethrough syntax, computed from the extensions
+     *     of the options by default
+     * @since 8.9.2
+     */
+    default boolean isStrikethroughSupported()
+    {
+        for (Extension extension : Parser.EXTENSIONS.get(getOptions())) {
+            if (extension instanceof StrikethroughExtension || extension instanceof StrikethroughSubscriptExtension) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} if the configured extensions support abbreviations, computed from the extensions of the
+     *     options by default
+     * @since 8.9.2
+     */
+    default boolean isAbbreviationSupported()
+    {
+        for (Extension extension : Parser.EXTENSIONS.get(getOptions())) {
+            if (extension instanceof AbbreviationExtension) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} to render each table row as soon as it ends, without padding the cells to align the
+     *     columns, so that rendering a table requires a constant amount of memory whatever its size (configured with
+     *     the {@code rendering.markdown.compactTableRendering} property)
+     * @since 8.9.2
+     */
+    default boolean isCompactTableRendering()
+    {
+        return false;
+    }
+
+    /**
+     * @return the number of rows from which the width of the table columns is computed when rendering tables, the
+     *     next rows being rendered as soon as they end, or {@code 0} (the default) to compute it from all the rows
+     *     (configured with the {@code rendering.markdown.tableLookahead} property)
+     * @since 8.9.2
+     */
+    default int getTableLookahead()
+    {
+        return 0;
+    }
+
+    /**
+     * @return the maximum number of characters of the parsed content, or {@code 0} (the default) for no limit
+     *     (configured with the {@code rendering.markdown.maxDocumentSize} property). It's checked before flexmark
+     *     parses the content, so it's the limit bounding the work done by flexmark itself
+     * @since 8.9.2
+     */
+    default int getMaxDocumentSize()
+    {
+        return 0;
+    }
+
+    /**
+     * @return the maximum depth of nested elements (quotes, lists, formatting...) of the parsed content, or {@code 0}
+     *     (the default) for no limit (configured with the {@code rendering.markdown.maxNestingDepth} property)
+     * @since 8.9.2
+     */
+    default int getMaxNestingDepth()
+    {
+        return 0;
+    }
+
+    /**
+     * @return the maximum number of elements of the parsed content, or {@code 0} (the default) for no limit
+     *     (configured with the {@code rendering.markdown.maxNodeCount} property)
+     * @since 8.9.2
+     */
+    default int getMaxNodeCount()
+    {
+        return 0;
+    }
+
+    /**
+     * @return the maximum time taken to parse a content, in milliseconds, or {@code 0} (the default) for no limit
+     *     (configured with the {@code rendering.markdown.maxParseTime} property). flexmark can't be interrupted, so
+     *     the time is only checked once flexmark has parsed the content and while converting it to XWiki events: a
+     *     content can exceed this limit by the time flexmark takes to parse it, which is bounded only by
+     *     {@link #getMaxDocumentSize()}
+     * @since 8.9.2
+     */
+    default long getMaxParseTime()
+    {
+        return 0;
+    }
 }
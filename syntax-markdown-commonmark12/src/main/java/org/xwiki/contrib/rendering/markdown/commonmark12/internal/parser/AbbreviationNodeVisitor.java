@@ -19,14 +19,12 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
-import java.util.Deque;
+import java.util.Arrays;
+import java.util.List;
 
-import org.apache.commons.lang3.StringUtils;
-import org.xwiki.rendering.listener.Listener;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.MarkdownAbbreviation;
 
 import com.vladsch.flexmark.ext.abbreviation.Abbreviation;
-import com.vladsch.flexmark.util.ast.NodeVisitor;
-import com.vladsch.flexmark.util.ast.VisitHandler;
 
 /**
  * Handle abbreviation events.
@@ -36,27 +34,19 @@ import com.vladsch.flexmark.util.ast.VisitHandler;
  */
 public class AbbreviationNodeVisitor extends AbstractNodeVisitor
 {
-    static <V extends AbbreviationNodeVisitor> VisitHandler<?>[] VISIT_HANDLERS(final V visitor)
-    {
-        return new VisitHandler<?>[]{
-                new VisitHandler<>(Abbreviation.class, node -> visitor.visit(node))
-        };
-    }
+    static final List<NodeHandler<?, AbbreviationNodeVisitor>> NODE_HANDLERS = Arrays.asList(
+        NodeHandler.of(AbbreviationNodeVisitor.class, Abbreviation.class, AbbreviationNodeVisitor::visit)
+    );
 
-    public AbbreviationNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners)
+    public AbbreviationNodeVisitor(NodeVisitorContext context)
     {
-        super(visitor, listeners);
+        super(context);
     }
 
     public void visit(Abbreviation node)
     {
         // Since XWiki doesn't support abbreviations, we generate an HTML <abbr> element.
-        String html;
-        if (StringUtils.isNotEmpty(node.getAbbreviation())) {
-            html = String.format("<abbr title=\"%s\">%s</abbr>", node.getAbbreviation(), node.getChars());
-        } else {
-            html = String.format("<abbr>%s</abbr>", node.getChars());
-        }
+        String html = new MarkdownAbbreviation(node.getChars().toString(), node.getAbbreviation()).toHTML();
         generateHTMLMacro(html, true);
     }
 }
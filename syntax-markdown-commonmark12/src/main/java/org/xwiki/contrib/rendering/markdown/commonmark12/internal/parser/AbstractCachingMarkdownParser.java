@@ -0,0 +1,74 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import javax.inject.Inject;
+
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * Base class for the caching parsers of the various Markdown flavors, delegating the parsing of the content missing
+ * from the cache to the matching streaming parser.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public abstract class AbstractCachingMarkdownParser implements CachingMarkdownParser
+{
+    @Inject
+    private ParseResultCache cache;
+
+    /**
+     * @return the streaming parser of the Markdown flavor
+     */
+    protected abstract AbstractMarkdownStreamParser getMarkdownStreamParser();
+
+    @Override
+    public Syntax getSyntax()
+    {
+        return getMarkdownStreamParser().getSyntax();
+    }
+
+    @Override
+    public XDOM parse(Reader source) throws ParseException
+    {
+        AbstractMarkdownStreamParser streamParser = getMarkdownStreamParser();
+        try (MarkdownSource markdownSource = streamParser.readSource(source)) {
+            CharSequence content = markdownSource.getContent();
+            Syntax syntax = streamParser.getSyntax();
+            // The options are part of the key so that the content is parsed again when the configuration changes
+            Object options = streamParser.getOptions();
+
+            XDOM xdom = this.cache.get(syntax, options, content);
+            if (xdom == null) {
+                xdom = streamParser.parseXDOM(content);
+                this.cache.put(syntax, options, content, xdom);
+            }
+            return xdom;
+        } catch (IOException e) {
+            throw new ParseException("Failed to read Markdown content", e);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import javax.inject.Inject;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextException;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+
+/**
+ * Base class for the batch parsers of the various Markdown flavors, delegating the parsing of each document to the
+ * matching streaming parser. The streaming parser shares its flexmark parser between threads, so the documents are
+ * parsed concurrently by a pool of one thread per available processor. The pool threads are reused between documents
+ * so that they reuse the buffers and visitors kept by the streaming parser.
+ * <p>
+ * Each document is converted in its own execution context, inheriting the inheritable properties of the execution
+ * context of the caller, so that the components used while converting (e.g. the wiki model) work as on the calling
+ * thread.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public abstract class AbstractMarkdownBatchParser implements MarkdownBatchParser, Initializable, Disposable
+{
+    /**
+     * Converts one document of a batch.
+     *
+     * @param <T> the type of converted document
+     */
+    @FunctionalInterface
+    private interface Conversion<T>
+    {
+        T convert(Reader source) throws ParseException;
+    }
+
+    private final int parallelism = Runtime.getRuntime().availableProcessors();
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    private ExecutorService executor;
+
+    /**
+     * @return the streaming parser of the Markdown flavor
+     */
+    protected abstract AbstractMarkdownStreamParser getMarkdownStreamParser();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.executor = createExecutor();
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.executor.shutdownNow();
+    }
+
+    @Override
+    public List<MarkdownBatchResult<XDOM>> parse(Collection<? extends Reader> sources) throws InterruptedException
+    {
+        AbstractMarkdownStreamParser streamParser = getMarkdownStreamParser();
+        return convert(sources, streamParser::parseXDOM);
+    }
+
+    @Override
+    public List<MarkdownBatchResult<String>> render(Collection<? extends Reader> sources,
+        PrintRendererFactory rendererFactory) throws InterruptedException
+    {
+        AbstractMarkdownStreamParser streamParser = getMarkdownStreamParser();
+        return convert(sources, source -> {
+            WikiPrinter printer = new DefaultWikiPrinter();
+            streamParser.parse(source, rendererFactory.createRenderer(printer));
+            return printer.toString();
+        });
+    }
+
+    private <T> List<MarkdownBatchResult<T>> convert(Collection<? extends Reader> sources, Conversion<T> conversion)
+        throws InterruptedException
+    {
+        // Bound the number of documents in progress, whatever the executor, so that a huge batch doesn't keep all
+        // its documents in memory at the same time
+        Semaphore permits = new Semaphore(this.parallelism);
+        ExecutionContext callerContext = this.execution.getContext();
+        List<Future<MarkdownBatchResult<T>>> futures = new ArrayList<>(sources.size());
+        try {
+            for (Reader source : sources) {
+                permits.acquire();
+                futures.add(this.executor.submit(() -> {
+                    try {
+                        return MarkdownBatchResult.success(convert(source, conversion, callerContext));
+                    } catch (ParseException | RuntimeException e) {
+                        return MarkdownBatchResult.failure(e);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            List<MarkdownBatchResult<T>> results = new ArrayList<>(futures.size());
+            for (Future<MarkdownBatchResult<T>> future : futures) {
+                results.add(getResult(future));
+            }
+            return results;
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+    }
+
+    private <T> T convert(Reader source, Conversion<T> conversion, ExecutionContext callerContext)
+        throws ParseException
+    {
+        ExecutionContext context = new ExecutionContext();
+        if (callerContext != null) {
+            context.inheritFrom(callerContext);
+        }
+        this.execution.setContext(context);
+        try {
+            this.executionContextManager.initialize(context);
+            return conversion.convert(source);
+        } catch (ExecutionContextException e) {
+            throw new ParseException("Failed to initialize the execution context", e);
+        } finally {
+            // Don't leave the context of this document on the pool thread
+            this.execution.removeContext();
+        }
+    }
+
+    private <T> MarkdownBatchResult<T> getResult(Future<MarkdownBatchResult<T>> future) throws InterruptedException
+    {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // An error (e.g. a stack overflow on a deeply nested document) which only affects this document
+            return MarkdownBatchResult.failure(new ParseException("Failed to convert Markdown content", e.getCause()));
+        }
+    }
+
+    private ExecutorService createExecutor()
+    {
+        return Executors.newFixedThreadPool(this.parallelism,
+            new BasicThreadFactory.Builder().namingPattern("Markdown batch parser %d").daemon(true).build());
+    }
+}
@@ -41,8 +41,14 @@ public abstract class AbstractMarkdownParser implements Parser
     @Override
     public XDOM parse(Reader source) throws ParseException
     {
+        StreamParser streamParser = getMarkdownStreamParser();
+        if (streamParser instanceof AbstractMarkdownStreamParser) {
+            // Build the XDOM directly rather than from the streamed events
+            return ((AbstractMarkdownStreamParser) streamParser).parseXDOM(source);
+        }
+
         XDOMGeneratorListener xdomGeneratorListener = new XDOMGeneratorListener();
-        getMarkdownStreamParser().parse(source, xdomGeneratorListener);
+        streamParser.parse(source, xdomGeneratorListener);
         return xdomGeneratorListener.getXDOM();
     }
 }
@@ -19,20 +19,29 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
+import java.io.IOException;
 import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 
-import org.apache.commons.io.IOUtils;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.contrib.rendering.markdown.commonmark12.internal.MarkdownConfiguration;
+import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.parser.ParseException;
 import org.xwiki.rendering.parser.StreamParser;
 
 import com.vladsch.flexmark.parser.Parser;
 import com.vladsch.flexmark.util.ast.Node;
-import com.vladsch.flexmark.util.data.MutableDataHolder;
+import com.vladsch.flexmark.util.data.DataHolder;
+import com.vladsch.flexmark.util.sequence.BasedSequence;
 
 /**
  * Base class for Markdown Streaming Parsers for the various Markdown flavors. Implemented using the
@@ -41,31 +50,259 @@ import com.vladsch.flexmark.util.data.MutableDataHolder;
  * @version $Id$
  * @since 8.4
  */
-public abstract class AbstractMarkdownStreamParser implements StreamParser
+public abstract class AbstractMarkdownStreamParser implements StreamParser, Disposable
 {
+    private static final int MAX_IDLE_VISITORS = Runtime.getRuntime().availableProcessors() * 2;
+
     @Inject
     private Provider<FlexmarkNodeVisitor> visitorProvider;
 
     @Inject
     private MarkdownConfiguration configuration;
 
+    @Inject
+    private ParseLimitStatistics limitStatistics;
+
+    /**
+     * The flexmark parser, built once and shared by all parsing threads until the configuration options change.
+     */
+    private volatile CompiledMarkdownParser compiledParser;
+
+    /**
+     * The visitors released after use, kept to avoid rebuilding the visitor graph for each document. A visitor is
+     * removed while in use so that concurrent and nested parses get their own. The pool is owned by the component and
+     * cleared when it's disposed, so that it doesn't keep the extension classes loaded.
+     */
+    private final Queue<FlexmarkNodeVisitor> idleVisitors = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger idleVisitorCount = new AtomicInteger();
+
+    /**
+     * The buffers into which the content read from a {@link Reader} is stored, owned by the component like the
+     * visitors.
+     */
+    private final MarkdownSource.BufferPool sourceBuffers = new MarkdownSource.BufferPool();
+
+    private volatile boolean disposed;
+
+    @Override
+    public void dispose()
+    {
+        this.disposed = true;
+        this.idleVisitors.clear();
+        this.idleVisitorCount.set(0);
+        this.sourceBuffers.clear();
+    }
+
+    /**
+     * Read all the content of the passed reader into a buffer taken from the pool of this parser. Note that the reader
+     * is not closed.
+     *
+     * @param source the reader from which to read the Markdown content
+     * @return the read content, which must be closed once it's not needed anymore
+     * @throws IOException if the content fails to be read
+     * @since 8.9.2
+     */
+    public MarkdownSource readSource(Reader source) throws IOException
+    {
+        return MarkdownSource.read(source, this.sourceBuffers);
+    }
+
     @Override
     public void parse(Reader source, Listener listener) throws ParseException
     {
-        Node document;
-        MutableDataHolder options = getConfiguration().getOptions();
-        Parser parser = Parser.builder(options).build();
+        try (MarkdownSource markdownSource = readSource(source)) {
+            parse(markdownSource.getContent(), listener);
+        } catch (IOException e) {
+            throw new ParseException("Failed to read Markdown content", e);
+        }
+    }
+
+    /**
+     * Parse Markdown content which is already available in memory, without copying it.
+     *
+     * @param source the content to parse
+     * @param listener the listener receiving the XWiki events
+     * @throws ParseException if the content fails to be parsed
+     * @since 8.9.2
+     */
+    public void parse(CharSequence source, Listener listener) throws ParseException
+    {
+        visit(source, (visitor, document) -> {
+            visitor.visit(document, listener, getSyntax());
+            return null;
+        });
+    }
+
+    /**
+     * Parse Markdown content into an XDOM built directly by the node visitor, which is faster than generating it from
+     * the events sent to an {@link org.xwiki.rendering.internal.parser.XDOMGeneratorListener}.
+     *
+     * @param source the content to parse
+     * @return the XDOM
+     * @throws ParseException if the content fails to be read or parsed
+     * @since 8.9.2
+     */
+    public XDOM parseXDOM(Reader source) throws ParseException
+    {
+        try (MarkdownSource markdownSource = readSource(source)) {
+            return parseXDOM(markdownSource.getContent());
+        } catch (IOException e) {
+            throw new ParseException("Failed to read Markdown content", e);
+        }
+    }
+
+    /**
+     * Parse Markdown content which is already available in memory into an XDOM built directly by the node visitor.
+     *
+     * @param source the content to parse
+     * @return the XDOM
+     * @throws ParseException if the content fails to be parsed
+     * @since 8.9.2
+     */
+    public XDOM parseXDOM(CharSequence source) throws ParseException
+    {
+        return visit(source, (visitor, document) -> visitor.buildXDOM(document, getSyntax()));
+    }
+
+    /**
+     * Parse Markdown content which is already available in memory into an XDOM built directly by the node visitor,
+     * along with the index of its sections, and optionally keeping the range of source from which each block has been
+     * generated, for example to map the blocks to the source in an editor.
+     *
+     * @param source the content to parse
+     * @param sourceRanges {@code true} to return the {@link MarkdownSourceRanges} of the blocks with the XDOM
+     * @return the XDOM, the index of its sections and, if requested, the source ranges of its blocks
+     * @throws ParseException if the content fails to be parsed
+     * @since 8.9.2
+     */
+    public MarkdownParseResult parseIndexedXDOM(CharSequence source, boolean sourceRanges) throws ParseException
+    {
+        return visit(source, (visitor, document) -> visitor.buildIndexedXDOM(document, getSyntax(), sourceRanges));
+    }
+
+    /**
+     * Parse the content and visit the parsed document, enforcing the configured {@link ParseLimit}s.
+     */
+    private <T> T visit(CharSequence source, BiFunction<FlexmarkNodeVisitor, Node, T> visit) throws ParseException
+    {
+        ParseBudget budget = ParseBudget.start(getConfiguration());
+        FlexmarkNodeVisitor visitor = null;
+        try {
+            if (budget != null) {
+                budget.checkDocumentSize(source.length());
+            }
+            Node document = parseDocument(source);
+            if (budget != null) {
+                budget.checkParseTime();
+            }
+
+            visitor = borrowVisitor();
+            visitor.setBudget(budget);
+            return visit.apply(visitor, document);
+        } catch (ParseLimitExceededException e) {
+            this.limitStatistics.rejected(e.getLimit());
+            throw new ParseException(e.getMessage(), e);
+        } finally {
+            if (visitor != null) {
+                visitor.setBudget(null);
+                releaseVisitor(visitor);
+            }
+        }
+    }
+
+    private FlexmarkNodeVisitor borrowVisitor()
+    {
+        FlexmarkNodeVisitor visitor = this.idleVisitors.poll();
+        if (visitor == null) {
+            return this.visitorProvider.get();
+        }
+        this.idleVisitorCount.decrementAndGet();
+        return visitor;
+    }
+
+    private void releaseVisitor(FlexmarkNodeVisitor visitor)
+    {
+        if (!this.disposed && this.idleVisitorCount.incrementAndGet() <= MAX_IDLE_VISITORS) {
+            this.idleVisitors.offer(visitor);
+        } else {
+            this.idleVisitorCount.decrementAndGet();
+        }
+    }
+
+    private Node parseDocument(CharSequence source) throws ParseException
+    {
+        Parser parser = getParser();
         try {
-            document = parser.parse(IOUtils.toString(source));
+            return parser.parse(BasedSequence.of(source));
         } catch (Exception e) {
             throw new ParseException("Failed to parse Markdown content", e);
         }
+    }
+
+    /**
+     * Parse the Markdown content of a file, mapping it in memory instead of reading it through a {@link Reader}.
+     *
+     * @param source the file to parse
+     * @param charset the encoding of the file
+     * @param listener the listener receiving the XWiki events
+     * @throws ParseException if the file fails to be read or parsed
+     * @since 8.9.2
+     */
+    public void parse(Path source, Charset charset, Listener listener) throws ParseException
+    {
+        CharSequence content;
+        try {
+            content = MarkdownSource.read(source, charset);
+        } catch (IOException e) {
+            throw new ParseException(String.format("Failed to read Markdown file [%s]", source), e);
+        }
+        parse(content, listener);
+    }
 
-        this.visitorProvider.get().visit(document, listener, getSyntax());
+    /**
+     * Parse Markdown content which is going to be edited and parsed again incrementally after each edit.
+     *
+     * @param source the initial content
+     * @return the parsed document
+     * @throws ParseException if the content fails to be parsed
+     * @since 8.9.2
+     */
+    public IncrementalMarkdownDocument parseIncrementally(String source) throws ParseException
+    {
+        IncrementalMarkdownDocument document = new IncrementalMarkdownDocument(this::getParser, this::borrowVisitor,
+            this::releaseVisitor, () -> ParseBudget.start(getConfiguration()), this.limitStatistics::rejected,
+            getSyntax());
+        document.update(source);
+        return document;
     }
 
     protected MarkdownConfiguration getConfiguration()
     {
         return this.configuration;
     }
+
+    /**
+     * @return the current flexmark options, which are replaced by a new instance whenever the configuration changes
+     * @since 8.9.2
+     */
+    public DataHolder getOptions()
+    {
+        return getConfiguration().getOptions();
+    }
+
+    /**
+     * @return the flexmark parser matching the current configuration options, rebuilt only when they have changed
+     */
+    protected Parser getParser()
+    {
+        DataHolder options = getConfiguration().getOptions();
+        CompiledMarkdownParser current = this.compiledParser;
+        if (current == null || !current.isBuiltFrom(options)) {
+            // Concurrent threads may both rebuild the parser, which is harmless since they build equivalent parsers.
+            current = new CompiledMarkdownParser(options);
+            this.compiledParser = current;
+        }
+        return current.getParser();
+    }
 }
@@ -19,24 +19,16 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
-import java.io.StringReader;
-import java.util.Collections;
-import java.util.Deque;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
-import org.xwiki.rendering.listener.InlineFilterListener;
 import org.xwiki.rendering.listener.Listener;
-import org.xwiki.rendering.listener.WrappingListener;
-import org.xwiki.rendering.parser.ParseException;
-import org.xwiki.rendering.parser.StreamParser;
 import org.xwiki.rendering.renderer.PrintRendererFactory;
 import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
 
 import com.vladsch.flexmark.ast.util.ReferenceRepository;
 import com.vladsch.flexmark.util.ast.Node;
-import com.vladsch.flexmark.util.ast.NodeVisitor;
 
 public abstract class AbstractNodeVisitor
 {
@@ -45,34 +37,19 @@ public abstract class AbstractNodeVisitor
      */
     protected static final String TITLE_ATTRIBUTE = "title";
 
-    private NodeVisitor visitor;
-
-    private Deque<Listener> listeners;
-
-    private ReferenceRepository referenceRepository;
+    private NodeVisitorContext context;
 
     private PrintRendererFactory plainRendererFactory;
 
-    private StreamParser plainTextStreamParser;
-
-    public AbstractNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners)
+    public AbstractNodeVisitor(NodeVisitorContext context)
     {
-        this(visitor, listeners, null);
+        this(context, null);
     }
 
-    public AbstractNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners,
-        PrintRendererFactory plainRendererFactory)
+    public AbstractNodeVisitor(NodeVisitorContext context, PrintRendererFactory plainRendererFactory)
     {
-        this(visitor, listeners, plainRendererFactory, null);
-    }
-
-    public AbstractNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners,
-        PrintRendererFactory plainRendererFactory, StreamParser plainTextStreamParser)
-    {
-        this.visitor = visitor;
-        this.listeners = listeners;
+        this.context = context;
         this.plainRendererFactory = plainRendererFactory;
-        this.plainTextStreamParser = plainTextStreamParser;
     }
 
     /**
@@ -80,32 +57,32 @@ public abstract class AbstractNodeVisitor
      */
     protected Listener getListener()
     {
-        return this.listeners.peek();
+        return this.context.getListeners().peek();
     }
 
     protected void pushListener(Listener listener)
     {
-        this.listeners.push(listener);
+        this.context.getListeners().push(listener);
     }
 
     protected void popListener()
     {
-        this.listeners.pop();
+        this.context.getListeners().pop();
     }
 
-    protected NodeVisitor getVisitor()
+    protected NodeDispatcher getVisitor()
     {
-        return this.visitor;
+        return this.context.getDispatcher();
     }
 
-    public void setReferenceRepository(ReferenceRepository referenceRepository)
+    protected NodeVisitorContext getContext()
     {
-        this.referenceRepository = referenceRepository;
+        return this.context;
     }
 
     protected ReferenceRepository getReferenceRepository()
     {
-        return this.referenceRepository;
+        return this.context.getReferenceRepository();
     }
 
     /**
@@ -133,15 +110,9 @@ public abstract class AbstractNodeVisitor
     /**
      * @param text the text to parse and for which to return XWiki events
      */
-    protected void parseInline(String text)
+    protected void parseInline(CharSequence text)
     {
-        try {
-            WrappingListener inlineListener = new InlineFilterListener();
-            inlineListener.setWrappedListener(getListener());
-            this.plainTextStreamParser.parse(new StringReader(text), inlineListener);
-        } catch (ParseException e) {
-            throw new RuntimeException(String.format("Error parsing content [%s]", text), e);
-        }
+        InlineTextTokenizer.tokenize(text, getListener());
     }
 
     protected void generateHTMLMacro(String html, boolean inline)
@@ -149,6 +120,6 @@ public abstract class AbstractNodeVisitor
         // We output a HTML macro (and not Raw events) in order to benefit from the security features of that Macro.
         // We don't clean the HTML since it's possible to intermix MD syntax with HTML and thus has not well-formed
         // HTML content.
-        getListener().onMacro("html", Collections.singletonMap("clean", "false"), html, inline);
+        getListener().onMacro("html", ParameterMaps.HTML_MACRO, html, inline);
     }
 }
@@ -19,18 +19,15 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
+import java.util.List;
 import java.util.Map;
 
-import org.xwiki.rendering.listener.Listener;
-
 import com.vladsch.flexmark.ast.Code;
 import com.vladsch.flexmark.ast.FencedCodeBlock;
 import com.vladsch.flexmark.ast.IndentedCodeBlock;
 import com.vladsch.flexmark.ast.ListItem;
-import com.vladsch.flexmark.util.ast.NodeVisitor;
-import com.vladsch.flexmark.util.ast.VisitHandler;
 
 /**
  * Handle Code events.
@@ -40,23 +37,20 @@ import com.vladsch.flexmark.util.ast.VisitHandler;
  */
 public class CodeNodeVisitor extends AbstractNodeVisitor
 {
-    static <V extends CodeNodeVisitor> VisitHandler<?>[] VISIT_HANDLERS(final V visitor)
-    {
-        return new VisitHandler<?>[]{
-            new VisitHandler<>(Code.class, node -> visitor.visit(node)),
-            new VisitHandler<>(FencedCodeBlock.class, node -> visitor.visit(node)),
-            new VisitHandler<>(IndentedCodeBlock.class, node -> visitor.visit(node))
-        };
-    }
+    static final List<NodeHandler<?, CodeNodeVisitor>> NODE_HANDLERS = Arrays.asList(
+        NodeHandler.of(CodeNodeVisitor.class, Code.class, CodeNodeVisitor::visit),
+        NodeHandler.of(CodeNodeVisitor.class, FencedCodeBlock.class, CodeNodeVisitor::visit),
+        NodeHandler.of(CodeNodeVisitor.class, IndentedCodeBlock.class, CodeNodeVisitor::visit)
+    );
 
     /**
      * Id of the code macro.
      */
     private static final String CODE_MACRO_ID = "code";
 
-    public CodeNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners)
+    public CodeNodeVisitor(NodeVisitorContext context)
     {
-        super(visitor, listeners);
+        super(context);
     }
 
     public void visit(Code node)
@@ -97,6 +91,6 @@ public class CodeNodeVisitor extends AbstractNodeVisitor
 
     private Map<String, String> getCodeMacroParameters(String language)
     {
-        return Collections.singletonMap("language", language == null ? "none" : language);
+        return ParameterMaps.getCodeMacroParameters(language);
     }
 }
@@ -0,0 +1,72 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import com.vladsch.flexmark.parser.Parser;
+import com.vladsch.flexmark.util.data.DataHolder;
+
+/**
+ * Immutable holder of a flexmark {@link Parser} along with the options it has been built from. Flexmark parsers are
+ * thread-safe once built so a single instance can be shared by all parsing threads, as long as the options it has been
+ * built from are still the ones returned by the Markdown configuration.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public final class CompiledMarkdownParser
+{
+    private final DataHolder options;
+
+    private final Parser parser;
+
+    /**
+     * @param options the options to build the flexmark parser from
+     */
+    public CompiledMarkdownParser(DataHolder options)
+    {
+        this.options = options;
+        this.parser = Parser.builder(options).build();
+    }
+
+    /**
+     * @param currentOptions the options currently returned by the Markdown configuration
+     * @return {@code true} if this parser has been built from the passed options and can thus be reused
+     */
+    public boolean isBuiltFrom(DataHolder currentOptions)
+    {
+        return this.options == currentOptions;
+    }
+
+    /**
+     * @return the options the parser has been built from
+     */
+    public DataHolder getOptions()
+    {
+        return this.options;
+    }
+
+    /**
+     * @return the flexmark parser
+     */
+    public Parser getParser()
+    {
+        return this.parser;
+    }
+}
@@ -19,7 +19,8 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.jetbrains.annotations.NotNull;
 
@@ -30,6 +31,7 @@ import com.vladsch.flexmark.util.ast.Document;
 import com.vladsch.flexmark.util.ast.Node;
 import com.vladsch.flexmark.util.ast.NodeTracker;
 import com.vladsch.flexmark.util.data.DataHolder;
+import com.vladsch.flexmark.util.sequence.BasedSequence;
 
 /**
  * Detects and merges nodes that are content of inline HTML open and close tags.
@@ -44,7 +46,6 @@ public class DeepInlineHTMLPostProcessor extends NodePostProcessor
     private static final String HTML_OPEN_PREFIX = "<";
     private static final String HTML_CLOSE_PREFIX = "</";
     private static final String HTML_SELF_SUFFIX = "/>";
-    private static final Pattern HTML_TAG_SUFFIX_REGEX = Pattern.compile("\\s+|>");
 
     /**
      * Factory class for DeepInlineHTMLPostProcessor.
@@ -73,13 +74,7 @@ public class DeepInlineHTMLPostProcessor extends NodePostProcessor
     @Override
     public void process(@NotNull NodeTracker nodeTracker, @NotNull Node node)
     {
-        // We store the number of nested open tags found during the processing and match it to the number of closing
-        // tags.
-        int toFind = 1;
-        int nFound = 0;
-
-        Node nextNode = node.getNext();
-        String inlineStartText = node.getChars().toString();
+        BasedSequence inlineStartText = node.getChars();
 
         // We return early if we found a single closing tag, or a self-closing one.
         if (inlineStartText.startsWith(HTML_CLOSE_PREFIX) || inlineStartText.endsWith(HTML_SELF_SUFFIX)) {
@@ -87,28 +82,88 @@ public class DeepInlineHTMLPostProcessor extends NodePostProcessor
         }
 
         // We keep the name of the tag until the first whitespace character and remove the angle brackets.
-        String inlineStartTag = HTML_TAG_SUFFIX_REGEX.split(inlineStartText, 2)[0].substring(1);
+        BasedSequence inlineStartTag =
+            inlineStartText.subSequence(HTML_OPEN_PREFIX.length(), getTagEnd(inlineStartText));
 
-        while (nextNode != null && nFound < toFind) {
-            Node currentNode = nextNode;
+        // We count the nested open tags with the same name found during the processing and match them to the
+        // closing tags. Only the name of the start tag matters so its depth is all we need from the tag stack.
+        int depth = 1;
+        boolean contiguous = true;
+        Node lastNode = node;
+        Node nextNode = node.getNext();
+        while (nextNode != null && depth > 0) {
+            if (nextNode instanceof HtmlInline) {
+                BasedSequence chars = nextNode.getChars();
+                if (isTag(chars, HTML_OPEN_PREFIX, inlineStartTag)) {
+                    depth++;
+                } else if (isTag(chars, HTML_CLOSE_PREFIX, inlineStartTag)) {
+                    depth--;
+                }
+            }
+            contiguous &= nextNode.getStartOffset() == lastNode.getEndOffset();
+            lastNode = nextNode;
             nextNode = nextNode.getNext();
+        }
 
-            // We store the content of the processed nodes in the first HtmlInline node.
-            node.setChars(node.getChars().append(currentNode.getChars()));
+        if (lastNode != node) {
+            // We store the content of the processed nodes in the first HtmlInline node, computing it only once.
+            node.setChars(contiguous ? inlineStartText.baseSubSequence(node.getStartOffset(), lastNode.getEndOffset())
+                : inlineStartText.append(getChars(node.getNext(), lastNode)));
 
-            if (currentNode instanceof HtmlInline) {
-                // We keep the name of the tag until the first whitespace character or closing angle bracket.
-                String currentNodeTag = HTML_TAG_SUFFIX_REGEX.split(currentNode.getChars().toString(), 2)[0];
-                if (currentNodeTag.equals(HTML_OPEN_PREFIX + inlineStartTag)) {
-                    toFind++;
-                } else if (currentNodeTag.equals(HTML_CLOSE_PREFIX + inlineStartTag)) {
-                    nFound++;
-                }
+            // We get rid of now redundant nodes.
+            removeSiblings(nodeTracker, node.getNext(), lastNode);
+        }
+    }
+
+    /**
+     * @param chars the text of an HTML tag
+     * @return the index of the first whitespace character or closing angle bracket, or the length of the text
+     */
+    private static int getTagEnd(BasedSequence chars)
+    {
+        int length = chars.length();
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(i);
+            if (c == '>' || c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r') {
+                return i;
             }
+        }
+        return length;
+    }
 
-            // We get rid of now redundant nodes.
-            currentNode.unlink();
-            nodeTracker.nodeRemoved(currentNode);
+    private static boolean isTag(BasedSequence chars, String prefix, BasedSequence tagName)
+    {
+        int tagEnd = getTagEnd(chars);
+        if (tagEnd != prefix.length() + tagName.length() || !chars.startsWith(prefix)) {
+            return false;
+        }
+        for (int i = 0; i < tagName.length(); i++) {
+            if (chars.charAt(prefix.length() + i) != tagName.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static BasedSequence[] getChars(Node first, Node last)
+    {
+        List<BasedSequence> chars = new ArrayList<>();
+        for (Node current = first; current != last; current = current.getNext()) {
+            chars.add(current.getChars());
+        }
+        chars.add(last.getChars());
+        return chars.toArray(new BasedSequence[0]);
+    }
+
+    private static void removeSiblings(NodeTracker nodeTracker, Node first, Node last)
+    {
+        Node current = first;
+        Node end = last.getNext();
+        while (current != end) {
+            Node next = current.getNext();
+            current.unlink();
+            nodeTracker.nodeRemoved(current);
+            current = next;
         }
     }
 }
@@ -19,9 +19,9 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
-import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
+import java.util.List;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -29,13 +29,13 @@ import javax.inject.Named;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
-import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.listener.MetaData;
 import org.xwiki.rendering.parser.ResourceReferenceParser;
-import org.xwiki.rendering.parser.StreamParser;
 import org.xwiki.rendering.renderer.PrintRendererFactory;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.util.IdGenerator;
 
 import com.vladsch.flexmark.ast.HardLineBreak;
 import com.vladsch.flexmark.ast.SoftLineBreak;
@@ -43,21 +43,11 @@ import com.vladsch.flexmark.ast.ThematicBreak;
 import com.vladsch.flexmark.parser.Parser;
 import com.vladsch.flexmark.util.ast.Document;
 import com.vladsch.flexmark.util.ast.Node;
-import com.vladsch.flexmark.util.ast.NodeVisitor;
-import com.vladsch.flexmark.util.ast.VisitHandler;
 
 @Component
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
 public class DefaultFlexmarkNodeVisitor implements FlexmarkNodeVisitor
 {
-    /**
-     * A plain text parser used to convert Flexmark's Text node elements to various Block elements since Text node's
-     * values contain several words and special characters which we thus need to break down into individual tokens.
-     */
-    @Inject
-    @Named("plain/1.0")
-    private StreamParser plainTextStreamParser;
-
     /**
      * We parse image references with the default reference parser (i.e. the same one used by XWiki Syntax 2.1).
      */
@@ -83,113 +73,151 @@ public class DefaultFlexmarkNodeVisitor implements FlexmarkNodeVisitor
      * Used to find out at runtime a link label generator matching the link reference type.
      */
     @Inject
-    private ComponentManager componentManager;
+    private URILabelGeneratorResolver uriLabelGeneratorResolver;
 
     /**
-     * Handle Document nodes.
+     * Handle nodes not handled by a specific visitor.
      */
-    static <V extends DefaultFlexmarkNodeVisitor> VisitHandler<?>[] VISIT_HANDLERS(final V visitor)
-    {
-        return new VisitHandler<?>[]{
-                new VisitHandler<>(Document.class, node -> visitor.visit(node)),
-                new VisitHandler<>(ThematicBreak.class, node -> visitor.visit(node)),
-                new VisitHandler<>(HardLineBreak.class, node -> visitor.visit(node)),
-                new VisitHandler<>(SoftLineBreak.class, node -> visitor.visit(node))
-        };
-    }
+    static final List<NodeHandler<?, DefaultFlexmarkNodeVisitor>> NODE_HANDLERS = Arrays.asList(
+        NodeHandler.of(DefaultFlexmarkNodeVisitor.class, Document.class, DefaultFlexmarkNodeVisitor::visit),
+        NodeHandler.of(DefaultFlexmarkNodeVisitor.class, ThematicBreak.class, DefaultFlexmarkNodeVisitor::visit),
+        NodeHandler.of(DefaultFlexmarkNodeVisitor.class, HardLineBreak.class, DefaultFlexmarkNodeVisitor::visit),
+        NodeHandler.of(DefaultFlexmarkNodeVisitor.class, SoftLineBreak.class, DefaultFlexmarkNodeVisitor::visit)
+    );
 
     /**
-     * Listener(s) for the generated XWiki Events. Organized as a stack so that a buffering listener can hijack all
-     * events for a while, for example. All generated events are sent to the top of the stack.
+     * The handlers of all the node visitors, indexed by node class once for all the instances.
      */
-    private Deque<Listener> listeners = new ArrayDeque<>();
+    private static final NodeHandlerTable HANDLERS = new NodeHandlerTable()
+        .register(NODE_HANDLERS)
+        .register(TextNodeVisitor.NODE_HANDLERS)
+        .register(EmphasisNodeVisitor.NODE_HANDLERS)
+        .register(ParagraphNodeVisitor.NODE_HANDLERS)
+        .register(ImageNodeVisitor.NODE_HANDLERS)
+        .register(LinkNodeVisitor.NODE_HANDLERS)
+        .register(ListNodeVisitor.NODE_HANDLERS)
+        .register(QuoteNodeVisitor.NODE_HANDLERS)
+        .register(HeadingNodeVisitor.NODE_HANDLERS)
+        .register(TableNodeVisitor.NODE_HANDLERS)
+        .register(StrikethroughNodeVisitor.NODE_HANDLERS)
+        .register(SubSuperscriptNodeVisitor.NODE_HANDLERS)
+        .register(HTMLNodeVisitor.NODE_HANDLERS)
+        .register(CodeNodeVisitor.NODE_HANDLERS)
+        .register(AbbreviationNodeVisitor.NODE_HANDLERS)
+        .register(MacroNodeVisitor.NODE_HANDLERS);
 
-    private NodeVisitor visitor;
-
-    private ImageNodeVisitor imageNodeVisitor;
+    /**
+     * The state shared by the node visitors. The visitors are created once and the context is reset for each document.
+     */
+    private NodeVisitorContext context;
 
-    private LinkNodeVisitor linkNodeVisitor;
+    /**
+     * The limits enforced while visiting a document.
+     */
+    private ParseBudget budget;
 
     public void visit(Node node, Listener listener, Syntax syntax)
     {
         SectionListener sectionListener = new SectionListener();
         sectionListener.setWrappedListener(listener);
-        this.listeners.push(sectionListener);
-
-        MetaData metaData = new MetaData(Collections.singletonMap(MetaData.SYNTAX, syntax));
-        getListener().beginDocument(metaData);
-
-        // Handle nodes not handled by a specific visitor
-        this.visitor = new NodeVisitor(VISIT_HANDLERS(this));
-
-        // Handle Text nodes
-        TextNodeVisitor textNodeVisitor = new TextNodeVisitor(this.visitor, this.listeners, this.plainTextStreamParser);
-        this.visitor.addHandlers(TextNodeVisitor.VISIT_HANDLERS(textNodeVisitor));
-
-        // Handle Emphasis nodes
-        EmphasisNodeVisitor emphasisNodeVisitor = new EmphasisNodeVisitor(this.visitor, this.listeners);
-        this.visitor.addHandlers(EmphasisNodeVisitor.VISIT_HANDLERS(emphasisNodeVisitor));
-
-        // Handle Paragraph nodes
-        ParagraphNodeVisitor paragraphNodeVisitor = new ParagraphNodeVisitor(this.visitor, this.listeners);
-        this.visitor.addHandlers(ParagraphNodeVisitor.VISIT_HANDLERS(paragraphNodeVisitor));
-
-        // Handle Image nodes
-        this.imageNodeVisitor = new ImageNodeVisitor(this.visitor, this.listeners, this.imageResourceReferenceParser,
-            this.componentManager, this.plainRendererFactory);
-        this.visitor.addHandlers(ImageNodeVisitor.VISIT_HANDLERS(this.imageNodeVisitor));
-
-        // Handle Link nodes
-        this.linkNodeVisitor = new LinkNodeVisitor(this.visitor, this.listeners, this.linkResourceReferenceParser,
-            this.plainTextStreamParser);
-        this.visitor.addHandlers(LinkNodeVisitor.VISIT_HANDLERS(this.linkNodeVisitor));
-
-        // Handle list nodes
-        ListNodeVisitor listNodeVisitor = new ListNodeVisitor(this.visitor, this.listeners);
-        this.visitor.addHandlers(ListNodeVisitor.VISIT_HANDLERS(listNodeVisitor));
-
-        // Handle quote nodes
-        QuoteNodeVisitor quoteNodeVisitor = new QuoteNodeVisitor(this.visitor, this.listeners);
-        this.visitor.addHandlers(QuoteNodeVisitor.VISIT_HANDLERS(quoteNodeVisitor));
-
-        // Handle Heading nodes
-        HeadingNodeVisitor headingNodeVisitor = new HeadingNodeVisitor(this.visitor, this.listeners,
-            this.plainRendererFactory);
-        this.visitor.addHandlers(HeadingNodeVisitor.VISIT_HANDLERS(headingNodeVisitor));
-
-        // Handle Table nodes
-        TableNodeVisitor tableNodeVisitor = new TableNodeVisitor(this.visitor, this.listeners,
-            this.plainRendererFactory);
-        this.visitor.addHandlers(TableNodeVisitor.VISIT_HANDLERS(tableNodeVisitor));
-
-        // Handle strikethrough nodes
-        StrikethroughNodeVisitor strikethroughNodeVisitor =
-            new StrikethroughNodeVisitor(this.visitor, this.listeners);
-        this.visitor.addHandlers(StrikethroughNodeVisitor.VISIT_HANDLERS(strikethroughNodeVisitor));
-
-        // Handle superscript and subscript nodes
-        SubSuperscriptNodeVisitor subSuperscriptNodeVisitor =
-            new SubSuperscriptNodeVisitor(this.visitor, this.listeners);
-        this.visitor.addHandlers(SubSuperscriptNodeVisitor.VISIT_HANDLERS(subSuperscriptNodeVisitor));
-
-        // Handle HTML nodes
-        HTMLNodeVisitor htmlNodeVisitor = new HTMLNodeVisitor(this.visitor, this.listeners);
-        this.visitor.addHandlers(HTMLNodeVisitor.VISIT_HANDLERS(htmlNodeVisitor));
-
-        // Handle Code nodes
-        CodeNodeVisitor codeNodeVisitor = new CodeNodeVisitor(this.visitor, this.listeners);
-        this.visitor.addHandlers(CodeNodeVisitor.VISIT_HANDLERS(codeNodeVisitor));
-
-        // Handle Abbreviation nodes
-        AbbreviationNodeVisitor abbreviationNodeVisitor = new AbbreviationNodeVisitor(this.visitor, this.listeners);
-        this.visitor.addHandlers(AbbreviationNodeVisitor.VISIT_HANDLERS(abbreviationNodeVisitor));
-
-        // Handle Macro nodes
-        MacroNodeVisitor macroNodeVisitor = new MacroNodeVisitor(this.visitor, this.listeners);
-        this.visitor.addHandlers(MacroNodeVisitor.VISIT_HANDLERS(macroNodeVisitor));
-
-        this.visitor.visit(node);
-        getListener().endDocument(metaData);
+        visitDocument(node, sectionListener, null, syntax);
+    }
+
+    @Override
+    public void setBudget(ParseBudget budget)
+    {
+        this.budget = budget;
+    }
+
+    @Override
+    public XDOM buildXDOM(Node node, Syntax syntax)
+    {
+        return buildIndexedXDOM(node, syntax, false).getXDOM();
+    }
+
+    @Override
+    public MarkdownParseResult buildIndexedXDOM(Node node, Syntax syntax, boolean sourceRanges)
+    {
+        // The builder generates the sections itself, and indexes them. It gets the source ranges from the node being
+        // visited.
+        MarkdownXDOMBuilder builder = new MarkdownXDOMBuilder(sourceRanges ? getContext().getDispatcher() : null);
+        visitDocument(node, builder, builder, syntax);
+        return builder.getResult();
+    }
+
+    private void visitDocument(Node node, Listener listener, MarkdownXDOMBuilder builder, Syntax syntax)
+    {
+        NodeVisitorContext visitorContext = getContext();
+        visitorContext.reset();
+        try {
+            visitorContext.getListeners().push(listener);
+            visitorContext.getDispatcher().setBudget(this.budget);
+            if (builder != null) {
+                builder.setSourceLength(node.getEndOffset());
+                visitorContext.setSectionIndex(builder.getSectionIndex());
+                visitorContext.getDispatcher().setTrackingNodes(builder.hasSourceRanges());
+            }
+
+            MetaData metaData = new MetaData(Collections.singletonMap(MetaData.SYNTAX, syntax));
+            getListener().beginDocument(metaData);
+            visitorContext.getDispatcher().visit(node);
+            getListener().endDocument(metaData);
+        } finally {
+            // Don't keep a reference to the document and the listener while the visitor is not used
+            visitorContext.reset();
+        }
+    }
+
+    @Override
+    public void visitBlock(Document document, Node node, Listener listener, IdGenerator idGenerator)
+    {
+        NodeVisitorContext visitorContext = getContext();
+        visitorContext.reset();
+        try {
+            visitorContext.setIdGenerator(idGenerator);
+            visitorContext.setReferenceRepository(Parser.REFERENCES.get(document));
+            visitorContext.getListeners().push(listener);
+            visitorContext.getDispatcher().setBudget(this.budget);
+            visitorContext.getDispatcher().visit(node);
+        } finally {
+            visitorContext.reset();
+        }
+    }
+
+    private NodeVisitorContext getContext()
+    {
+        if (this.context == null) {
+            this.context = createContext();
+        }
+        return this.context;
+    }
+
+    private NodeVisitorContext createContext()
+    {
+        NodeVisitorContext visitorContext = new NodeVisitorContext(HANDLERS);
+        NodeDispatcher dispatcher = visitorContext.getDispatcher();
+
+        dispatcher.register(DefaultFlexmarkNodeVisitor.class, this);
+        dispatcher.register(TextNodeVisitor.class, new TextNodeVisitor(visitorContext));
+        dispatcher.register(EmphasisNodeVisitor.class, new EmphasisNodeVisitor(visitorContext));
+        dispatcher.register(ParagraphNodeVisitor.class, new ParagraphNodeVisitor(visitorContext));
+        dispatcher.register(ImageNodeVisitor.class, new ImageNodeVisitor(visitorContext,
+            this.imageResourceReferenceParser, this.uriLabelGeneratorResolver, this.plainRendererFactory));
+        dispatcher.register(LinkNodeVisitor.class,
+            new LinkNodeVisitor(visitorContext, this.linkResourceReferenceParser));
+        dispatcher.register(ListNodeVisitor.class, new ListNodeVisitor(visitorContext));
+        dispatcher.register(QuoteNodeVisitor.class, new QuoteNodeVisitor(visitorContext));
+        dispatcher.register(HeadingNodeVisitor.class,
+            new HeadingNodeVisitor(visitorContext, this.plainRendererFactory));
+        dispatcher.register(TableNodeVisitor.class, new TableNodeVisitor(visitorContext, this.plainRendererFactory));
+        dispatcher.register(StrikethroughNodeVisitor.class, new StrikethroughNodeVisitor(visitorContext));
+        dispatcher.register(SubSuperscriptNodeVisitor.class, new SubSuperscriptNodeVisitor(visitorContext));
+        dispatcher.register(HTMLNodeVisitor.class, new HTMLNodeVisitor(visitorContext));
+        dispatcher.register(CodeNodeVisitor.class, new CodeNodeVisitor(visitorContext));
+        dispatcher.register(AbbreviationNodeVisitor.class, new AbbreviationNodeVisitor(visitorContext));
+        dispatcher.register(MacroNodeVisitor.class, new MacroNodeVisitor(visitorContext));
+
+        return visitorContext;
     }
 
     public void visit(SoftLineBreak node)
@@ -205,9 +233,8 @@ public class DefaultFlexmarkNodeVisitor implements FlexmarkNodeVisitor
 
     public void visit(Document node)
     {
-        this.imageNodeVisitor.setReferenceRepository(Parser.REFERENCES.get(node));
-        this.linkNodeVisitor.setReferenceRepository(Parser.REFERENCES.get(node));
-        this.visitor.visitChildren(node);
+        this.context.setReferenceRepository(Parser.REFERENCES.get(node));
+        this.context.getDispatcher().visitChildren(node);
     }
 
     public void visit(ThematicBreak node)
@@ -220,6 +247,6 @@ public class DefaultFlexmarkNodeVisitor implements FlexmarkNodeVisitor
      */
     private Listener getListener()
     {
-        return this.listeners.peek();
+        return this.context.getListeners().peek();
     }
 }
@@ -19,16 +19,14 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
+import java.util.List;
 
 import org.xwiki.rendering.listener.Format;
-import org.xwiki.rendering.listener.Listener;
 
 import com.vladsch.flexmark.ast.Emphasis;
 import com.vladsch.flexmark.ast.StrongEmphasis;
-import com.vladsch.flexmark.util.ast.NodeVisitor;
-import com.vladsch.flexmark.util.ast.VisitHandler;
 
 /**
  * Handle emphasis events.
@@ -38,32 +36,35 @@ import com.vladsch.flexmark.util.ast.VisitHandler;
  */
 public class EmphasisNodeVisitor extends AbstractNodeVisitor
 {
-    static <V extends EmphasisNodeVisitor> VisitHandler<?>[] VISIT_HANDLERS(final V visitor)
+    static final List<NodeHandler<?, EmphasisNodeVisitor>> NODE_HANDLERS = Arrays.asList(
+        NodeHandler.of(EmphasisNodeVisitor.class, Emphasis.class, EmphasisNodeVisitor::enter,
+            EmphasisNodeVisitor::exit),
+        NodeHandler.of(EmphasisNodeVisitor.class, StrongEmphasis.class, EmphasisNodeVisitor::enter,
+            EmphasisNodeVisitor::exit)
+    );
+
+    public EmphasisNodeVisitor(NodeVisitorContext context)
+    {
+        super(context);
+    }
+
+    public void enter(Emphasis node)
     {
-        return new VisitHandler<?>[]{
-                new VisitHandler<>(Emphasis.class, node -> visitor.visit(node)),
-                new VisitHandler<>(StrongEmphasis.class, node -> visitor.visit(node))
-        };
+        getListener().beginFormat(Format.ITALIC, Collections.emptyMap());
     }
 
-    public EmphasisNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners)
+    public void exit(Emphasis node)
     {
-        super(visitor, listeners);
+        getListener().endFormat(Format.ITALIC, Collections.emptyMap());
     }
 
-    public void visit(Emphasis node)
+    public void enter(StrongEmphasis node)
     {
-        Format format = Format.ITALIC;
-        getListener().beginFormat(format, Collections.emptyMap());
-        getVisitor().visitChildren(node);
-        getListener().endFormat(format, Collections.emptyMap());
+        getListener().beginFormat(Format.BOLD, Collections.emptyMap());
     }
 
-    public void visit(StrongEmphasis node)
+    public void exit(StrongEmphasis node)
     {
-        Format format = Format.BOLD;
-        getListener().beginFormat(format, Collections.emptyMap());
-        getVisitor().visitChildren(node);
-        getListener().endFormat(format, Collections.emptyMap());
+        getListener().endFormat(Format.BOLD, Collections.emptyMap());
     }
 }
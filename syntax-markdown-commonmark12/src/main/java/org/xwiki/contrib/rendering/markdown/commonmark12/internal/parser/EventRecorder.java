@@ -0,0 +1,552 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.ListType;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * Records the events it receives in a compact binary form that can be replayed later to any {@link Listener}, see
+ * {@link EventRecording}. This allows to parse a document once and to stream it many times to renderers without
+ * parsing it again nor keeping its XDOM.
+ * <p>
+ * All the strings (words, parameter names and values, references...) are interned in a string table, so that each
+ * distinct string is stored only once, whatever the number of events using it.
+ * <p>
+ * A recorder is meant to receive the events of a single document and isn't thread safe.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public class EventRecorder implements Listener
+{
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+
+    private final List<String> strings = new ArrayList<>();
+
+    private final EventRecordingOutput events = new EventRecordingOutput(INITIAL_CAPACITY);
+
+    /**
+     * @return the events received so far
+     */
+    public EventRecording getRecording()
+    {
+        // Encode the string table first so that the strings can be decoded before the events are replayed
+        EventRecordingOutput output = new EventRecordingOutput(this.events.size() + INITIAL_CAPACITY);
+        output.writeByte(EventRecording.FORMAT);
+        output.writeInt(this.strings.size());
+        for (String string : this.strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.writeBytes(bytes, bytes.length);
+        }
+        output.writeBytes(this.events);
+
+        return new EventRecording(output.toByteArray());
+    }
+
+    private void writeByte(int value)
+    {
+        this.events.writeByte(value);
+    }
+
+    private void writeInt(int value)
+    {
+        this.events.writeInt(value);
+    }
+
+    private void writeEvent(RecordedEvent event)
+    {
+        writeByte(event.ordinal());
+    }
+
+    private void writeBoolean(boolean value)
+    {
+        writeByte(value ? 1 : 0);
+    }
+
+    private void writeString(String value)
+    {
+        if (value == null) {
+            writeInt(0);
+        } else {
+            Integer index = this.stringIndexes.get(value);
+            if (index == null) {
+                this.strings.add(value);
+                index = this.strings.size();
+                this.stringIndexes.put(value, index);
+            }
+            writeInt(index);
+        }
+    }
+
+    private void writeParameters(Map<String, String> parameters)
+    {
+        if (parameters == null) {
+            writeInt(0);
+        } else {
+            writeInt(parameters.size());
+            for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+                writeString(parameter.getKey());
+                writeString(parameter.getValue());
+            }
+        }
+    }
+
+    private void writeSyntax(Syntax syntax)
+    {
+        if (syntax == null) {
+            writeBoolean(false);
+        } else {
+            writeBoolean(true);
+            writeString(syntax.getType().getId());
+            writeString(syntax.getType().getName());
+            writeString(syntax.getVersion());
+        }
+    }
+
+    private void writeMetaData(MetaData metadata)
+    {
+        Map<String, Object> entries = metadata != null ? metadata.getMetaData() : null;
+        if (entries == null) {
+            writeInt(0);
+        } else {
+            writeInt(entries.size());
+            for (Map.Entry<String, Object> entry : entries.entrySet()) {
+                writeString(entry.getKey());
+                if (entry.getValue() instanceof Syntax) {
+                    writeByte(EventRecording.SYNTAX_VALUE);
+                    writeSyntax((Syntax) entry.getValue());
+                } else {
+                    // Only the string representation of the other values is kept
+                    writeByte(EventRecording.STRING_VALUE);
+                    writeString(entry.getValue() != null ? entry.getValue().toString() : null);
+                }
+            }
+        }
+    }
+
+    private void writeReference(ResourceReference reference)
+    {
+        writeString(reference.getType().getScheme());
+        writeString(reference.getReference());
+        writeBoolean(reference.isTyped());
+        List<String> baseReferences = reference.getBaseReferences();
+        writeInt(baseReferences.size());
+        for (String baseReference : baseReferences) {
+            writeString(baseReference);
+        }
+        writeParameters(reference.getParameters());
+    }
+
+    private void write(RecordedEvent event, Map<String, String> parameters)
+    {
+        writeEvent(event);
+        writeParameters(parameters);
+    }
+
+    @Override
+    public void beginDocument(MetaData metadata)
+    {
+        writeEvent(RecordedEvent.BEGIN_DOCUMENT);
+        writeMetaData(metadata);
+    }
+
+    @Override
+    public void endDocument(MetaData metadata)
+    {
+        writeEvent(RecordedEvent.END_DOCUMENT);
+        writeMetaData(metadata);
+    }
+
+    @Override
+    public void beginGroup(Map<String, String> parameters)
+    {
+        write(RecordedEvent.BEGIN_GROUP, parameters);
+    }
+
+    @Override
+    public void endGroup(Map<String, String> parameters)
+    {
+        write(RecordedEvent.END_GROUP, parameters);
+    }
+
+    @Override
+    public void beginFormat(Format format, Map<String, String> parameters)
+    {
+        writeEvent(RecordedEvent.BEGIN_FORMAT);
+        writeInt(format.ordinal());
+        writeParameters(parameters);
+    }
+
+    @Override
+    public void endFormat(Format format, Map<String, String> parameters)
+    {
+        writeEvent(RecordedEvent.END_FORMAT);
+        writeInt(format.ordinal());
+        writeParameters(parameters);
+    }
+
+    @Override
+    public void beginParagraph(Map<String, String> parameters)
+    {
+        write(RecordedEvent.BEGIN_PARAGRAPH, parameters);
+    }
+
+    @Override
+    public void endParagraph(Map<String, String> parameters)
+    {
+        write(RecordedEvent.END_PARAGRAPH, parameters);
+    }
+
+    @Override
+    public void beginList(ListType type, Map<String, String> parameters)
+    {
+        writeEvent(RecordedEvent.BEGIN_LIST);
+        writeInt(type.ordinal());
+        writeParameters(parameters);
+    }
+
+    @Override
+    public void endList(ListType type, Map<String, String> parameters)
+    {
+        writeEvent(RecordedEvent.END_LIST);
+        writeInt(type.ordinal());
+        writeParameters(parameters);
+    }
+
+    @Override
+    public void beginListItem()
+    {
+        writeEvent(RecordedEvent.BEGIN_LIST_ITEM);
+    }
+
+    /**
+     * Start of a list item. Not annotated with {@code @Override} to stay compatible with versions of XWiki Rendering
+     * in which the Listener doesn't have this method.
+     *
+     * @param parameters the list item parameters, not supported by the Markdown syntax
+     */
+    public void beginListItem(Map<String, String> parameters)
+    {
+        beginListItem();
+    }
+
+    @Override
+    public void endListItem()
+    {
+        writeEvent(RecordedEvent.END_LIST_ITEM);
+    }
+
+    /**
+     * End of a list item. See {@link #beginListItem(Map)}.
+     *
+     * @param parameters the list item parameters, not supported by the Markdown syntax
+     */
+    public void endListItem(Map<String, String> parameters)
+    {
+        endListItem();
+    }
+
+    @Override
+    public void beginDefinitionList(Map<String, String> parameters)
+    {
+        write(RecordedEvent.BEGIN_DEFINITION_LIST, parameters);
+    }
+
+    @Override
+    public void endDefinitionList(Map<String, String> parameters)
+    {
+        write(RecordedEvent.END_DEFINITION_LIST, parameters);
+    }
+
+    @Override
+    public void beginDefinitionTerm()
+    {
+        writeEvent(RecordedEvent.BEGIN_DEFINITION_TERM);
+    }
+
+    @Override
+    public void endDefinitionTerm()
+    {
+        writeEvent(RecordedEvent.END_DEFINITION_TERM);
+    }
+
+    @Override
+    public void beginDefinitionDescription()
+    {
+        writeEvent(RecordedEvent.BEGIN_DEFINITION_DESCRIPTION);
+    }
+
+    @Override
+    public void endDefinitionDescription()
+    {
+        writeEvent(RecordedEvent.END_DEFINITION_DESCRIPTION);
+    }
+
+    @Override
+    public void beginQuotation(Map<String, String> parameters)
+    {
+        write(RecordedEvent.BEGIN_QUOTATION, parameters);
+    }
+
+    @Override
+    public void endQuotation(Map<String, String> parameters)
+    {
+        write(RecordedEvent.END_QUOTATION, parameters);
+    }
+
+    @Override
+    public void beginQuotationLine()
+    {
+        writeEvent(RecordedEvent.BEGIN_QUOTATION_LINE);
+    }
+
+    @Override
+    public void endQuotationLine()
+    {
+        writeEvent(RecordedEvent.END_QUOTATION_LINE);
+    }
+
+    @Override
+    public void beginSection(Map<String, String> parameters)
+    {
+        write(RecordedEvent.BEGIN_SECTION, parameters);
+    }
+
+    @Override
+    public void endSection(Map<String, String> parameters)
+    {
+        write(RecordedEvent.END_SECTION, parameters);
+    }
+
+    @Override
+    public void beginHeader(HeaderLevel level, String id, Map<String, String> parameters)
+    {
+        writeEvent(RecordedEvent.BEGIN_HEADER);
+        writeInt(level.ordinal());
+        writeString(id);
+        writeParameters(parameters);
+    }
+
+    @Override
+    public void endHeader(HeaderLevel level, String id, Map<String, String> parameters)
+    {
+        writeEvent(RecordedEvent.END_HEADER);
+        writeInt(level.ordinal());
+        writeString(id);
+        writeParameters(parameters);
+    }
+
+    @Override
+    public void beginTable(Map<String, String> parameters)
+    {
+        write(RecordedEvent.BEGIN_TABLE, parameters);
+    }
+
+    @Override
+    public void endTable(Map<String, String> parameters)
+    {
+        write(RecordedEvent.END_TABLE, parameters);
+    }
+
+    @Override
+    public void beginTableRow(Map<String, String> parameters)
+    {
+        write(RecordedEvent.BEGIN_TABLE_ROW, parameters);
+    }
+
+    @Override
+    public void endTableRow(Map<String, String> parameters)
+    {
+        write(RecordedEvent.END_TABLE_ROW, parameters);
+    }
+
+    @Override
+    public void beginTableCell(Map<String, String> parameters)
+    {
+        write(RecordedEvent.BEGIN_TABLE_CELL, parameters);
+    }
+
+    @Override
+    public void endTableCell(Map<String, String> parameters)
+    {
+        write(RecordedEvent.END_TABLE_CELL, parameters);
+    }
+
+    @Override
+    public void beginTableHeadCell(Map<String, String> parameters)
+    {
+        write(RecordedEvent.BEGIN_TABLE_HEAD_CELL, parameters);
+    }
+
+    @Override
+    public void endTableHeadCell(Map<String, String> parameters)
+    {
+        write(RecordedEvent.END_TABLE_HEAD_CELL, parameters);
+    }
+
+    @Override
+    public void beginLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        writeEvent(RecordedEvent.BEGIN_LINK);
+        writeReference(reference);
+        writeBoolean(freestanding);
+        writeParameters(parameters);
+    }
+
+    @Override
+    public void endLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        writeEvent(RecordedEvent.END_LINK);
+        writeReference(reference);
+        writeBoolean(freestanding);
+        writeParameters(parameters);
+    }
+
+    @Override
+    public void beginMacroMarker(String name, Map<String, String> macroParameters, String content, boolean isInline)
+    {
+        writeEvent(RecordedEvent.BEGIN_MACRO_MARKER);
+        writeString(name);
+        writeParameters(macroParameters);
+        writeString(content);
+        writeBoolean(isInline);
+    }
+
+    @Override
+    public void endMacroMarker(String name, Map<String, String> macroParameters, String content, boolean isInline)
+    {
+        writeEvent(RecordedEvent.END_MACRO_MARKER);
+        writeString(name);
+        writeParameters(macroParameters);
+        writeString(content);
+        writeBoolean(isInline);
+    }
+
+    @Override
+    public void beginMetaData(MetaData metadata)
+    {
+        writeEvent(RecordedEvent.BEGIN_METADATA);
+        writeMetaData(metadata);
+    }
+
+    @Override
+    public void endMetaData(MetaData metadata)
+    {
+        writeEvent(RecordedEvent.END_METADATA);
+        writeMetaData(metadata);
+    }
+
+    @Override
+    public void onNewLine()
+    {
+        writeEvent(RecordedEvent.ON_NEW_LINE);
+    }
+
+    @Override
+    public void onMacro(String id, Map<String, String> parameters, String content, boolean isInline)
+    {
+        writeEvent(RecordedEvent.ON_MACRO);
+        writeString(id);
+        writeParameters(parameters);
+        writeString(content);
+        writeBoolean(isInline);
+    }
+
+    @Override
+    public void onWord(String word)
+    {
+        writeEvent(RecordedEvent.ON_WORD);
+        writeString(word);
+    }
+
+    @Override
+    public void onSpace()
+    {
+        writeEvent(RecordedEvent.ON_SPACE);
+    }
+
+    @Override
+    public void onSpecialSymbol(char symbol)
+    {
+        writeEvent(RecordedEvent.ON_SPECIAL_SYMBOL);
+        writeInt(symbol);
+    }
+
+    @Override
+    public void onRawText(String content, Syntax syntax)
+    {
+        writeEvent(RecordedEvent.ON_RAW_TEXT);
+        writeString(content);
+        writeSyntax(syntax);
+    }
+
+    @Override
+    public void onId(String name)
+    {
+        writeEvent(RecordedEvent.ON_ID);
+        writeString(name);
+    }
+
+    @Override
+    public void onHorizontalLine(Map<String, String> parameters)
+    {
+        write(RecordedEvent.ON_HORIZONTAL_LINE, parameters);
+    }
+
+    @Override
+    public void onEmptyLines(int count)
+    {
+        writeEvent(RecordedEvent.ON_EMPTY_LINES);
+        writeInt(count);
+    }
+
+    @Override
+    public void onVerbatim(String content, boolean isInline, Map<String, String> parameters)
+    {
+        writeEvent(RecordedEvent.ON_VERBATIM);
+        writeString(content);
+        writeBoolean(isInline);
+        writeParameters(parameters);
+    }
+
+    @Override
+    public void onImage(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        writeEvent(RecordedEvent.ON_IMAGE);
+        writeReference(reference);
+        writeBoolean(freestanding);
+        writeParameters(parameters);
+    }
+}
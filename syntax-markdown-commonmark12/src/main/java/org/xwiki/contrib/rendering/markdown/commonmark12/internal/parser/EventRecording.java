@@ -0,0 +1,424 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.ListType;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.reference.AttachmentResourceReference;
+import org.xwiki.rendering.listener.reference.DocumentResourceReference;
+import org.xwiki.rendering.listener.reference.InterWikiResourceReference;
+import org.xwiki.rendering.listener.reference.PageResourceReference;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.listener.reference.ResourceType;
+import org.xwiki.rendering.listener.reference.SpaceResourceReference;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.syntax.SyntaxType;
+
+/**
+ * Listener events recorded by an {@link EventRecorder}, which can be replayed to any {@link Listener}.
+ * <p>
+ * The recording is a single block of bytes made of a format version, a string table (the number of strings followed
+ * by the UTF-8 bytes of each of them, prefixed by their length) and the events. Each event is stored as its code
+ * followed by its arguments: integers and string table indexes are written with 7 bits per byte, strings being
+ * referenced by their index starting at 1 ({@code 0} standing for {@code null}). The bytes can be kept in any
+ * {@link ByteBuffer}, including a direct one, so that cached recordings don't have to live on the heap.
+ * <p>
+ * Replaying is thread safe, each replay reading its own view of the bytes. Note that the values of the metadata
+ * which are neither strings nor syntaxes are replayed as their string representation.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public final class EventRecording
+{
+    static final int FORMAT = 1;
+
+    static final int STRING_VALUE = 0;
+
+    static final int SYNTAX_VALUE = 1;
+
+    private static final Format[] FORMATS = Format.values();
+
+    private static final ListType[] LIST_TYPES = ListType.values();
+
+    private static final HeaderLevel[] HEADER_LEVELS = HeaderLevel.values();
+
+    private final ByteBuffer bytes;
+
+    EventRecording(byte[] bytes)
+    {
+        this.bytes = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    private EventRecording(ByteBuffer bytes)
+    {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @param bytes the bytes of a recording, as returned by {@link #toByteBuffer()}, from their position to their
+     *     limit
+     * @return the recording
+     * @throws IllegalArgumentException if the bytes are not a recording in a supported format
+     */
+    public static EventRecording wrap(ByteBuffer bytes)
+    {
+        ByteBuffer recording = bytes.slice().asReadOnlyBuffer();
+        if (!recording.hasRemaining() || recording.get(0) != FORMAT) {
+            throw new IllegalArgumentException("Unsupported event recording format");
+        }
+
+        return new EventRecording(recording);
+    }
+
+    /**
+     * @return the number of bytes of the recording
+     */
+    public int size()
+    {
+        return this.bytes.limit();
+    }
+
+    /**
+     * @return a read-only view of the bytes of the recording, e.g. to copy them to a direct buffer
+     */
+    public ByteBuffer toByteBuffer()
+    {
+        return this.bytes.duplicate();
+    }
+
+    /**
+     * Send the recorded events to the passed listener.
+     *
+     * @param listener the listener receiving the events
+     */
+    public void replay(Listener listener)
+    {
+        new Replay(this.bytes.duplicate(), listener).run();
+    }
+
+    /**
+     * The state of a single replay.
+     */
+    private static final class Replay
+    {
+        private final ByteBuffer input;
+
+        private final Listener listener;
+
+        private String[] strings;
+
+        Replay(ByteBuffer input, Listener listener)
+        {
+            this.input = input;
+            this.listener = listener;
+        }
+
+        void run()
+        {
+            // Skip the format
+            this.input.get();
+            readStrings();
+
+            while (this.input.hasRemaining()) {
+                replay(RecordedEvent.valueOf(this.input.get()));
+            }
+        }
+
+        private void readStrings()
+        {
+            this.strings = new String[readInt() + 1];
+            for (int i = 1; i < this.strings.length; i++) {
+                // The input is read-only, so its backing array (if any) is not accessible and the bytes are copied
+                byte[] bytes = new byte[readInt()];
+                this.input.get(bytes);
+                this.strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+
+        private int readInt()
+        {
+            int value = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = this.input.get();
+                value |= (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+
+            return value;
+        }
+
+        private boolean readBoolean()
+        {
+            return this.input.get() != 0;
+        }
+
+        private String readString()
+        {
+            return this.strings[readInt()];
+        }
+
+        private Map<String, String> readParameters()
+        {
+            int size = readInt();
+            if (size == 0) {
+                return Collections.emptyMap();
+            }
+
+            Map<String, String> parameters = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                parameters.put(readString(), readString());
+            }
+
+            return parameters;
+        }
+
+        private Syntax readSyntax()
+        {
+            if (!readBoolean()) {
+                return null;
+            }
+
+            SyntaxType type = new SyntaxType(readString(), readString());
+
+            return new Syntax(type, readString());
+        }
+
+        private MetaData readMetaData()
+        {
+            MetaData metadata = new MetaData();
+            int size = readInt();
+            for (int i = 0; i < size; i++) {
+                String key = readString();
+                if (this.input.get() == SYNTAX_VALUE) {
+                    metadata.addMetaData(key, readSyntax());
+                } else {
+                    metadata.addMetaData(key, readString());
+                }
+            }
+
+            return metadata;
+        }
+
+        private ResourceReference readReference()
+        {
+            ResourceType type = new ResourceType(readString());
+            String value = readString();
+
+            ResourceReference reference;
+            if (ResourceType.DOCUMENT.equals(type)) {
+                reference = new DocumentResourceReference(value);
+            } else if (ResourceType.SPACE.equals(type)) {
+                reference = new SpaceResourceReference(value);
+            } else if (ResourceType.PAGE.equals(type)) {
+                reference = new PageResourceReference(value);
+            } else if (ResourceType.ATTACHMENT.equals(type)) {
+                reference = new AttachmentResourceReference(value);
+            } else if (ResourceType.INTERWIKI.equals(type)) {
+                reference = new InterWikiResourceReference(value);
+            } else {
+                reference = new ResourceReference(value, type);
+            }
+            reference.setTyped(readBoolean());
+
+            int baseReferenceCount = readInt();
+            for (int i = 0; i < baseReferenceCount; i++) {
+                reference.addBaseReference(readString());
+            }
+            for (Map.Entry<String, String> parameter : readParameters().entrySet()) {
+                reference.setParameter(parameter.getKey(), parameter.getValue());
+            }
+
+            return reference;
+        }
+
+        private void replay(RecordedEvent event)
+        {
+            switch (event) {
+                case BEGIN_DOCUMENT:
+                    this.listener.beginDocument(readMetaData());
+                    break;
+                case END_DOCUMENT:
+                    this.listener.endDocument(readMetaData());
+                    break;
+                case BEGIN_GROUP:
+                    this.listener.beginGroup(readParameters());
+                    break;
+                case END_GROUP:
+                    this.listener.endGroup(readParameters());
+                    break;
+                case BEGIN_FORMAT:
+                    this.listener.beginFormat(FORMATS[readInt()], readParameters());
+                    break;
+                case END_FORMAT:
+                    this.listener.endFormat(FORMATS[readInt()], readParameters());
+                    break;
+                case BEGIN_PARAGRAPH:
+                    this.listener.beginParagraph(readParameters());
+                    break;
+                case END_PARAGRAPH:
+                    this.listener.endParagraph(readParameters());
+                    break;
+                case BEGIN_LIST:
+                    this.listener.beginList(LIST_TYPES[readInt()], readParameters());
+                    break;
+                case END_LIST:
+                    this.listener.endList(LIST_TYPES[readInt()], readParameters());
+                    break;
+                case BEGIN_LIST_ITEM:
+                    this.listener.beginListItem();
+                    break;
+                case END_LIST_ITEM:
+                    this.listener.endListItem();
+                    break;
+                case BEGIN_DEFINITION_LIST:
+                    this.listener.beginDefinitionList(readParameters());
+                    break;
+                case END_DEFINITION_LIST:
+                    this.listener.endDefinitionList(readParameters());
+                    break;
+                case BEGIN_DEFINITION_TERM:
+                    this.listener.beginDefinitionTerm();
+                    break;
+                case END_DEFINITION_TERM:
+                    this.listener.endDefinitionTerm();
+                    break;
+                case BEGIN_DEFINITION_DESCRIPTION:
+                    this.listener.beginDefinitionDescription();
+                    break;
+                case END_DEFINITION_DESCRIPTION:
+                    this.listener.endDefinitionDescription();
+                    break;
+                case BEGIN_QUOTATION:
+                    this.listener.beginQuotation(readParameters());
+                    break;
+                case END_QUOTATION:
+                    this.listener.endQuotation(readParameters());
+                    break;
+                case BEGIN_QUOTATION_LINE:
+                    this.listener.beginQuotationLine();
+                    break;
+                case END_QUOTATION_LINE:
+                    this.listener.endQuotationLine();
+                    break;
+                case BEGIN_SECTION:
+                    this.listener.beginSection(readParameters());
+                    break;
+                case END_SECTION:
+                    this.listener.endSection(readParameters());
+                    break;
+                case BEGIN_HEADER:
+                    this.listener.beginHeader(HEADER_LEVELS[readInt()], readString(), readParameters());
+                    break;
+                case END_HEADER:
+                    this.listener.endHeader(HEADER_LEVELS[readInt()], readString(), readParameters());
+                    break;
+                case BEGIN_TABLE:
+                    this.listener.beginTable(readParameters());
+                    break;
+                case END_TABLE:
+                    this.listener.endTable(readParameters());
+                    break;
+                case BEGIN_TABLE_ROW:
+                    this.listener.beginTableRow(readParameters());
+                    break;
+                case END_TABLE_ROW:
+                    this.listener.endTableRow(readParameters());
+                    break;
+                case BEGIN_TABLE_CELL:
+                    this.listener.beginTableCell(readParameters());
+                    break;
+                case END_TABLE_CELL:
+                    this.listener.endTableCell(readParameters());
+                    break;
+                case BEGIN_TABLE_HEAD_CELL:
+                    this.listener.beginTableHeadCell(readParameters());
+                    break;
+                case END_TABLE_HEAD_CELL:
+                    this.listener.endTableHeadCell(readParameters());
+                    break;
+                case BEGIN_LINK:
+                    this.listener.beginLink(readReference(), readBoolean(), readParameters());
+                    break;
+                case END_LINK:
+                    this.listener.endLink(readReference(), readBoolean(), readParameters());
+                    break;
+                case BEGIN_MACRO_MARKER:
+                    this.listener.beginMacroMarker(readString(), readParameters(), readString(), readBoolean());
+                    break;
+                case END_MACRO_MARKER:
+                    this.listener.endMacroMarker(readString(), readParameters(), readString(), readBoolean());
+                    break;
+                case BEGIN_METADATA:
+                    this.listener.beginMetaData(readMetaData());
+                    break;
+                case END_METADATA:
+                    this.listener.endMetaData(readMetaData());
+                    break;
+                case ON_NEW_LINE:
+                    this.listener.onNewLine();
+                    break;
+                case ON_MACRO:
+                    this.listener.onMacro(readString(), readParameters(), readString(), readBoolean());
+                    break;
+                case ON_WORD:
+                    this.listener.onWord(readString());
+                    break;
+                case ON_SPACE:
+                    this.listener.onSpace();
+                    break;
+                case ON_SPECIAL_SYMBOL:
+                    this.listener.onSpecialSymbol((char) readInt());
+                    break;
+                case ON_RAW_TEXT:
+                    this.listener.onRawText(readString(), readSyntax());
+                    break;
+                case ON_ID:
+                    this.listener.onId(readString());
+                    break;
+                case ON_HORIZONTAL_LINE:
+                    this.listener.onHorizontalLine(readParameters());
+                    break;
+                case ON_EMPTY_LINES:
+                    this.listener.onEmptyLines(readInt());
+                    break;
+                case ON_VERBATIM:
+                    this.listener.onVerbatim(readString(), readBoolean(), readParameters());
+                    break;
+                case ON_IMAGE:
+                    this.listener.onImage(readReference(), readBoolean(), readParameters());
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported recorded event [" + event + "]");
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of bytes in which an {@link EventRecorder} writes its recording.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+final class EventRecordingOutput
+{
+    private byte[] bytes;
+
+    private int size;
+
+    /**
+     * @param capacity the initial number of bytes that can be written without growing the array
+     */
+    EventRecordingOutput(int capacity)
+    {
+        this.bytes = new byte[capacity];
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * @return a copy of the bytes written
+     */
+    byte[] toByteArray()
+    {
+        return Arrays.copyOf(this.bytes, this.size);
+    }
+
+    void writeByte(int value)
+    {
+        ensureCapacity(1);
+        this.bytes[this.size++] = (byte) value;
+    }
+
+    void writeBytes(byte[] values, int length)
+    {
+        ensureCapacity(length);
+        System.arraycopy(values, 0, this.bytes, this.size, length);
+        this.size += length;
+    }
+
+    /**
+     * @param output the output whose bytes to append to this one
+     */
+    void writeBytes(EventRecordingOutput output)
+    {
+        writeBytes(output.bytes, output.size);
+    }
+
+    /**
+     * Write a positive integer using 7 bits per byte, the highest bit telling if more bytes follow.
+     *
+     * @param value the integer to write
+     */
+    void writeInt(int value)
+    {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        writeByte(remaining);
+    }
+
+    private void ensureCapacity(int length)
+    {
+        if (this.size + length > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.size + length));
+        }
+    }
+}
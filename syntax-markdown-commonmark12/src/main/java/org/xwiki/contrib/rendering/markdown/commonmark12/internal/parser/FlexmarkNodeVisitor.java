@@ -20,13 +20,56 @@
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.util.IdGenerator;
 
+import com.vladsch.flexmark.util.ast.Document;
 import com.vladsch.flexmark.util.ast.Node;
 
 @Role
 public interface FlexmarkNodeVisitor
 {
     void visit(Node node, Listener listener, Syntax syntax);
+
+    /**
+     * Build the XDOM of a document directly, without going through a chain of listeners.
+     *
+     * @param node the document to convert
+     * @param syntax the syntax of the document
+     * @return the XDOM, identical to the one generated from the events sent by {@link #visit(Node, Listener, Syntax)}
+     * @since 8.9.2
+     */
+    XDOM buildXDOM(Node node, Syntax syntax);
+
+    /**
+     * Build the XDOM of a document directly along with the index of its sections, optionally keeping the source range
+     * of each block.
+     *
+     * @param node the document to convert
+     * @param syntax the syntax of the document
+     * @param sourceRanges {@code true} to return the {@link MarkdownSourceRanges} of the blocks with the XDOM
+     * @return the XDOM, the index of its sections and, if requested, the source ranges of its blocks
+     * @since 8.9.2
+     */
+    MarkdownParseResult buildIndexedXDOM(Node node, Syntax syntax, boolean sourceRanges);
+
+    /**
+     * @param budget the limits enforced while visiting the next documents and blocks, or {@code null} for no limit
+     * @since 8.9.2
+     */
+    void setBudget(ParseBudget budget);
+
+    /**
+     * Generate the events for a single top level block of a document, without the document and section events
+     * which are the responsibility of the caller.
+     *
+     * @param document the document containing the block, used to resolve link and image references
+     * @param node the top level block to visit
+     * @param listener the listener receiving the events of the block
+     * @param idGenerator the generator to use for header ids, shared between the blocks of the same document
+     * @since 8.9.2
+     */
+    void visitBlock(Document document, Node node, Listener listener, IdGenerator idGenerator);
 }
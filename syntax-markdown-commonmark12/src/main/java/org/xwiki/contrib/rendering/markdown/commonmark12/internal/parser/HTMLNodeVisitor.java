@@ -19,10 +19,8 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
-import java.util.Deque;
-
-import org.apache.commons.lang3.StringUtils;
-import org.xwiki.rendering.listener.Listener;
+import java.util.Arrays;
+import java.util.List;
 
 import com.vladsch.flexmark.ast.HtmlBlock;
 import com.vladsch.flexmark.ast.HtmlCommentBlock;
@@ -32,9 +30,8 @@ import com.vladsch.flexmark.ast.HtmlInlineComment;
 import com.vladsch.flexmark.html.HtmlRenderer;
 import com.vladsch.flexmark.parser.Parser;
 import com.vladsch.flexmark.util.ast.Node;
-import com.vladsch.flexmark.util.ast.NodeVisitor;
-import com.vladsch.flexmark.util.ast.VisitHandler;
 import com.vladsch.flexmark.util.data.MutableDataSet;
+import com.vladsch.flexmark.util.sequence.BasedSequence;
 
 /**
  * Handle HTML events.
@@ -44,37 +41,65 @@ import com.vladsch.flexmark.util.data.MutableDataSet;
  */
 public class HTMLNodeVisitor extends AbstractNodeVisitor
 {
-    static <V extends HTMLNodeVisitor> VisitHandler<?>[] VISIT_HANDLERS(final V visitor)
-    {
-        return new VisitHandler<?>[]{
-                new VisitHandler<>(HtmlInline.class, node -> visitor.visit(node)),
-                new VisitHandler<>(HtmlBlock.class, node -> visitor.visit(node)),
-                new VisitHandler<>(HtmlCommentBlock.class, node -> visitor.visit(node)),
-                new VisitHandler<>(HtmlEntity.class, node -> visitor.visit(node)),
-                new VisitHandler<>(HtmlInlineComment.class, node -> visitor.visit(node))
-        };
-    }
+    static final List<NodeHandler<?, HTMLNodeVisitor>> NODE_HANDLERS = Arrays.asList(
+        NodeHandler.of(HTMLNodeVisitor.class, HtmlInline.class, HTMLNodeVisitor::visit),
+        NodeHandler.of(HTMLNodeVisitor.class, HtmlBlock.class, HTMLNodeVisitor::visit),
+        NodeHandler.of(HTMLNodeVisitor.class, HtmlCommentBlock.class, HTMLNodeVisitor::visit),
+        NodeHandler.of(HTMLNodeVisitor.class, HtmlEntity.class, HTMLNodeVisitor::visit),
+        NodeHandler.of(HTMLNodeVisitor.class, HtmlInlineComment.class, HTMLNodeVisitor::visit)
+    );
+
+    private static final String PARAGRAPH_START = "<p>";
+
+    private static final String PARAGRAPH_END = "</p>\n";
+
+    /**
+     * Parses the content of inline HTML nodes. We already know we are in an inline context, so block parsing is
+     * disabled. Flexmark parsers are thread safe so it's shared by all the visitors.
+     */
+    private static final Parser INLINE_PARSER =
+        Parser.builder(new MutableDataSet().set(Parser.HTML_BLOCK_PARSER, false)).build();
+
+    /**
+     * Renders the parsed content of inline HTML nodes. Flexmark renderers are thread safe so it's shared by all the
+     * visitors.
+     */
+    private static final HtmlRenderer INLINE_RENDERER = HtmlRenderer.builder().build();
+
+    /**
+     * Reused for rendering each inline HTML node, the visitor being used by a single thread at a time.
+     */
+    private final StringBuilder inlineHTML = new StringBuilder();
 
-    public HTMLNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners)
+    public HTMLNodeVisitor(NodeVisitorContext context)
     {
-        super(visitor, listeners);
+        super(context);
     }
 
     public void visit(HtmlInline node)
     {
+        BasedSequence html = node.getChars();
+        if (isSingleTag(html)) {
+            // A lone tag doesn't contain any Markdown content and would be rendered as is.
+            generateHTMLMacro(html.toString(), true);
+            return;
+        }
+
         // When we have an inline HTML macro with its raw content, we need to parse it and render it as HTML to
         // support possibly embedded Markdown content.
-        MutableDataSet options = new MutableDataSet();
-        // We already know we are in an inline context, so we disable block parsing.
-        options.set(Parser.HTML_BLOCK_PARSER, false);
-        Parser parser = Parser.builder(options).build();
-        Node parsedNode = parser.parse(node.getChars().toString());
-
-        HtmlRenderer renderer = HtmlRenderer.builder().build();
-        String outputHtml = renderer.render(parsedNode);
+        Node parsedNode = INLINE_PARSER.parse(html.toString());
+        this.inlineHTML.setLength(0);
+        INLINE_RENDERER.render(parsedNode, this.inlineHTML);
 
-        // Parsing the node on its own will put in a paragraph, so we remove <p></p> tags and linebreak from the output.
-        generateHTMLMacro(StringUtils.removeEnd(StringUtils.removeStart(outputHtml, "<p>"), "</p>\n"), true);
+        // Parsing the node on its own will put in a paragraph, so we leave out the <p></p> tags and linebreak from
+        // the output.
+        int start = startsWith(this.inlineHTML, PARAGRAPH_START, 0) ? PARAGRAPH_START.length() : 0;
+        int end = this.inlineHTML.length();
+        if (end - start >= PARAGRAPH_END.length()
+            && startsWith(this.inlineHTML, PARAGRAPH_END, end - PARAGRAPH_END.length())) {
+            end -= PARAGRAPH_END.length();
+        }
+        generateHTMLMacro(this.inlineHTML.substring(start, end), true);
     }
 
     public void visit(HtmlBlock node)
@@ -103,4 +128,36 @@ public class HTMLNodeVisitor extends AbstractNodeVisitor
     {
         generateHTMLMacro(node.getChars().toString(), true);
     }
+
+    /**
+     * @param html the content of an inline HTML node
+     * @return {@code true} if the content is a single tag on a single line, e.g. {@code <span class="name">}
+     */
+    private static boolean isSingleTag(BasedSequence html)
+    {
+        int last = html.length() - 1;
+        if (last < 1 || html.charAt(0) != '<' || html.charAt(last) != '>') {
+            return false;
+        }
+        for (int i = 1; i < last; i++) {
+            char c = html.charAt(i);
+            if (c == '<' || c == '>' || c == '\n' || c == '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(StringBuilder builder, String prefix, int offset)
+    {
+        if (offset < 0 || offset + prefix.length() > builder.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (builder.charAt(offset + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -19,21 +19,18 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
+import java.util.List;
 
 import org.xwiki.rendering.listener.CompositeListener;
 import org.xwiki.rendering.listener.HeaderLevel;
-import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.listener.QueueListener;
 import org.xwiki.rendering.renderer.PrintRenderer;
 import org.xwiki.rendering.renderer.PrintRendererFactory;
 import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
-import org.xwiki.rendering.util.IdGenerator;
 
 import com.vladsch.flexmark.ast.Heading;
-import com.vladsch.flexmark.util.ast.NodeVisitor;
-import com.vladsch.flexmark.util.ast.VisitHandler;
 
 /**
  * Handle heading events.
@@ -43,23 +40,15 @@ import com.vladsch.flexmark.util.ast.VisitHandler;
  */
 public class HeadingNodeVisitor extends AbstractNodeVisitor
 {
-    static <V extends HeadingNodeVisitor> VisitHandler<?>[] VISIT_HANDLERS(final V visitor)
-    {
-        return new VisitHandler<?>[]{
-                new VisitHandler<>(Heading.class, node -> visitor.visit(node))
-        };
-    }
-
-    /**
-     * Used to generate a unique id for Headings.
-     */
-    private IdGenerator idGenerator = new IdGenerator();
+    static final List<NodeHandler<?, HeadingNodeVisitor>> NODE_HANDLERS = Arrays.asList(
+        NodeHandler.of(HeadingNodeVisitor.class, Heading.class, HeadingNodeVisitor::visit)
+    );
 
     private PrintRendererFactory plainRendererFactory;
 
-    public HeadingNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners, PrintRendererFactory plainRendererFactory)
+    public HeadingNodeVisitor(NodeVisitorContext context, PrintRendererFactory plainRendererFactory)
     {
-        super(visitor, listeners);
+        super(context);
         this.plainRendererFactory = plainRendererFactory;
     }
 
@@ -83,7 +72,12 @@ public class HeadingNodeVisitor extends AbstractNodeVisitor
         // Restore default listener
         popListener();
 
-        String id = this.idGenerator.generateUniqueId("H", plainRenderer.getPrinter().toString());
+        String id = getContext().getIdGenerator().generateUniqueId("H", plainRenderer.getPrinter().toString());
+
+        MarkdownSectionIndex.Builder sectionIndex = getContext().getSectionIndex();
+        if (sectionIndex != null) {
+            sectionIndex.setHeaderSource(node.getStartOffset(), node.getEndOffset());
+        }
 
         HeaderLevel level = HeaderLevel.parseInt(node.getLevel());
         getListener().beginHeader(level, id, Collections.emptyMap());
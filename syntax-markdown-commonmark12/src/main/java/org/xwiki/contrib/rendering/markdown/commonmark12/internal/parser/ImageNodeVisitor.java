@@ -19,15 +19,13 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
-import org.xwiki.component.manager.ComponentLookupException;
-import org.xwiki.component.manager.ComponentManager;
-import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.listener.reference.ResourceType;
 import org.xwiki.rendering.parser.ResourceReferenceParser;
@@ -38,8 +36,6 @@ import com.vladsch.flexmark.ast.Image;
 import com.vladsch.flexmark.ast.ImageRef;
 import com.vladsch.flexmark.ast.Reference;
 import com.vladsch.flexmark.ext.wikilink.WikiImage;
-import com.vladsch.flexmark.util.ast.NodeVisitor;
-import com.vladsch.flexmark.util.ast.VisitHandler;
 
 /**
  * Handle image events.
@@ -49,26 +45,25 @@ import com.vladsch.flexmark.util.ast.VisitHandler;
  */
 public class ImageNodeVisitor extends AbstractNodeVisitor
 {
-    static <V extends ImageNodeVisitor> VisitHandler<?>[] VISIT_HANDLERS(final V visitor)
-    {
-        return new VisitHandler<?>[] {
-            new VisitHandler<>(Image.class, node -> visitor.visit(node)),
-            new VisitHandler<>(ImageRef.class, node -> visitor.visit(node)),
-            new VisitHandler<>(WikiImage.class, node -> visitor.visit(node))
-        };
-    }
+    static final List<NodeHandler<?, ImageNodeVisitor>> NODE_HANDLERS = Arrays.asList(
+        NodeHandler.of(ImageNodeVisitor.class, Image.class, ImageNodeVisitor::visit),
+        NodeHandler.of(ImageNodeVisitor.class, ImageRef.class, ImageNodeVisitor::visit),
+        NodeHandler.of(ImageNodeVisitor.class, WikiImage.class, ImageNodeVisitor::visit)
+    );
+
+    private static final String ALT_ATTRIBUTE = "alt";
 
     private ResourceReferenceParser imageResourceReferenceParser;
 
-    private ComponentManager componentManager;
+    private URILabelGeneratorResolver uriLabelGeneratorResolver;
 
-    public ImageNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners,
-        ResourceReferenceParser imageResourceReferenceParser, ComponentManager componentManager,
+    public ImageNodeVisitor(NodeVisitorContext context,
+        ResourceReferenceParser imageResourceReferenceParser, URILabelGeneratorResolver uriLabelGeneratorResolver,
         PrintRendererFactory plainRendererFactory)
     {
-        super(visitor, listeners, plainRendererFactory);
+        super(context, plainRendererFactory);
         this.imageResourceReferenceParser = imageResourceReferenceParser;
-        this.componentManager = componentManager;
+        this.uriLabelGeneratorResolver = uriLabelGeneratorResolver;
     }
 
     public void visit(Image node)
@@ -77,19 +72,22 @@ public class ImageNodeVisitor extends AbstractNodeVisitor
         ResourceReference reference = new ResourceReference(node.getUrl().toString(), ResourceType.URL);
         reference.setTyped(false);
 
-        Map<String, String> parameters = new HashMap<>();
+        Map<String, String> parameters;
 
         // Handle alt text. Note that in order to have the same behavior as the XWiki Syntax 2.0+ we don't add the alt
         // parameter if its content is the same as the one that would be automatically generated by the XHTML Renderer.
         String computedAltValue = computeAltAttributeValue(reference);
         String extractedAltValue = extractText(node);
         if (StringUtils.isNotEmpty(extractedAltValue) && !extractedAltValue.equals(computedAltValue)) {
-            parameters.put("alt", extractedAltValue);
+            parameters = new HashMap<>();
+            parameters.put(ALT_ATTRIBUTE, extractedAltValue);
+            // Handle optional title
+            addTitle(parameters, node.getTitle().toString());
+        } else {
+            // Handle optional title
+            parameters = ParameterMaps.getOptionalParameter(TITLE_ATTRIBUTE, node.getTitle().toString());
         }
 
-        // Handle optional title
-        addTitle(parameters, node.getTitle().toString());
-
         getListener().onImage(reference, false, parameters);
     }
 
@@ -107,10 +105,8 @@ public class ImageNodeVisitor extends AbstractNodeVisitor
             resourceReference.setTyped(false);
 
             // Handle an optional image title
-            Map<String, String> parameters = Collections.emptyMap();
-            if (StringUtils.isNotEmpty(reference.getTitle())) {
-                parameters = Collections.singletonMap(TITLE_ATTRIBUTE, reference.getTitle().toString());
-            }
+            Map<String, String> parameters =
+                ParameterMaps.getOptionalParameter(TITLE_ATTRIBUTE, reference.getTitle().toString());
 
             getListener().onImage(resourceReference, false, parameters);
         }
@@ -119,7 +115,7 @@ public class ImageNodeVisitor extends AbstractNodeVisitor
     public void visit(WikiImage node)
     {
         ResourceReference reference = this.imageResourceReferenceParser.parse(node.getLink().toString());
-        Map<String, String> parameters = new HashMap<>();
+        Map<String, String> parameters = Collections.emptyMap();
 
         // Handle alt text. Note that in order to have the same behavior as the XWiki Syntax 2.0+ we don't add the alt
         // parameter if its content is the same as the one that would be automatically generated by the XHTML Renderer.
@@ -127,7 +123,7 @@ public class ImageNodeVisitor extends AbstractNodeVisitor
         if(node.getText() != null) {
             String extractedAltValue = node.getText().toString();
             if (StringUtils.isNotEmpty(extractedAltValue) && !extractedAltValue.equals(computedAltValue)) {
-                parameters.put("alt", extractedAltValue);
+                parameters = Collections.singletonMap(ALT_ATTRIBUTE, extractedAltValue);
             }
         }
 
@@ -141,11 +137,10 @@ public class ImageNodeVisitor extends AbstractNodeVisitor
     private String computeAltAttributeValue(ResourceReference reference)
     {
         String label;
-        try {
-            URILabelGenerator uriLabelGenerator = this.componentManager.getInstance(URILabelGenerator.class,
-                reference.getType().getScheme());
+        URILabelGenerator uriLabelGenerator = this.uriLabelGeneratorResolver.resolve(reference.getType().getScheme());
+        if (uriLabelGenerator != null) {
             label = uriLabelGenerator.generateLabel(reference);
-        } catch (ComponentLookupException e) {
+        } else {
             label = reference.getReference();
         }
         return label;
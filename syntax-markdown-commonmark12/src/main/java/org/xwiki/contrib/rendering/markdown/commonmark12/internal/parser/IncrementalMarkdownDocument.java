@@ -0,0 +1,495 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.SectionBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.internal.parser.XDOMGeneratorListener;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.util.IdGenerator;
+
+import com.vladsch.flexmark.ext.abbreviation.AbbreviationExtension;
+import com.vladsch.flexmark.parser.Parser;
+import com.vladsch.flexmark.util.ast.Document;
+import com.vladsch.flexmark.util.ast.Node;
+
+/**
+ * A Markdown document which is parsed again incrementally when edited.
+ * <p>
+ * The document keeps, for each top level flexmark block, its position in the source and the XDOM blocks generated
+ * for it. On edit, only the top level blocks touched by the edit are parsed again, along with their direct neighbours
+ * which are used to verify that the edit didn't change how the surrounding content is parsed (e.g. an opened fenced
+ * code block swallowing what follows it). When the neighbours don't match, the parsed range is widened and, as a last
+ * resort, the whole document is parsed again. Documents containing link reference or abbreviation definitions are
+ * always parsed fully since those definitions affect content anywhere in the document.
+ * <p>
+ * The XDOM blocks of unchanged top level blocks are reused in the new XDOM, and header ids already generated are kept
+ * so that they remain stable while editing. Thus a returned XDOM must not be used anymore after the next edit, or must
+ * be cloned. This class is not thread safe.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public class IncrementalMarkdownDocument
+{
+    /**
+     * Number of times the range parsed again is widened before falling back to parsing the whole document.
+     */
+    private static final int MAX_WIDENING = 8;
+
+    private final Supplier<Parser> parserSupplier;
+
+    private final Supplier<FlexmarkNodeVisitor> visitorBorrower;
+
+    private final Consumer<FlexmarkNodeVisitor> visitorReleaser;
+
+    private final Supplier<ParseBudget> budgetSupplier;
+
+    private final Consumer<ParseLimit> rejectionHandler;
+
+    private final Syntax syntax;
+
+    private String source;
+
+    /**
+     * The flexmark parser used to parse the current blocks, to detect configuration changes.
+     */
+    private Parser parser;
+
+    /**
+     * The top level blocks, or {@code null} when the document cannot be parsed incrementally.
+     */
+    private List<BlockRecord> records;
+
+    private XDOM xdom;
+
+    private MarkdownSectionIndex sectionIndex;
+
+    /**
+     * A top level flexmark block along with its position in the current source and the XDOM blocks generated for it.
+     */
+    private static final class BlockRecord
+    {
+        private final Node node;
+
+        private int start;
+
+        private int end;
+
+        private final List<Block> blocks;
+
+        private final List<String> headerIds;
+
+        BlockRecord(Node node, int start, int end, List<Block> blocks, List<String> headerIds)
+        {
+            this.node = node;
+            this.start = start;
+            this.end = end;
+            this.blocks = blocks;
+            this.headerIds = headerIds;
+        }
+
+        boolean matches(Node otherNode, int otherStart, int otherEnd)
+        {
+            return this.node.getClass() == otherNode.getClass() && this.start == otherStart && this.end == otherEnd;
+        }
+    }
+
+    /**
+     * @param parserSupplier provides the flexmark parser matching the current configuration
+     * @param visitorBorrower takes a visitor from the idle visitors of the stream parser, for the duration of an edit
+     * @param visitorReleaser gives back a borrowed visitor to the stream parser
+     * @param budgetSupplier starts the budget of an edit, which may be {@code null} when no limit is configured
+     * @param rejectionHandler notified of the limit exceeded by a rejected edit
+     * @param syntax the syntax of the generated XDOMs
+     */
+    IncrementalMarkdownDocument(Supplier<Parser> parserSupplier, Supplier<FlexmarkNodeVisitor> visitorBorrower,
+        Consumer<FlexmarkNodeVisitor> visitorReleaser, Supplier<ParseBudget> budgetSupplier,
+        Consumer<ParseLimit> rejectionHandler, Syntax syntax)
+    {
+        this.parserSupplier = parserSupplier;
+        this.visitorBorrower = visitorBorrower;
+        this.visitorReleaser = visitorReleaser;
+        this.budgetSupplier = budgetSupplier;
+        this.rejectionHandler = rejectionHandler;
+        this.syntax = syntax;
+    }
+
+    /**
+     * @return the current Markdown content
+     */
+    public String getSource()
+    {
+        return this.source;
+    }
+
+    /**
+     * @return the XDOM of the current Markdown content
+     */
+    public XDOM getXDOM()
+    {
+        return this.xdom;
+    }
+
+    /**
+     * @return the index of the sections of the current Markdown content
+     */
+    public MarkdownSectionIndex getSectionIndex()
+    {
+        return this.sectionIndex;
+    }
+
+    /**
+     * Replace the whole content, parsing again only the range which differs from the current content.
+     *
+     * @param newSource the new Markdown content
+     * @return the XDOM of the new content
+     * @throws ParseException if the content fails to be parsed
+     */
+    public XDOM update(String newSource) throws ParseException
+    {
+        if (this.source == null) {
+            this.source = newSource;
+            // There are no records yet so the whole content is parsed
+            parseEdit(0, 0, 0);
+            return this.xdom;
+        }
+
+        int maxCommon = Math.min(this.source.length(), newSource.length());
+        int prefix = 0;
+        while (prefix < maxCommon && this.source.charAt(prefix) == newSource.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < maxCommon - prefix && this.source.charAt(this.source.length() - suffix - 1)
+            == newSource.charAt(newSource.length() - suffix - 1))
+        {
+            suffix++;
+        }
+
+        return replace(prefix, this.source.length() - prefix - suffix,
+            newSource.substring(prefix, newSource.length() - suffix));
+    }
+
+    /**
+     * Replace a range of the content.
+     *
+     * @param offset the start of the replaced range
+     * @param length the length of the replaced range
+     * @param replacement the new content of the range
+     * @return the XDOM of the new content
+     * @throws ParseException if the content fails to be parsed
+     */
+    public XDOM replace(int offset, int length, String replacement) throws ParseException
+    {
+        if (offset < 0 || length < 0 || offset + length > this.source.length()) {
+            throw new IllegalArgumentException(String.format("Invalid range [%d, %d] for a content of length [%d]",
+                offset, offset + length, this.source.length()));
+        }
+
+        String oldSource = this.source;
+        this.source = new StringBuilder(oldSource.length() - length + replacement.length())
+            .append(oldSource, 0, offset)
+            .append(replacement)
+            .append(oldSource, offset + length, oldSource.length())
+            .toString();
+
+        parseEdit(offset, offset + length, replacement.length() - length);
+
+        return this.xdom;
+    }
+
+    /**
+     * Parse the current content again after an edit, incrementally when possible, with a single visitor borrowed from
+     * the stream parser. The configured {@link ParseLimit}s apply to the whole content for its size, and to the blocks
+     * parsed again otherwise.
+     */
+    private void parseEdit(int editStart, int editEnd, int delta) throws ParseException
+    {
+        ParseBudget budget = this.budgetSupplier.get();
+        FlexmarkNodeVisitor visitor = null;
+        try {
+            if (budget != null) {
+                budget.checkDocumentSize(this.source.length());
+            }
+
+            visitor = this.visitorBorrower.get();
+            visitor.setBudget(budget);
+            Parser currentParser = this.parserSupplier.get();
+            if (this.records == null || currentParser != this.parser
+                || !parseRange(editStart, editEnd, delta, visitor))
+            {
+                parseFully(currentParser, visitor);
+            }
+        } catch (ParseLimitExceededException e) {
+            // The blocks don't match the edited content anymore, so the next edit parses the whole content again.
+            this.records = null;
+            this.rejectionHandler.accept(e.getLimit());
+            throw new ParseException(e.getMessage(), e);
+        } finally {
+            if (visitor != null) {
+                visitor.setBudget(null);
+                this.visitorReleaser.accept(visitor);
+            }
+        }
+    }
+
+    private void parseFully(Parser currentParser, FlexmarkNodeVisitor visitor) throws ParseException
+    {
+        this.parser = currentParser;
+        Document document = parse(this.source);
+
+        this.records = hasDefinitions(document) ? null
+            : createRecords(document, getChildren(document), 0, new ReservedIdGenerator(Collections.emptySet()),
+                visitor);
+
+        if (this.records != null) {
+            assemble();
+        } else {
+            // Fall back on the standard parsing, the document will be parsed fully on each edit.
+            MarkdownParseResult result = visitor.buildIndexedXDOM(document, this.syntax, false);
+            this.xdom = result.getXDOM();
+            this.sectionIndex = result.getSectionIndex();
+        }
+    }
+
+    /**
+     * Parse again the top level blocks touched by an edit.
+     *
+     * @param editStart the start of the edited range, in the old content
+     * @param editEnd the end of the edited range, in the old content
+     * @param delta the difference of length between the new and the old content
+     * @return {@code false} if the edit cannot be handled incrementally
+     */
+    private boolean parseRange(int editStart, int editEnd, int delta, FlexmarkNodeVisitor visitor)
+        throws ParseException
+    {
+        int size = this.records.size();
+        int first = 0;
+        while (first < size && this.records.get(first).end < editStart) {
+            first++;
+        }
+        // A block starting right at the end of the edit is not modified, it's checked like the following blocks.
+        int last = size - 1;
+        while (last >= 0 && this.records.get(last).start >= editEnd) {
+            last--;
+        }
+
+        // The unchanged blocks right before and after the touched ones are parsed again too, in order to verify that
+        // they still start and end at the same place, i.e. that the edit didn't merge them with the touched blocks.
+        int before = first - 1;
+        int after = last + 1;
+        for (int i = 0; i < MAX_WIDENING && (before >= 0 || after < size); i++) {
+            int windowStart = before < 0 ? 0 : this.records.get(before).start;
+            int windowEnd = after >= size ? this.source.length() : this.records.get(after).end + delta;
+            Document window = parse(this.source.substring(windowStart, windowEnd));
+            if (hasDefinitions(window)) {
+                return false;
+            }
+
+            List<Node> nodes = getChildren(window);
+            boolean beforeMatches = before < 0 || (!nodes.isEmpty() && this.records.get(before).matches(
+                nodes.get(0), nodes.get(0).getStartOffset() + windowStart, nodes.get(0).getEndOffset() + windowStart));
+            Node lastNode = nodes.isEmpty() ? null : nodes.get(nodes.size() - 1);
+            boolean afterMatches = after >= size || (lastNode != null && nodes.size() > (before < 0 ? 0 : 1)
+                && this.records.get(after).matches(lastNode, lastNode.getStartOffset() + windowStart - delta,
+                lastNode.getEndOffset() + windowStart - delta));
+
+            if (beforeMatches && afterMatches) {
+                return splice(window, nodes, windowStart, before, after, delta, visitor);
+            }
+
+            before = beforeMatches ? before : before - 1;
+            after = afterMatches ? after : after + 1;
+        }
+
+        return false;
+    }
+
+    private boolean splice(Document window, List<Node> nodes, int windowStart, int before, int after, int delta,
+        FlexmarkNodeVisitor visitor)
+    {
+        int size = this.records.size();
+        List<BlockRecord> kept = this.records.subList(0, before + 1);
+        List<BlockRecord> shifted = this.records.subList(after, size);
+
+        // Keep the ids of the unchanged headers, the new headers get ids which don't collide with them.
+        Set<String> reservedIds = new HashSet<>();
+        collectHeaderIds(kept, reservedIds);
+        collectHeaderIds(shifted, reservedIds);
+
+        int fromIndex = before < 0 ? 0 : 1;
+        int toIndex = after >= size ? nodes.size() : nodes.size() - 1;
+        List<BlockRecord> changed = createRecords(window, nodes.subList(fromIndex, toIndex), windowStart,
+            new ReservedIdGenerator(reservedIds), visitor);
+        if (changed == null) {
+            return false;
+        }
+
+        List<BlockRecord> newRecords = new ArrayList<>(kept.size() + changed.size() + shifted.size());
+        newRecords.addAll(kept);
+        newRecords.addAll(changed);
+        for (BlockRecord record : shifted) {
+            record.start += delta;
+            record.end += delta;
+            newRecords.add(record);
+        }
+        this.records = newRecords;
+        assemble();
+
+        return true;
+    }
+
+    /**
+     * @return the records of the passed blocks, or {@code null} if some of them contain headers which are not at the
+     *         top level (e.g. in a quote), which the section generation done by {@link #assemble()} doesn't support
+     */
+    private List<BlockRecord> createRecords(Document document, List<Node> nodes, int shift, IdGenerator idGenerator,
+        FlexmarkNodeVisitor visitor)
+    {
+        ClassBlockMatcher headerMatcher = new ClassBlockMatcher(HeaderBlock.class);
+
+        List<BlockRecord> result = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            XDOMGeneratorListener listener = new XDOMGeneratorListener();
+            listener.beginDocument(MetaData.EMPTY);
+            visitor.visitBlock(document, node, listener, idGenerator);
+            listener.endDocument(MetaData.EMPTY);
+            XDOM blockXDOM = listener.getXDOM();
+
+            List<Block> blocks = new ArrayList<>(blockXDOM.getChildren());
+            List<String> headerIds = new ArrayList<>();
+            for (Block block : blocks) {
+                if (block instanceof HeaderBlock) {
+                    headerIds.add(((HeaderBlock) block).getId());
+                }
+            }
+            if (blockXDOM.getBlocks(headerMatcher, Block.Axes.DESCENDANT).size() != headerIds.size()) {
+                return null;
+            }
+
+            result.add(new BlockRecord(node, node.getStartOffset() + shift, node.getEndOffset() + shift, blocks,
+                headerIds));
+        }
+
+        return result;
+    }
+
+    /**
+     * Generate the sections in the same way as {@link SectionListener} does and put all the blocks together, indexing
+     * the sections.
+     */
+    private void assemble()
+    {
+        Set<String> headerIds = new HashSet<>();
+        collectHeaderIds(this.records, headerIds);
+
+        MarkdownSectionIndex.Builder indexBuilder = new MarkdownSectionIndex.Builder();
+        indexBuilder.setSourceLength(this.source.length());
+
+        List<Block> children = new ArrayList<>();
+        Deque<SectionBlock> sections = new ArrayDeque<>();
+        for (BlockRecord record : this.records) {
+            for (Block block : record.blocks) {
+                if (block instanceof HeaderBlock) {
+                    // A header is a top level block on its own
+                    HeaderBlock header = (HeaderBlock) block;
+                    indexBuilder.setHeaderSource(record.start, record.end);
+                    int level = header.getLevel().getAsInt();
+                    while (sections.size() > level - 1) {
+                        sections.pop();
+                        indexBuilder.endSection();
+                    }
+                    SectionBlock section = new SectionBlock(Collections.emptyList());
+                    addBlock(section, children, sections);
+                    sections.push(section);
+                    indexBuilder.beginSection(level, header.getId());
+                }
+                addBlock(block, children, sections);
+            }
+        }
+        while (!sections.isEmpty()) {
+            sections.pop();
+            indexBuilder.endSection();
+        }
+
+        this.xdom = new XDOM(children, new ReservedIdGenerator(headerIds),
+            new MetaData(Collections.singletonMap(MetaData.SYNTAX, this.syntax)));
+        this.sectionIndex = indexBuilder.build();
+    }
+
+    private void addBlock(Block block, List<Block> children, Deque<SectionBlock> sections)
+    {
+        if (sections.isEmpty()) {
+            children.add(block);
+        } else {
+            sections.peek().addChild(block);
+        }
+    }
+
+    private void collectHeaderIds(List<BlockRecord> blockRecords, Set<String> ids)
+    {
+        for (BlockRecord record : blockRecords) {
+            ids.addAll(record.headerIds);
+        }
+    }
+
+    private Document parse(String content) throws ParseException
+    {
+        try {
+            return this.parser.parse(content);
+        } catch (Exception e) {
+            throw new ParseException("Failed to parse Markdown content", e);
+        }
+    }
+
+    private List<Node> getChildren(Document document)
+    {
+        List<Node> children = new ArrayList<>();
+        for (Node child = document.getFirstChild(); child != null; child = child.getNext()) {
+            children.add(child);
+        }
+        return children;
+    }
+
+    /**
+     * @return {@code true} if the document contains definitions which apply to the whole document
+     */
+    private boolean hasDefinitions(Document document)
+    {
+        return !Parser.REFERENCES.get(document).isEmpty()
+            || !AbbreviationExtension.ABBREVIATIONS.get(document).isEmpty();
+    }
+}
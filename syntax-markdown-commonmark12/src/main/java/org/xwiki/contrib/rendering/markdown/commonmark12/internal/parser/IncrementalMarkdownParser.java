@@ -0,0 +1,42 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.rendering.parser.ParseException;
+
+/**
+ * Parses Markdown content which is then edited, typically for a live preview, only parsing again the parts of the
+ * content affected by each edit.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@Role
+public interface IncrementalMarkdownParser
+{
+    /**
+     * @param source the initial Markdown content
+     * @return the parsed document, to be edited using {@link IncrementalMarkdownDocument#replace} or
+     *         {@link IncrementalMarkdownDocument#update}
+     * @throws ParseException if the content fails to be parsed
+     */
+    IncrementalMarkdownDocument parse(String source) throws ParseException;
+}
@@ -0,0 +1,105 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import org.xwiki.rendering.listener.Listener;
+
+/**
+ * Split text into word, space, special symbol and new line events, exactly like the {@code plain/1.0} parser does
+ * (wrapped in an {@link org.xwiki.rendering.listener.InlineFilterListener}), but directly from the passed characters
+ * and without the overhead of a full parser, since this is called for all the text nodes.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public final class InlineTextTokenizer
+{
+    /**
+     * The special symbols of the plain text parser. Note that the backslash is not one of them.
+     */
+    private static final String SPECIAL_SYMBOLS = "!\"#$%&'()*+,-./:;<=>?@[]^_`{|}~";
+
+    private static final boolean[] IS_SPECIAL_SYMBOL = new boolean[128];
+
+    static {
+        for (int i = 0; i < SPECIAL_SYMBOLS.length(); i++) {
+            IS_SPECIAL_SYMBOL[SPECIAL_SYMBOLS.charAt(i)] = true;
+        }
+    }
+
+    private InlineTextTokenizer()
+    {
+        // Utility class
+    }
+
+    /**
+     * @param text the text to split
+     * @param listener the listener receiving the events
+     */
+    public static void tokenize(CharSequence text, Listener listener)
+    {
+        int length = text.length();
+        int wordStart = -1;
+        // Carriage returns are skipped, even inside words, in which case the word is not contiguous anymore.
+        StringBuilder splitWord = null;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '\r') {
+                if (wordStart >= 0) {
+                    if (splitWord == null) {
+                        splitWord = new StringBuilder();
+                    }
+                    splitWord.append(text, wordStart, i);
+                    wordStart = -1;
+                }
+            } else if (c == '\n' || c == ' ' || (c < IS_SPECIAL_SYMBOL.length && IS_SPECIAL_SYMBOL[c])) {
+                if (wordStart >= 0 || splitWord != null) {
+                    listener.onWord(getWord(text, wordStart, i, splitWord));
+                    wordStart = -1;
+                    splitWord = null;
+                }
+                if (c == '\n') {
+                    listener.onNewLine();
+                } else if (c == ' ') {
+                    listener.onSpace();
+                } else {
+                    listener.onSpecialSymbol(c);
+                }
+            } else if (wordStart < 0) {
+                wordStart = i;
+            }
+        }
+
+        if (wordStart >= 0 || splitWord != null) {
+            listener.onWord(getWord(text, wordStart, length, splitWord));
+        }
+    }
+
+    private static String getWord(CharSequence text, int wordStart, int wordEnd, StringBuilder splitWord)
+    {
+        if (splitWord == null) {
+            return text.subSequence(wordStart, wordEnd).toString();
+        }
+        if (wordStart >= 0) {
+            splitWord.append(text, wordStart, wordEnd);
+        }
+        return splitWord.toString();
+    }
+}
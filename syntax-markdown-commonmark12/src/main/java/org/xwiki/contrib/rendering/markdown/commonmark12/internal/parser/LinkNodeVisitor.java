@@ -20,19 +20,15 @@
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.lang3.StringUtils;
-import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.listener.reference.DocumentResourceReference;
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.listener.reference.ResourceType;
 import org.xwiki.rendering.parser.ResourceReferenceParser;
-import org.xwiki.rendering.parser.StreamParser;
 import org.xwiki.rendering.wikimodel.WikiParameter;
 import org.xwiki.rendering.wikimodel.impl.WikiScannerUtil;
 
@@ -42,8 +38,6 @@ import com.vladsch.flexmark.ast.LinkRef;
 import com.vladsch.flexmark.ast.MailLink;
 import com.vladsch.flexmark.ast.Reference;
 import com.vladsch.flexmark.ext.wikilink.WikiLink;
-import com.vladsch.flexmark.util.ast.NodeVisitor;
-import com.vladsch.flexmark.util.ast.VisitHandler;
 
 /**
  * Handle link events.
@@ -53,23 +47,20 @@ import com.vladsch.flexmark.util.ast.VisitHandler;
  */
 public class LinkNodeVisitor extends AbstractNodeVisitor
 {
-    static <V extends LinkNodeVisitor> VisitHandler<?>[] VISIT_HANDLERS(final V visitor)
-    {
-        return new VisitHandler<?>[]{
-                new VisitHandler<>(AutoLink.class, node -> visitor.visit(node)),
-                new VisitHandler<>(MailLink.class, node -> visitor.visit(node)),
-                new VisitHandler<>(Link.class, node -> visitor.visit(node)),
-                new VisitHandler<>(LinkRef.class, node -> visitor.visit(node)),
-                new VisitHandler<>(WikiLink.class, node -> visitor.visit(node))
-        };
-    }
+    static final List<NodeHandler<?, LinkNodeVisitor>> NODE_HANDLERS = Arrays.asList(
+        NodeHandler.of(LinkNodeVisitor.class, AutoLink.class, LinkNodeVisitor::visit),
+        NodeHandler.of(LinkNodeVisitor.class, MailLink.class, LinkNodeVisitor::visit),
+        NodeHandler.of(LinkNodeVisitor.class, Link.class, LinkNodeVisitor::visit),
+        NodeHandler.of(LinkNodeVisitor.class, LinkRef.class, LinkNodeVisitor::visit),
+        NodeHandler.of(LinkNodeVisitor.class, WikiLink.class, LinkNodeVisitor::visit)
+    );
 
     private ResourceReferenceParser linkResourceReferenceParser;
 
-    public LinkNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners,
-        ResourceReferenceParser linkResourceReferenceParser, StreamParser plainTextStreamParser)
+    public LinkNodeVisitor(NodeVisitorContext context,
+        ResourceReferenceParser linkResourceReferenceParser)
     {
-        super(visitor, listeners, null, plainTextStreamParser);
+        super(context);
         this.linkResourceReferenceParser = linkResourceReferenceParser;
     }
 
@@ -102,10 +93,9 @@ public class LinkNodeVisitor extends AbstractNodeVisitor
         ResourceReference reference = new ResourceReference(node.getUrl().unescape(), ResourceType.URL);
         reference.setTyped(false);
 
-        Map<String, String> parameters = new HashMap<>();
-
         // Handle optional title
-        addTitle(parameters, node.getTitle().toString());
+        Map<String, String> parameters =
+            ParameterMaps.getOptionalParameter(TITLE_ATTRIBUTE, node.getTitle().toString());
 
         getListener().beginLink(reference, false, parameters);
         getVisitor().visitChildren(node);
@@ -126,10 +116,8 @@ public class LinkNodeVisitor extends AbstractNodeVisitor
             resourceReference.setTyped(false);
 
             // Handle an optional link title
-            Map<String, String> parameters = Collections.emptyMap();
-            if (StringUtils.isNotEmpty(reference.getTitle())) {
-                parameters = Collections.singletonMap(TITLE_ATTRIBUTE, reference.getTitle().toString());
-            }
+            Map<String, String> parameters =
+                ParameterMaps.getOptionalParameter(TITLE_ATTRIBUTE, reference.getTitle().toString());
 
             getListener().beginLink(resourceReference, false, parameters);
             getVisitor().visitChildren(node);
@@ -19,12 +19,12 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
+import java.util.List;
 import java.util.Map;
 
 import org.xwiki.rendering.listener.ListType;
-import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.listener.WrappingListener;
 
 import com.vladsch.flexmark.ast.BulletList;
@@ -34,9 +34,6 @@ import com.vladsch.flexmark.ast.OrderedListItem;
 import com.vladsch.flexmark.ext.definition.DefinitionItem;
 import com.vladsch.flexmark.ext.definition.DefinitionList;
 import com.vladsch.flexmark.ext.definition.DefinitionTerm;
-import com.vladsch.flexmark.util.ast.Node;
-import com.vladsch.flexmark.util.ast.NodeVisitor;
-import com.vladsch.flexmark.util.ast.VisitHandler;
 
 /**
  * Handle list events.
@@ -46,18 +43,15 @@ import com.vladsch.flexmark.util.ast.VisitHandler;
  */
 public class ListNodeVisitor extends AbstractNodeVisitor
 {
-    static <V extends ListNodeVisitor> VisitHandler<?>[] VISIT_HANDLERS(final V visitor)
-    {
-        return new VisitHandler<?>[]{
-                new VisitHandler<>(BulletList.class, node -> visitor.visit(node)),
-                new VisitHandler<>(BulletListItem.class, node -> visitor.visit(node)),
-                new VisitHandler<>(OrderedList.class, node -> visitor.visit(node)),
-                new VisitHandler<>(OrderedListItem.class, node -> visitor.visit(node)),
-                new VisitHandler<>(DefinitionList.class, node -> visitor.visit(node)),
-                new VisitHandler<>(DefinitionTerm.class, node -> visitor.visit(node)),
-                new VisitHandler<>(DefinitionItem.class, node -> visitor.visit(node))
-        };
-    }
+    static final List<NodeHandler<?, ListNodeVisitor>> NODE_HANDLERS = Arrays.asList(
+        NodeHandler.of(ListNodeVisitor.class, BulletList.class, ListNodeVisitor::enter, ListNodeVisitor::exit),
+        NodeHandler.of(ListNodeVisitor.class, BulletListItem.class, ListNodeVisitor::enter, ListNodeVisitor::exit),
+        NodeHandler.of(ListNodeVisitor.class, OrderedList.class, ListNodeVisitor::enter, ListNodeVisitor::exit),
+        NodeHandler.of(ListNodeVisitor.class, OrderedListItem.class, ListNodeVisitor::enter, ListNodeVisitor::exit),
+        NodeHandler.of(ListNodeVisitor.class, DefinitionList.class, ListNodeVisitor::enter, ListNodeVisitor::exit),
+        NodeHandler.of(ListNodeVisitor.class, DefinitionTerm.class, ListNodeVisitor::enter, ListNodeVisitor::exit),
+        NodeHandler.of(ListNodeVisitor.class, DefinitionItem.class, ListNodeVisitor::enter, ListNodeVisitor::exit)
+    );
 
     /**
      * Swallow paragraphs (for example we don't want to generate paragraphs for list items since the XWiki model
@@ -78,73 +72,104 @@ public class ListNodeVisitor extends AbstractNodeVisitor
         }
     }
 
-    public ListNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners)
+    public ListNodeVisitor(NodeVisitorContext context)
     {
-        super(visitor, listeners);
+        super(context);
     }
 
-    public void visit(BulletList node)
+    public void enter(BulletList node)
     {
         getListener().beginList(ListType.BULLETED, Collections.emptyMap());
-        getVisitor().visitChildren(node);
+    }
+
+    public void exit(BulletList node)
+    {
         getListener().endList(ListType.BULLETED, Collections.emptyMap());
     }
 
-    public void visit(BulletListItem node)
+    public void enter(BulletListItem node)
     {
-        visitListItem(node);
+        enterListItem();
     }
 
-    public void visit(OrderedList node)
+    public void exit(BulletListItem node)
+    {
+        exitListItem();
+    }
+
+    public void enter(OrderedList node)
     {
         getListener().beginList(ListType.NUMBERED, Collections.emptyMap());
-        getVisitor().visitChildren(node);
+    }
+
+    public void exit(OrderedList node)
+    {
         getListener().endList(ListType.NUMBERED, Collections.emptyMap());
     }
 
-    public void visit(OrderedListItem node)
+    public void enter(OrderedListItem node)
+    {
+        enterListItem();
+    }
+
+    public void exit(OrderedListItem node)
     {
-        visitListItem(node);
+        exitListItem();
     }
 
-    public void visit(DefinitionList node)
+    public void enter(DefinitionList node)
     {
         getListener().beginDefinitionList(Collections.emptyMap());
-        getVisitor().visitChildren(node);
+    }
+
+    public void exit(DefinitionList node)
+    {
         getListener().endDefinitionList(Collections.emptyMap());
     }
 
-    public void visit(DefinitionTerm node)
+    public void enter(DefinitionTerm node)
     {
         getListener().beginDefinitionTerm();
-        WrappingListener paragraphListener = new ParagraphWrappingListener();
-        paragraphListener.setWrappedListener(getListener());
-        pushListener(paragraphListener);
-        getVisitor().visitChildren(node);
+        swallowParagraphs();
+    }
+
+    public void exit(DefinitionTerm node)
+    {
         popListener();
         getListener().endDefinitionTerm();
     }
 
-    public void visit(DefinitionItem node)
+    public void enter(DefinitionItem node)
     {
         getListener().beginDefinitionDescription();
-        visitChildrenAndSwallowParagraphs(node);
+        swallowParagraphs();
+    }
+
+    public void exit(DefinitionItem node)
+    {
+        popListener();
         getListener().endDefinitionDescription();
     }
 
-    private void visitListItem(Node node)
+    private void enterListItem()
     {
         getListener().beginListItem();
-        visitChildrenAndSwallowParagraphs(node);
+        swallowParagraphs();
+    }
+
+    private void exitListItem()
+    {
+        popListener();
         getListener().endListItem();
     }
 
-    private void visitChildrenAndSwallowParagraphs(Node node)
+    /**
+     * Push a listener swallowing the paragraphs of the children, which is popped when exiting the node.
+     */
+    private void swallowParagraphs()
     {
         WrappingListener paragraphListener = new ParagraphWrappingListener();
         paragraphListener.setWrappedListener(getListener());
         pushListener(paragraphListener);
-        getVisitor().visitChildren(node);
-        popListener();
     }
 }
@@ -19,33 +19,28 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
-import java.util.Deque;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
-import org.xwiki.rendering.listener.Listener;
 
 import com.vladsch.flexmark.ext.xwiki.macros.Macro;
 import com.vladsch.flexmark.ext.xwiki.macros.MacroBlock;
 import com.vladsch.flexmark.ext.xwiki.macros.MacroClose;
 import com.vladsch.flexmark.ext.xwiki.macros.MacroVisitor;
-import com.vladsch.flexmark.util.ast.NodeVisitor;
-import com.vladsch.flexmark.util.ast.VisitHandler;
 
 public class MacroNodeVisitor extends AbstractNodeVisitor implements MacroVisitor
 {
-    public MacroNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners)
-    {
-        super(visitor, listeners);
-    }
+    static final List<NodeHandler<?, MacroNodeVisitor>> NODE_HANDLERS = Arrays.asList(
+        NodeHandler.of(MacroNodeVisitor.class, Macro.class, MacroNodeVisitor::visit),
+        NodeHandler.of(MacroNodeVisitor.class, MacroBlock.class, MacroNodeVisitor::visit),
+        NodeHandler.of(MacroNodeVisitor.class, MacroClose.class, MacroNodeVisitor::visit)
+    );
 
-    public static <V extends MacroNodeVisitor> VisitHandler<?>[] VISIT_HANDLERS(final V visitor)
+    public MacroNodeVisitor(NodeVisitorContext context)
     {
-        return new VisitHandler<?>[]{
-                new VisitHandler<>(Macro.class, node -> visitor.visit(node)),
-                new VisitHandler<>(MacroBlock.class, node -> visitor.visit(node)),
-                new VisitHandler<>(MacroClose.class, node -> visitor.visit(node))
-        };
+        super(context);
     }
 
     @Override
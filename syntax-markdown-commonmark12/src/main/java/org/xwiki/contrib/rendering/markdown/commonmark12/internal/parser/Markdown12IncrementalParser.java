@@ -0,0 +1,52 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.rendering.parser.StreamParser;
+
+/**
+ * Incremental parser for CommonMark Markdown 1.2.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@Component
+@Named("markdown/1.2")
+@Singleton
+public class Markdown12IncrementalParser extends AbstractIncrementalMarkdownParser
+{
+    /**
+     * Streaming Markdown Parser.
+     */
+    @Inject
+    @Named("markdown/1.2")
+    private StreamParser commonMarkStreamParser;
+
+    @Override
+    protected AbstractMarkdownStreamParser getMarkdownStreamParser()
+    {
+        return (AbstractMarkdownStreamParser) this.commonMarkStreamParser;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.io.Reader;
+import java.util.Collection;
+import java.util.List;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+
+/**
+ * Converts many Markdown documents at once, for example when importing a whole wiki, parsing them concurrently.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@Role
+public interface MarkdownBatchParser
+{
+    /**
+     * @param sources the Markdown contents to parse, which are not closed
+     * @return the result for each source, in the order of the sources; a failure to parse a source doesn't prevent the
+     *         other ones from being parsed
+     * @throws InterruptedException if the current thread is interrupted while waiting for the results
+     */
+    List<MarkdownBatchResult<XDOM>> parse(Collection<? extends Reader> sources) throws InterruptedException;
+
+    /**
+     * @param sources the Markdown contents to convert, which are not closed
+     * @param rendererFactory the factory of the renderer to convert the sources with, e.g. for XHTML
+     * @return the rendered output for each source, in the order of the sources; a failure to convert a source doesn't
+     *         prevent the other ones from being converted
+     * @throws InterruptedException if the current thread is interrupted while waiting for the results
+     */
+    List<MarkdownBatchResult<String>> render(Collection<? extends Reader> sources,
+        PrintRendererFactory rendererFactory) throws InterruptedException;
+}
@@ -0,0 +1,85 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+/**
+ * The result of the conversion of one of the documents of a batch: either the converted document or the reason why
+ * it couldn't be converted.
+ *
+ * @param <T> the type of converted document
+ * @version $Id$
+ * @since 8.9.2
+ */
+public final class MarkdownBatchResult<T>
+{
+    private final T value;
+
+    private final Exception error;
+
+    private MarkdownBatchResult(T value, Exception error)
+    {
+        this.value = value;
+        this.error = error;
+    }
+
+    /**
+     * @param value the converted document
+     * @param <T> the type of converted document
+     * @return the result
+     */
+    public static <T> MarkdownBatchResult<T> success(T value)
+    {
+        return new MarkdownBatchResult<>(value, null);
+    }
+
+    /**
+     * @param error the reason why the document couldn't be converted
+     * @param <T> the type of converted document
+     * @return the result
+     */
+    public static <T> MarkdownBatchResult<T> failure(Exception error)
+    {
+        return new MarkdownBatchResult<>(null, error);
+    }
+
+    /**
+     * @return the converted document or {@code null} if the conversion failed
+     */
+    public T getValue()
+    {
+        return this.value;
+    }
+
+    /**
+     * @return the reason why the document couldn't be converted or {@code null} if the conversion succeeded
+     */
+    public Exception getError()
+    {
+        return this.error;
+    }
+
+    /**
+     * @return {@code true} if the document couldn't be converted
+     */
+    public boolean isFailed()
+    {
+        return this.error != null;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import org.xwiki.rendering.block.XDOM;
+
+/**
+ * The XDOM of a parsed Markdown document along with the information gathered while parsing it, which is kept out of
+ * the XDOM so that it's neither shared by the copies of the XDOM nor sent to the listeners of the document.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public final class MarkdownParseResult
+{
+    private final XDOM xdom;
+
+    private final MarkdownSectionIndex sectionIndex;
+
+    private final MarkdownSourceRanges sourceRanges;
+
+    /**
+     * @param xdom the parsed XDOM
+     * @param sectionIndex the index of the sections of the XDOM
+     * @param sourceRanges the source ranges of the blocks of the XDOM, or {@code null} if they were not requested
+     */
+    MarkdownParseResult(XDOM xdom, MarkdownSectionIndex sectionIndex, MarkdownSourceRanges sourceRanges)
+    {
+        this.xdom = xdom;
+        this.sectionIndex = sectionIndex;
+        this.sourceRanges = sourceRanges;
+    }
+
+    /**
+     * @return the parsed XDOM
+     */
+    public XDOM getXDOM()
+    {
+        return this.xdom;
+    }
+
+    /**
+     * @return the index of the sections of the document
+     */
+    public MarkdownSectionIndex getSectionIndex()
+    {
+        return this.sectionIndex;
+    }
+
+    /**
+     * @return the source ranges of the blocks of the XDOM, or {@code null} if they were not requested
+     */
+    public MarkdownSourceRanges getSourceRanges()
+    {
+        return this.sourceRanges;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the sections of a parsed Markdown document, built while parsing and returned along with the XDOM in a
+ * {@link MarkdownParseResult}. It gives the section of a header id, or of a position in the Markdown source, without
+ * traversing the XDOM.
+ * <p>
+ * The sections are identified by the id of their header and by their range in the source, and don't reference the
+ * blocks of the XDOM, so that the index stays valid for the copies of the XDOM and can be shared between threads.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public final class MarkdownSectionIndex
+{
+    private final List<Section> sections;
+
+    private final Map<String, Section> sectionsById;
+
+    /**
+     * A section of the document, started by a header.
+     */
+    public static final class Section
+    {
+        private final String id;
+
+        private final int level;
+
+        private final int startOffset;
+
+        private final int headerEndOffset;
+
+        private final Section parent;
+
+        private int endOffset = -1;
+
+        private Section(String id, int level, int startOffset, int headerEndOffset, Section parent)
+        {
+            this.id = id;
+            this.level = level;
+            this.startOffset = startOffset;
+            this.headerEndOffset = headerEndOffset;
+            this.parent = parent;
+        }
+
+        /**
+         * @return the id of the header
+         */
+        public String getId()
+        {
+            return this.id;
+        }
+
+        /**
+         * @return the level of the header, from 1 to 6
+         */
+        public int getLevel()
+        {
+            return this.level;
+        }
+
+        /**
+         * @return the offset of the header in the Markdown source, or -1 if unknown
+         */
+        public int getStartOffset()
+        {
+            return this.startOffset;
+        }
+
+        /**
+         * @return the offset of the end of the header in the Markdown source, or -1 if unknown
+         */
+        public int getHeaderEndOffset()
+        {
+            return this.headerEndOffset;
+        }
+
+        /**
+         * @return the offset of the end of the section (i.e. of the next header of the same or a higher level, or of
+         *     the document) in the Markdown source, or -1 if unknown
+         */
+        public int getEndOffset()
+        {
+            return this.endOffset;
+        }
+
+        /**
+         * @return the enclosing section, or {@code null} for a top level section
+         */
+        public Section getParent()
+        {
+            return this.parent;
+        }
+
+        private boolean contains(int offset)
+        {
+            return offset >= this.startOffset && (this.endOffset < 0 || offset < this.endOffset);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s %d [%d, %d, %d]", this.id, this.level, this.startOffset, this.headerEndOffset,
+                this.endOffset);
+        }
+    }
+
+    /**
+     * Builds the index from the headers and sections generated while parsing, in document order. The source range of
+     * a header is set before the sections it closes are ended, so that it's used as their end.
+     */
+    public static final class Builder
+    {
+        private final List<Section> sections = new ArrayList<>();
+
+        private final Deque<Section> openSections = new ArrayDeque<>();
+
+        private int headerStartOffset = -1;
+
+        private int headerEndOffset = -1;
+
+        private int sourceLength = -1;
+
+        /**
+         * @param length the length of the Markdown source
+         */
+        void setSourceLength(int length)
+        {
+            this.sourceLength = length;
+        }
+
+        /**
+         * @param startOffset the offset of the next header in the Markdown source
+         * @param endOffset the offset of the end of the next header in the Markdown source
+         */
+        void setHeaderSource(int startOffset, int endOffset)
+        {
+            this.headerStartOffset = startOffset;
+            this.headerEndOffset = endOffset;
+        }
+
+        /**
+         * @param level the header level
+         * @param id the header id
+         */
+        void beginSection(int level, String id)
+        {
+            Section section = new Section(id, level, this.headerStartOffset, this.headerEndOffset,
+                this.openSections.peek());
+            this.sections.add(section);
+            this.openSections.push(section);
+            this.headerStartOffset = -1;
+            this.headerEndOffset = -1;
+        }
+
+        /**
+         * Close the innermost open section.
+         *
+         * @return the closed section
+         */
+        Section endSection()
+        {
+            Section section = this.openSections.pop();
+            section.endOffset = this.headerStartOffset >= 0 ? this.headerStartOffset : this.sourceLength;
+            return section;
+        }
+
+        /**
+         * @return the index
+         */
+        MarkdownSectionIndex build()
+        {
+            return new MarkdownSectionIndex(this.sections);
+        }
+    }
+
+    private MarkdownSectionIndex(List<Section> sections)
+    {
+        this.sections = Collections.unmodifiableList(sections);
+        this.sectionsById = new HashMap<>(sections.size() * 4 / 3 + 1);
+        for (Section section : sections) {
+            this.sectionsById.putIfAbsent(section.id, section);
+        }
+    }
+
+    /**
+     * @return the sections, in document order
+     */
+    public List<Section> getSections()
+    {
+        return this.sections;
+    }
+
+    /**
+     * @param id a header id
+     * @return the section started by the header, or {@code null} if there's none
+     */
+    public Section getSection(String id)
+    {
+        return this.sectionsById.get(id);
+    }
+
+    /**
+     * @param offset an offset in the Markdown source
+     * @return the innermost section containing the offset, or {@code null} if it's before the first header
+     */
+    public Section getSectionAt(int offset)
+    {
+        // Last section starting before the offset
+        int low = 0;
+        int high = this.sections.size() - 1;
+        Section section = null;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (this.sections.get(middle).startOffset <= offset) {
+                section = this.sections.get(middle);
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        // It might have ended before the offset, in which case one of its ancestors contains it
+        while (section != null && !section.contains(offset)) {
+            section = section.parent;
+        }
+
+        return section;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.sections.toString();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Markdown content read from a {@link Reader} into a single, reusable, character buffer which is exposed as a
+ * {@link CharSequence} so that flexmark can work on it directly, without first copying it into a {@link String}.
+ * <p>
+ * The buffer is returned to a {@link BufferPool} when the source is closed, and thus the content must not be used
+ * after that. This is fine for the Markdown parsers since all the values they send to listeners are copied to strings.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public final class MarkdownSource implements AutoCloseable
+{
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final BufferPool pool;
+
+    private char[] chars;
+
+    private final int length;
+
+    /**
+     * The buffers released by the closed sources, bounded both in number and in size so that the pool doesn't retain
+     * the memory of huge documents. A buffer is removed from the pool while in use, so that concurrent and nested
+     * parses get their own. The pool is meant to be owned by a component, which clears it when it's disposed.
+     */
+    public static final class BufferPool
+    {
+        private static final int MAX_IDLE_BUFFERS = Runtime.getRuntime().availableProcessors() * 2;
+
+        /**
+         * Buffers bigger than this are not kept for reuse.
+         */
+        private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+
+        private final Queue<char[]> idleBuffers = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger idleBufferCount = new AtomicInteger();
+
+        private char[] borrow()
+        {
+            char[] buffer = this.idleBuffers.poll();
+            if (buffer == null) {
+                return new char[DEFAULT_BUFFER_SIZE];
+            }
+            this.idleBufferCount.decrementAndGet();
+            return buffer;
+        }
+
+        private void release(char[] buffer)
+        {
+            if (buffer.length <= MAX_POOLED_BUFFER_SIZE) {
+                if (this.idleBufferCount.incrementAndGet() <= MAX_IDLE_BUFFERS) {
+                    this.idleBuffers.offer(buffer);
+                } else {
+                    this.idleBufferCount.decrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * Release the memory of the idle buffers.
+         */
+        public void clear()
+        {
+            this.idleBuffers.clear();
+            this.idleBufferCount.set(0);
+        }
+    }
+
+    private MarkdownSource(BufferPool pool, char[] chars, int length)
+    {
+        this.pool = pool;
+        this.chars = chars;
+        this.length = length;
+    }
+
+    /**
+     * Read all the content of the passed reader. Note that the reader is not closed.
+     *
+     * @param reader the reader from which to read the Markdown content
+     * @param pool the pool from which the buffer is taken, and to which it's returned when the source is closed
+     * @return the read content, which must be closed once it's not needed anymore
+     * @throws IOException if the content fails to be read
+     */
+    public static MarkdownSource read(Reader reader, BufferPool pool) throws IOException
+    {
+        char[] chars = pool.borrow();
+
+        int length = 0;
+        int count;
+        while ((count = reader.read(chars, length, chars.length - length)) != -1) {
+            length += count;
+            if (length == chars.length) {
+                chars = Arrays.copyOf(chars, chars.length * 2);
+            }
+        }
+
+        return new MarkdownSource(pool, chars, length);
+    }
+
+    /**
+     * Decode the content of a file by mapping it in memory, which avoids going through intermediate byte and character
+     * buffers. Malformed input is replaced, as a {@link java.io.InputStreamReader} would do.
+     *
+     * @param path the file containing the Markdown content
+     * @param charset the encoding of the file
+     * @return the decoded content
+     * @throws IOException if the file fails to be read
+     */
+    public static CharSequence read(Path path, Charset charset) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(bytes);
+        }
+    }
+
+    /**
+     * @return the content, valid until this source is closed
+     */
+    public CharSequence getContent()
+    {
+        return CharBuffer.wrap(this.chars, 0, this.length);
+    }
+
+    @Override
+    public void close()
+    {
+        if (this.chars != null) {
+            this.pool.release(this.chars);
+        }
+        this.chars = null;
+    }
+}
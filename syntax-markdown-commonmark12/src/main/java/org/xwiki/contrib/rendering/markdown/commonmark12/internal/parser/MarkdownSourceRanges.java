@@ -0,0 +1,176 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.xwiki.rendering.block.Block;
+
+/**
+ * The range of Markdown source from which each block of an XDOM has been generated, returned along with the XDOM in a
+ * {@link MarkdownParseResult} when requested to the parser. The ranges are kept in primitive arrays, in the order the
+ * blocks were built.
+ * <p>
+ * The ranges are looked up by block identity, so they only apply to the blocks of the returned XDOM: a copy of the
+ * XDOM, or blocks added after parsing, have no source range.
+ * <p>
+ * The range of a block is the one of the flexmark node that generated it, so the words of a text share the range of
+ * the whole text, and the range of a section goes from its header to the next header of the same or a higher level.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public final class MarkdownSourceRanges
+{
+    private final Block[] blocks;
+
+    /**
+     * The start and end offsets of each block, one after the other.
+     */
+    private final int[] offsets;
+
+    private final int size;
+
+    /**
+     * Position of each block, computed on the first lookup by block.
+     */
+    private volatile Map<Block, Integer> indexes;
+
+    /**
+     * Collects the source ranges of the blocks while they are built.
+     */
+    static final class Builder
+    {
+        private Block[] blocks = new Block[64];
+
+        private int[] offsets = new int[128];
+
+        private int size;
+
+        /**
+         * @param block the block built
+         * @param startOffset the offset in the source of the start of the block, or -1 if unknown
+         * @param endOffset the offset in the source of the end of the block, or -1 if unknown
+         */
+        void add(Block block, int startOffset, int endOffset)
+        {
+            if (this.size == this.blocks.length) {
+                this.blocks = Arrays.copyOf(this.blocks, this.size * 2);
+                this.offsets = Arrays.copyOf(this.offsets, this.size * 4);
+            }
+            this.blocks[this.size] = block;
+            this.offsets[2 * this.size] = startOffset;
+            this.offsets[2 * this.size + 1] = endOffset;
+            this.size++;
+        }
+
+        /**
+         * @return the source ranges
+         */
+        MarkdownSourceRanges build()
+        {
+            return new MarkdownSourceRanges(Arrays.copyOf(this.blocks, this.size),
+                Arrays.copyOf(this.offsets, 2 * this.size), this.size);
+        }
+    }
+
+    private MarkdownSourceRanges(Block[] blocks, int[] offsets, int size)
+    {
+        this.blocks = blocks;
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    /**
+     * @return the number of blocks having a source range
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * @param index the position of a block, from 0 to {@link #size()} (excluded)
+     * @return the block, the children coming before their parent
+     */
+    public Block getBlock(int index)
+    {
+        return this.blocks[index];
+    }
+
+    /**
+     * @param index the position of a block, from 0 to {@link #size()} (excluded)
+     * @return the offset in the source of the start of the block, or -1 if unknown
+     */
+    public int getStartOffset(int index)
+    {
+        return this.offsets[2 * index];
+    }
+
+    /**
+     * @param index the position of a block, from 0 to {@link #size()} (excluded)
+     * @return the offset in the source of the end of the block, or -1 if unknown
+     */
+    public int getEndOffset(int index)
+    {
+        return this.offsets[2 * index + 1];
+    }
+
+    /**
+     * @param block a block of the XDOM
+     * @return the position of the block, or -1 if it has no source range (e.g. it has been added after parsing or
+     *     belongs to a copy of the XDOM)
+     */
+    public int indexOf(Block block)
+    {
+        Map<Block, Integer> blockIndexes = this.indexes;
+        if (blockIndexes == null) {
+            blockIndexes = new IdentityHashMap<>(this.size);
+            for (int i = 0; i < this.size; i++) {
+                blockIndexes.put(this.blocks[i], i);
+            }
+            this.indexes = blockIndexes;
+        }
+        Integer index = blockIndexes.get(block);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * @param block a block of the XDOM
+     * @return the offset in the source of the start of the block, or -1 if unknown
+     */
+    public int getStartOffset(Block block)
+    {
+        int index = indexOf(block);
+        return index >= 0 ? getStartOffset(index) : -1;
+    }
+
+    /**
+     * @param block a block of the XDOM
+     * @return the offset in the source of the end of the block, or -1 if unknown
+     */
+    public int getEndOffset(Block block)
+    {
+        int index = indexOf(block);
+        return index >= 0 ? getEndOffset(index) : -1;
+    }
+}
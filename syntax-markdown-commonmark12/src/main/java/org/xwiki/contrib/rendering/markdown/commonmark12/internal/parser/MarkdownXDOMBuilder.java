@@ -0,0 +1,598 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.BulletedListBlock;
+import org.xwiki.rendering.block.DefinitionDescriptionBlock;
+import org.xwiki.rendering.block.DefinitionListBlock;
+import org.xwiki.rendering.block.DefinitionTermBlock;
+import org.xwiki.rendering.block.EmptyLinesBlock;
+import org.xwiki.rendering.block.FormatBlock;
+import org.xwiki.rendering.block.GroupBlock;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.HorizontalLineBlock;
+import org.xwiki.rendering.block.IdBlock;
+import org.xwiki.rendering.block.ImageBlock;
+import org.xwiki.rendering.block.LinkBlock;
+import org.xwiki.rendering.block.ListItemBlock;
+import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.MacroMarkerBlock;
+import org.xwiki.rendering.block.MetaDataBlock;
+import org.xwiki.rendering.block.NewLineBlock;
+import org.xwiki.rendering.block.NumberedListBlock;
+import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.QuotationBlock;
+import org.xwiki.rendering.block.QuotationLineBlock;
+import org.xwiki.rendering.block.RawBlock;
+import org.xwiki.rendering.block.SectionBlock;
+import org.xwiki.rendering.block.SpaceBlock;
+import org.xwiki.rendering.block.SpecialSymbolBlock;
+import org.xwiki.rendering.block.TableBlock;
+import org.xwiki.rendering.block.TableCellBlock;
+import org.xwiki.rendering.block.TableHeadCellBlock;
+import org.xwiki.rendering.block.TableRowBlock;
+import org.xwiki.rendering.block.VerbatimBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.ListType;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.syntax.Syntax;
+
+import com.vladsch.flexmark.util.ast.Node;
+
+/**
+ * Builds the XDOM of a Markdown document directly from the events generated by the node visitors, generating the
+ * sections at the same time. This replaces the {@link SectionListener} and
+ * {@link org.xwiki.rendering.internal.parser.XDOMGeneratorListener} chain when parsing to an XDOM, and produces the
+ * same blocks.
+ * <p>
+ * The children of each block being built are accumulated in their own list, so that ending a block doesn't require
+ * looking for its start in a shared stack. The sections are indexed in a {@link MarkdownSectionIndex} returned
+ * along with the XDOM by {@link #getResult()}.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public class MarkdownXDOMBuilder implements Listener
+{
+    /**
+     * The children of the blocks being built, the top one being the innermost block.
+     */
+    private final Deque<List<Block>> containers = new ArrayDeque<>();
+
+    /**
+     * Number of sections opened by headers and not closed yet.
+     */
+    private int sectionDepth;
+
+    private final MarkdownSectionIndex.Builder sectionIndex = new MarkdownSectionIndex.Builder();
+
+    private int sourceLength = -1;
+
+    /**
+     * Gives the node being visited, from which the source range of the blocks is taken, or {@code null} when the
+     * source ranges are not kept.
+     */
+    private final NodeDispatcher dispatcher;
+
+    private final MarkdownSourceRanges.Builder sourceRanges;
+
+    /**
+     * The source ranges of the blocks being built, 2 offsets per block, since the node being visited when a block
+     * ends is not necessarily the one which started it.
+     */
+    private int[] openRanges;
+
+    private int openRangesSize;
+
+    /**
+     * The source range of the block which has just ended, to be added.
+     */
+    private int endedStartOffset;
+
+    private int endedEndOffset;
+
+    private boolean blockEnded;
+
+    /**
+     * Create a builder.
+     */
+    public MarkdownXDOMBuilder()
+    {
+        this(null);
+    }
+
+    /**
+     * Create a builder keeping the source range of the blocks.
+     *
+     * @param dispatcher the dispatcher visiting the nodes, which must track the current node
+     */
+    MarkdownXDOMBuilder(NodeDispatcher dispatcher)
+    {
+        this.containers.push(new ArrayList<>());
+        this.dispatcher = dispatcher;
+        if (dispatcher != null) {
+            this.sourceRanges = new MarkdownSourceRanges.Builder();
+            this.openRanges = new int[32];
+        } else {
+            this.sourceRanges = null;
+        }
+    }
+
+    /**
+     * @return the index of the sections, to which the source range of the headers must be given
+     */
+    MarkdownSectionIndex.Builder getSectionIndex()
+    {
+        return this.sectionIndex;
+    }
+
+    /**
+     * @return {@code true} if the source range of the blocks is kept
+     */
+    boolean hasSourceRanges()
+    {
+        return this.sourceRanges != null;
+    }
+
+    /**
+     * @param length the length of the Markdown source
+     */
+    void setSourceLength(int length)
+    {
+        this.sourceLength = length;
+        this.sectionIndex.setSourceLength(length);
+    }
+
+    /**
+     * @return the built XDOM along with the index of its sections and, if kept, the source range of its blocks
+     */
+    MarkdownParseResult getResult()
+    {
+        return new MarkdownParseResult(getXDOM(), this.sectionIndex.build(),
+            this.sourceRanges != null ? this.sourceRanges.build() : null);
+    }
+
+    /**
+     * @return the built XDOM
+     */
+    public XDOM getXDOM()
+    {
+        List<Block> blocks = this.containers.getLast();
+        if (blocks.size() == 1 && blocks.get(0) instanceof XDOM) {
+            return (XDOM) blocks.get(0);
+        } else {
+            // Events received without document events
+            return new XDOM(blocks);
+        }
+    }
+
+    private void begin()
+    {
+        this.containers.push(new ArrayList<>());
+
+        if (this.sourceRanges != null) {
+            if (this.openRangesSize == this.openRanges.length) {
+                this.openRanges = Arrays.copyOf(this.openRanges, this.openRangesSize * 2);
+            }
+            Node node = this.dispatcher.getCurrentNode();
+            this.openRanges[this.openRangesSize++] = node != null ? node.getStartOffset() : -1;
+            this.openRanges[this.openRangesSize++] = node != null ? node.getEndOffset() : -1;
+        }
+    }
+
+    private List<Block> end()
+    {
+        if (this.sourceRanges != null) {
+            this.endedEndOffset = this.openRanges[--this.openRangesSize];
+            this.endedStartOffset = this.openRanges[--this.openRangesSize];
+            this.blockEnded = true;
+        }
+
+        return this.containers.pop();
+    }
+
+    private void add(Block block)
+    {
+        this.containers.peek().add(block);
+
+        if (this.sourceRanges != null) {
+            if (this.blockEnded) {
+                this.sourceRanges.add(block, this.endedStartOffset, this.endedEndOffset);
+                this.blockEnded = false;
+            } else {
+                Node node = this.dispatcher.getCurrentNode();
+                this.sourceRanges.add(block, node != null ? node.getStartOffset() : -1,
+                    node != null ? node.getEndOffset() : -1);
+            }
+        }
+    }
+
+    private void endHeaderSection()
+    {
+        SectionBlock section = new SectionBlock(end());
+        MarkdownSectionIndex.Section indexedSection = this.sectionIndex.endSection();
+        // A section goes from its header to the next header of the same or a higher level
+        this.endedStartOffset = indexedSection.getStartOffset();
+        this.endedEndOffset = indexedSection.getEndOffset();
+        add(section);
+        this.sectionDepth--;
+    }
+
+    @Override
+    public void beginDocument(MetaData metadata)
+    {
+        begin();
+    }
+
+    @Override
+    public void endDocument(MetaData metadata)
+    {
+        // Close the sections still opened, as SectionListener does
+        while (this.sectionDepth > 0) {
+            endHeaderSection();
+        }
+        XDOM xdom = new XDOM(end(), new MetaData(metadata.getMetaData()));
+        this.endedStartOffset = 0;
+        this.endedEndOffset = this.sourceLength;
+        add(xdom);
+    }
+
+    @Override
+    public void beginGroup(Map<String, String> parameters)
+    {
+        begin();
+    }
+
+    @Override
+    public void endGroup(Map<String, String> parameters)
+    {
+        add(new GroupBlock(end(), parameters));
+    }
+
+    @Override
+    public void beginFormat(Format format, Map<String, String> parameters)
+    {
+        begin();
+    }
+
+    @Override
+    public void endFormat(Format format, Map<String, String> parameters)
+    {
+        add(new FormatBlock(end(), format, parameters));
+    }
+
+    @Override
+    public void beginParagraph(Map<String, String> parameters)
+    {
+        begin();
+    }
+
+    @Override
+    public void endParagraph(Map<String, String> parameters)
+    {
+        add(new ParagraphBlock(end(), parameters));
+    }
+
+    @Override
+    public void beginList(ListType type, Map<String, String> parameters)
+    {
+        begin();
+    }
+
+    @Override
+    public void endList(ListType type, Map<String, String> parameters)
+    {
+        if (type == ListType.BULLETED) {
+            add(new BulletedListBlock(end(), parameters));
+        } else {
+            add(new NumberedListBlock(end(), parameters));
+        }
+    }
+
+    @Override
+    public void beginListItem()
+    {
+        begin();
+    }
+
+    /**
+     * Start of a list item. Not annotated with {@code @Override} to stay compatible with versions of XWiki Rendering
+     * in which the Listener doesn't have this method.
+     *
+     * @param parameters the list item parameters, not supported by the Markdown syntax
+     */
+    public void beginListItem(Map<String, String> parameters)
+    {
+        beginListItem();
+    }
+
+    @Override
+    public void endListItem()
+    {
+        add(new ListItemBlock(end()));
+    }
+
+    /**
+     * End of a list item. See {@link #beginListItem(Map)}.
+     *
+     * @param parameters the list item parameters, not supported by the Markdown syntax
+     */
+    public void endListItem(Map<String, String> parameters)
+    {
+        endListItem();
+    }
+
+    @Override
+    public void beginDefinitionList(Map<String, String> parameters)
+    {
+        begin();
+    }
+
+    @Override
+    public void endDefinitionList(Map<String, String> parameters)
+    {
+        add(new DefinitionListBlock(end(), parameters));
+    }
+
+    @Override
+    public void beginDefinitionTerm()
+    {
+        begin();
+    }
+
+    @Override
+    public void endDefinitionTerm()
+    {
+        add(new DefinitionTermBlock(end()));
+    }
+
+    @Override
+    public void beginDefinitionDescription()
+    {
+        begin();
+    }
+
+    @Override
+    public void endDefinitionDescription()
+    {
+        add(new DefinitionDescriptionBlock(end()));
+    }
+
+    @Override
+    public void beginQuotation(Map<String, String> parameters)
+    {
+        begin();
+    }
+
+    @Override
+    public void endQuotation(Map<String, String> parameters)
+    {
+        add(new QuotationBlock(end(), parameters));
+    }
+
+    @Override
+    public void beginQuotationLine()
+    {
+        begin();
+    }
+
+    @Override
+    public void endQuotationLine()
+    {
+        add(new QuotationLineBlock(end()));
+    }
+
+    @Override
+    public void beginSection(Map<String, String> parameters)
+    {
+        begin();
+    }
+
+    @Override
+    public void endSection(Map<String, String> parameters)
+    {
+        add(new SectionBlock(end(), parameters));
+    }
+
+    @Override
+    public void beginHeader(HeaderLevel level, String id, Map<String, String> parameters)
+    {
+        // Close the sections of the same or a deeper level and open a new one, as SectionListener does
+        int levelDepth = level.getAsInt() - 1;
+        while (this.sectionDepth > levelDepth) {
+            endHeaderSection();
+        }
+        beginSection(Collections.emptyMap());
+        this.sectionDepth++;
+        this.sectionIndex.beginSection(level.getAsInt(), id);
+
+        begin();
+    }
+
+    @Override
+    public void endHeader(HeaderLevel level, String id, Map<String, String> parameters)
+    {
+        add(new HeaderBlock(end(), level, parameters, id));
+    }
+
+    @Override
+    public void beginTable(Map<String, String> parameters)
+    {
+        begin();
+    }
+
+    @Override
+    public void endTable(Map<String, String> parameters)
+    {
+        add(new TableBlock(end(), parameters));
+    }
+
+    @Override
+    public void beginTableRow(Map<String, String> parameters)
+    {
+        begin();
+    }
+
+    @Override
+    public void endTableRow(Map<String, String> parameters)
+    {
+        add(new TableRowBlock(end(), parameters));
+    }
+
+    @Override
+    public void beginTableCell(Map<String, String> parameters)
+    {
+        begin();
+    }
+
+    @Override
+    public void endTableCell(Map<String, String> parameters)
+    {
+        add(new TableCellBlock(end(), parameters));
+    }
+
+    @Override
+    public void beginTableHeadCell(Map<String, String> parameters)
+    {
+        begin();
+    }
+
+    @Override
+    public void endTableHeadCell(Map<String, String> parameters)
+    {
+        add(new TableHeadCellBlock(end(), parameters));
+    }
+
+    @Override
+    public void beginLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        begin();
+    }
+
+    @Override
+    public void endLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        add(new LinkBlock(end(), reference, freestanding, parameters));
+    }
+
+    @Override
+    public void beginMacroMarker(String name, Map<String, String> macroParameters, String content, boolean isInline)
+    {
+        begin();
+    }
+
+    @Override
+    public void endMacroMarker(String name, Map<String, String> macroParameters, String content, boolean isInline)
+    {
+        add(new MacroMarkerBlock(name, macroParameters, content, end(), isInline));
+    }
+
+    @Override
+    public void beginMetaData(MetaData metadata)
+    {
+        begin();
+    }
+
+    @Override
+    public void endMetaData(MetaData metadata)
+    {
+        add(new MetaDataBlock(end(), metadata));
+    }
+
+    @Override
+    public void onNewLine()
+    {
+        add(new NewLineBlock());
+    }
+
+    @Override
+    public void onMacro(String id, Map<String, String> parameters, String content, boolean isInline)
+    {
+        add(new MacroBlock(id, parameters, content, isInline));
+    }
+
+    @Override
+    public void onWord(String word)
+    {
+        add(new WordBlock(word));
+    }
+
+    @Override
+    public void onSpace()
+    {
+        add(new SpaceBlock());
+    }
+
+    @Override
+    public void onSpecialSymbol(char symbol)
+    {
+        add(new SpecialSymbolBlock(symbol));
+    }
+
+    @Override
+    public void onRawText(String content, Syntax syntax)
+    {
+        add(new RawBlock(content, syntax));
+    }
+
+    @Override
+    public void onId(String name)
+    {
+        add(new IdBlock(name));
+    }
+
+    @Override
+    public void onHorizontalLine(Map<String, String> parameters)
+    {
+        add(new HorizontalLineBlock(parameters));
+    }
+
+    @Override
+    public void onEmptyLines(int count)
+    {
+        add(new EmptyLinesBlock(count));
+    }
+
+    @Override
+    public void onVerbatim(String content, boolean isInline, Map<String, String> parameters)
+    {
+        add(new VerbatimBlock(content, parameters, isInline));
+    }
+
+    @Override
+    public void onImage(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        add(new ImageBlock(reference, freestanding, parameters));
+    }
+}
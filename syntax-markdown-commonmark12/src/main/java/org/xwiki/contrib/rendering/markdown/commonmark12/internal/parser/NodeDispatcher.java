@@ -0,0 +1,260 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.util.Arrays;
+
+import com.vladsch.flexmark.util.ast.Node;
+
+/**
+ * Dispatch flexmark nodes to the visitors handling them, as flexmark's {@code NodeVisitor} does but using a static
+ * {@link NodeHandlerTable} rather than a handler map built for each visitor instance. Nodes without handler are
+ * ignored but their children are visited.
+ * <p>
+ * The nodes are walked iteratively from an explicit work stack of enter and exit frames, so that the Java stack
+ * doesn't grow with the nesting depth of the document: only the handlers visiting the children of their node
+ * themselves (see {@link NodeHandler}) start a nested walk, on the same work stack.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public class NodeDispatcher
+{
+    private static final int INITIAL_STACK_CAPACITY = 64;
+
+    /**
+     * A node to enter.
+     */
+    private static final byte ENTER = 0;
+
+    /**
+     * A node whose children have been visited and whose handler exit action is to be called.
+     */
+    private static final byte EXIT = 1;
+
+    /**
+     * A node without handler whose children have been visited, and for which only the bookkeeping is left.
+     */
+    private static final byte LEAVE = 2;
+
+    private final NodeHandlerTable table;
+
+    private final Object[] visitors;
+
+    /**
+     * Whether the node being visited is tracked, which is only needed to get the source range of the generated events.
+     */
+    private boolean trackingNodes;
+
+    private Node currentNode;
+
+    /**
+     * The limits of the visited document, or {@code null} if it's not limited.
+     */
+    private ParseBudget budget;
+
+    /**
+     * Whether nodes are tracked or limited, in which case each visit has some bookkeeping to do.
+     */
+    private boolean checked;
+
+    /**
+     * The nodes of the work stack frames.
+     */
+    private Node[] frameNodes = new Node[INITIAL_STACK_CAPACITY];
+
+    /**
+     * The kinds of the work stack frames.
+     */
+    private byte[] frameKinds = new byte[INITIAL_STACK_CAPACITY];
+
+    /**
+     * For the exit frames, the node being visited when the node of the frame was entered, to restore when exiting it.
+     */
+    private Node[] frameParents = new Node[INITIAL_STACK_CAPACITY];
+
+    private int frameCount;
+
+    /**
+     * @param table the handlers to use
+     */
+    public NodeDispatcher(NodeHandlerTable table)
+    {
+        this.table = table;
+        this.visitors = new Object[table.getVisitorCount()];
+    }
+
+    /**
+     * @param visitorClass the class under which the handlers of the visitor are registered
+     * @param visitor the visitor instance to call for the handlers of its class
+     * @param <V> the type of visitor
+     */
+    public <V> void register(Class<V> visitorClass, V visitor)
+    {
+        this.visitors[this.table.getSlot(visitorClass)] = visitor;
+    }
+
+    /**
+     * @param trackingNodes {@code true} to track the node being visited, see {@link #getCurrentNode()}
+     */
+    public void setTrackingNodes(boolean trackingNodes)
+    {
+        this.trackingNodes = trackingNodes;
+        this.currentNode = null;
+        this.checked = this.trackingNodes || this.budget != null;
+    }
+
+    /**
+     * @param budget the limits of the visited document, or {@code null} if it's not limited
+     */
+    public void setBudget(ParseBudget budget)
+    {
+        this.budget = budget;
+        this.checked = this.trackingNodes || this.budget != null;
+    }
+
+    /**
+     * @return the innermost node being visited, or {@code null} if the nodes are not tracked
+     */
+    public Node getCurrentNode()
+    {
+        return this.currentNode;
+    }
+
+    /**
+     * Forget the state of the previous visit, including the frames left on the work stack by a visit which failed.
+     */
+    public void reset()
+    {
+        Arrays.fill(this.frameNodes, 0, this.frameCount, null);
+        Arrays.fill(this.frameParents, 0, this.frameCount, null);
+        this.frameCount = 0;
+        this.budget = null;
+        setTrackingNodes(false);
+    }
+
+    /**
+     * @param node the node to visit
+     */
+    public void visit(Node node)
+    {
+        int base = this.frameCount;
+        push(node, ENTER, null);
+        walk(base);
+    }
+
+    /**
+     * @param parent the node whose children to visit
+     */
+    public void visitChildren(Node parent)
+    {
+        int base = this.frameCount;
+        pushChildren(parent);
+        walk(base);
+    }
+
+    /**
+     * Process the frames of the work stack until it's back to the passed size.
+     */
+    private void walk(int base)
+    {
+        while (this.frameCount > base) {
+            int top = --this.frameCount;
+            Node node = this.frameNodes[top];
+            Node parent = this.frameParents[top];
+            this.frameNodes[top] = null;
+            this.frameParents[top] = null;
+
+            byte kind = this.frameKinds[top];
+            if (kind == ENTER) {
+                enter(node);
+            } else {
+                if (kind == EXIT) {
+                    if (this.trackingNodes) {
+                        this.currentNode = node;
+                    }
+                    this.table.exit(node, this.visitors);
+                }
+                leave(parent);
+            }
+        }
+    }
+
+    private void enter(Node node)
+    {
+        Node parent = this.currentNode;
+        if (this.checked) {
+            if (this.budget != null) {
+                this.budget.enter();
+            }
+            if (this.trackingNodes) {
+                this.currentNode = node;
+            }
+        }
+
+        int result = this.table.enter(node, this.visitors);
+        if (result == NodeHandlerTable.HANDLED) {
+            // The handler has visited the children itself
+            leave(parent);
+        } else {
+            if (result == NodeHandlerTable.ENTERED) {
+                push(node, EXIT, parent);
+            } else if (this.checked) {
+                push(node, LEAVE, parent);
+            }
+            pushChildren(node);
+        }
+    }
+
+    private void leave(Node parent)
+    {
+        if (this.checked) {
+            this.currentNode = parent;
+            if (this.budget != null) {
+                this.budget.exit();
+            }
+        }
+    }
+
+    private void pushChildren(Node parent)
+    {
+        // The children are pushed in reverse order so that they are popped in document order. Since they are all
+        // pushed before any of them is visited, a visited node can be unlinked safely.
+        Node node = parent.getLastChild();
+        while (node != null) {
+            push(node, ENTER, null);
+            node = node.getPrevious();
+        }
+    }
+
+    private void push(Node node, byte kind, Node parent)
+    {
+        if (this.frameCount == this.frameNodes.length) {
+            int capacity = this.frameCount * 2;
+            this.frameNodes = Arrays.copyOf(this.frameNodes, capacity);
+            this.frameKinds = Arrays.copyOf(this.frameKinds, capacity);
+            this.frameParents = Arrays.copyOf(this.frameParents, capacity);
+        }
+        this.frameNodes[this.frameCount] = node;
+        this.frameKinds[this.frameCount] = kind;
+        this.frameParents[this.frameCount] = parent;
+        this.frameCount++;
+    }
+}
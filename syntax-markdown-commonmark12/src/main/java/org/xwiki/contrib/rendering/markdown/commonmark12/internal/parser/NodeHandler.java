@@ -0,0 +1,124 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.util.function.BiConsumer;
+
+import com.vladsch.flexmark.util.ast.Node;
+
+/**
+ * Associates a flexmark node class with the method of the visitor handling it. Handlers are declared statically by
+ * the visitors and don't depend on any visitor instance.
+ * <p>
+ * A handler either handles the whole node, visiting its children itself if needed, or is split into an enter and an
+ * exit action, in which case the {@link NodeDispatcher} visits the children between the two from its own work stack.
+ * Split handlers should be preferred for the nodes which can be nested arbitrarily deep (quotes, lists, formats...)
+ * since they don't use any Java stack frame while their children are visited.
+ *
+ * @param <N> the type of node handled
+ * @param <V> the type of visitor handling the node
+ * @version $Id$
+ * @since 8.9.2
+ */
+public final class NodeHandler<N extends Node, V>
+{
+    private final Class<V> visitorClass;
+
+    private final Class<N> nodeClass;
+
+    private final BiConsumer<V, N> action;
+
+    private final BiConsumer<V, N> exitAction;
+
+    private NodeHandler(Class<V> visitorClass, Class<N> nodeClass, BiConsumer<V, N> action,
+        BiConsumer<V, N> exitAction)
+    {
+        this.visitorClass = visitorClass;
+        this.nodeClass = nodeClass;
+        this.action = action;
+        this.exitAction = exitAction;
+    }
+
+    /**
+     * @param visitorClass the type of visitor handling the node
+     * @param nodeClass the exact type of node handled (sub types are not handled)
+     * @param action the visitor method handling the node
+     * @param <N> the type of node handled
+     * @param <V> the type of visitor handling the node
+     * @return the handler
+     */
+    public static <N extends Node, V> NodeHandler<N, V> of(Class<V> visitorClass, Class<N> nodeClass,
+        BiConsumer<V, N> action)
+    {
+        return new NodeHandler<>(visitorClass, nodeClass, action, null);
+    }
+
+    /**
+     * @param visitorClass the type of visitor handling the node
+     * @param nodeClass the exact type of node handled (sub types are not handled)
+     * @param enterAction the visitor method called before the children of the node are visited
+     * @param exitAction the visitor method called after the children of the node have been visited
+     * @param <N> the type of node handled
+     * @param <V> the type of visitor handling the node
+     * @return the handler
+     */
+    public static <N extends Node, V> NodeHandler<N, V> of(Class<V> visitorClass, Class<N> nodeClass,
+        BiConsumer<V, N> enterAction, BiConsumer<V, N> exitAction)
+    {
+        return new NodeHandler<>(visitorClass, nodeClass, enterAction, exitAction);
+    }
+
+    /**
+     * @return the type of visitor handling the node
+     */
+    public Class<V> getVisitorClass()
+    {
+        return this.visitorClass;
+    }
+
+    /**
+     * @return the type of node handled
+     */
+    public Class<N> getNodeClass()
+    {
+        return this.nodeClass;
+    }
+
+    /**
+     * @return {@code true} if the handler has an exit action, in which case the children of the node are visited by
+     *     the dispatcher
+     */
+    public boolean isSplit()
+    {
+        return this.exitAction != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    void handle(Object visitor, Node node)
+    {
+        this.action.accept((V) visitor, (N) node);
+    }
+
+    @SuppressWarnings("unchecked")
+    void exit(Object visitor, Node node)
+    {
+        this.exitAction.accept((V) visitor, (N) node);
+    }
+}
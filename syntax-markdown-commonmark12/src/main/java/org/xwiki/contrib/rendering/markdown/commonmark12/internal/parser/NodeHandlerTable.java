@@ -0,0 +1,148 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.vladsch.flexmark.util.ast.Node;
+
+/**
+ * All the node handlers, indexed by node class. Each visitor class gets a slot so that a {@link NodeDispatcher} can
+ * find the visitor instance of a handler without any lookup. The table is meant to be built once, statically, and
+ * shared by all the dispatchers.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public final class NodeHandlerTable
+{
+    /**
+     * Returned by {@link #enter(Node, Object[])} when there's no handler for the node.
+     */
+    static final int NOT_HANDLED = 0;
+
+    /**
+     * Returned by {@link #enter(Node, Object[])} when the node has been handled along with its children.
+     */
+    static final int HANDLED = 1;
+
+    /**
+     * Returned by {@link #enter(Node, Object[])} when the node has been entered, its children are to be visited and
+     * then {@link #exit(Node, Object[])} called.
+     */
+    static final int ENTERED = 2;
+
+    private static final Binding NO_BINDING = new Binding(-1, null);
+
+    private final Map<Class<?>, Integer> visitorSlots = new HashMap<>();
+
+    private final Map<Class<?>, Binding> bindings = new HashMap<>();
+
+    private final ClassValue<Binding> bindingByNodeClass = new ClassValue<Binding>()
+    {
+        @Override
+        protected Binding computeValue(Class<?> type)
+        {
+            return bindings.getOrDefault(type, NO_BINDING);
+        }
+    };
+
+    /**
+     * A handler along with the slot of the visitor handling it.
+     */
+    private static final class Binding
+    {
+        private final int slot;
+
+        private final NodeHandler<?, ?> handler;
+
+        Binding(int slot, NodeHandler<?, ?> handler)
+        {
+            this.slot = slot;
+            this.handler = handler;
+        }
+    }
+
+    /**
+     * Register handlers. Must not be called once the table is used for dispatching.
+     *
+     * @param handlers the handlers to register
+     * @return this table
+     */
+    public NodeHandlerTable register(List<? extends NodeHandler<?, ?>> handlers)
+    {
+        for (NodeHandler<?, ?> handler : handlers) {
+            int slot = this.visitorSlots.computeIfAbsent(handler.getVisitorClass(), key -> this.visitorSlots.size());
+            this.bindings.put(handler.getNodeClass(), new Binding(slot, handler));
+        }
+        return this;
+    }
+
+    /**
+     * @return the number of visitor classes having registered handlers
+     */
+    public int getVisitorCount()
+    {
+        return this.visitorSlots.size();
+    }
+
+    /**
+     * @param visitorClass a visitor class having registered handlers
+     * @return the slot of the visitor class
+     */
+    public int getSlot(Class<?> visitorClass)
+    {
+        Integer slot = this.visitorSlots.get(visitorClass);
+        if (slot == null) {
+            throw new IllegalArgumentException(
+                String.format("No node handler registered for visitor [%s]", visitorClass.getName()));
+        }
+        return slot;
+    }
+
+    /**
+     * @param node the node to handle
+     * @param visitors the visitor instances, indexed by slot
+     * @return {@link #NOT_HANDLED}, {@link #HANDLED} or {@link #ENTERED}
+     */
+    int enter(Node node, Object[] visitors)
+    {
+        Binding binding = this.bindingByNodeClass.get(node.getClass());
+        if (binding == NO_BINDING) {
+            return NOT_HANDLED;
+        }
+        binding.handler.handle(visitors[binding.slot], node);
+        return binding.handler.isSplit() ? ENTERED : HANDLED;
+    }
+
+    /**
+     * @param node a node for which {@link #enter(Node, Object[])} returned {@link #ENTERED}
+     * @param visitors the visitor instances, indexed by slot
+     */
+    void exit(Node node, Object[] visitors)
+    {
+        Binding binding = this.bindingByNodeClass.get(node.getClass());
+        if (binding != NO_BINDING) {
+            binding.handler.exit(visitors[binding.slot], node);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.util.IdGenerator;
+
+import com.vladsch.flexmark.ast.util.ReferenceRepository;
+import com.vladsch.flexmark.ext.tables.TableBlock;
+
+/**
+ * The state of a document visit, shared by all the node visitors. It's reset between documents so that the visitors
+ * can be reused.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public class NodeVisitorContext
+{
+    /**
+     * Listener(s) for the generated XWiki Events. Organized as a stack so that a buffering listener can hijack all
+     * events for a while, for example. All generated events are sent to the top of the stack.
+     */
+    private final Deque<Listener> listeners = new ArrayDeque<>();
+
+    private final NodeDispatcher dispatcher;
+
+    private ReferenceRepository referenceRepository;
+
+    /**
+     * Used to generate a unique id for Headings.
+     */
+    private IdGenerator idGenerator = new IdGenerator();
+
+    /**
+     * The current table node we're in. It's stacked to support nested tables.
+     */
+    private final Deque<TableBlock> tables = new ArrayDeque<>();
+
+    /**
+     * The current column position in the current table; used to handle colspan. It's stacked to support nested tables.
+     */
+    private final Deque<Integer> tableColumnPositions = new ArrayDeque<>();
+
+    /**
+     * The index of the sections being built, when parsing to an XDOM.
+     */
+    private MarkdownSectionIndex.Builder sectionIndex;
+
+    /**
+     * @param table the node handlers
+     */
+    public NodeVisitorContext(NodeHandlerTable table)
+    {
+        this.dispatcher = new NodeDispatcher(table);
+    }
+
+    /**
+     * Forget the state of the previous document.
+     */
+    public void reset()
+    {
+        this.listeners.clear();
+        this.referenceRepository = null;
+        this.idGenerator = new IdGenerator();
+        this.tables.clear();
+        this.tableColumnPositions.clear();
+        this.sectionIndex = null;
+        this.dispatcher.reset();
+    }
+
+    /**
+     * @return the dispatcher calling the visitors
+     */
+    public NodeDispatcher getDispatcher()
+    {
+        return this.dispatcher;
+    }
+
+    /**
+     * @return the listener stack
+     */
+    public Deque<Listener> getListeners()
+    {
+        return this.listeners;
+    }
+
+    /**
+     * @return the repository used to resolve link and image references
+     */
+    public ReferenceRepository getReferenceRepository()
+    {
+        return this.referenceRepository;
+    }
+
+    /**
+     * @param referenceRepository the repository used to resolve link and image references
+     */
+    public void setReferenceRepository(ReferenceRepository referenceRepository)
+    {
+        this.referenceRepository = referenceRepository;
+    }
+
+    /**
+     * @return the generator of header ids
+     */
+    public IdGenerator getIdGenerator()
+    {
+        return this.idGenerator;
+    }
+
+    /**
+     * @param idGenerator the generator of header ids, for example to share it between several visits
+     */
+    public void setIdGenerator(IdGenerator idGenerator)
+    {
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * @return the stack of the tables being visited
+     */
+    public Deque<TableBlock> getTables()
+    {
+        return this.tables;
+    }
+
+    /**
+     * @return the stack of the column positions in the tables being visited
+     */
+    public Deque<Integer> getTableColumnPositions()
+    {
+        return this.tableColumnPositions;
+    }
+
+    /**
+     * @return the index of the sections being built, or {@code null} if the sections are not indexed
+     */
+    public MarkdownSectionIndex.Builder getSectionIndex()
+    {
+        return this.sectionIndex;
+    }
+
+    /**
+     * @param sectionIndex the index of the sections to build
+     */
+    public void setSectionIndex(MarkdownSectionIndex.Builder sectionIndex)
+    {
+        this.sectionIndex = sectionIndex;
+    }
+}
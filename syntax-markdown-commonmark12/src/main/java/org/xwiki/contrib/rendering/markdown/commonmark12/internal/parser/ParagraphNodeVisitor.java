@@ -19,14 +19,11 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
-
-import org.xwiki.rendering.listener.Listener;
+import java.util.List;
 
 import com.vladsch.flexmark.ast.Paragraph;
-import com.vladsch.flexmark.util.ast.NodeVisitor;
-import com.vladsch.flexmark.util.ast.VisitHandler;
 
 /**
  * Handle paragraph events.
@@ -36,23 +33,23 @@ import com.vladsch.flexmark.util.ast.VisitHandler;
  */
 public class ParagraphNodeVisitor extends AbstractNodeVisitor
 {
-    static <V extends ParagraphNodeVisitor> VisitHandler<?>[] VISIT_HANDLERS(final V visitor)
+    static final List<NodeHandler<?, ParagraphNodeVisitor>> NODE_HANDLERS = Arrays.asList(
+        NodeHandler.of(ParagraphNodeVisitor.class, Paragraph.class, ParagraphNodeVisitor::enter,
+            ParagraphNodeVisitor::exit)
+    );
+
+    public ParagraphNodeVisitor(NodeVisitorContext context)
     {
-        return new VisitHandler<?>[]{
-                new VisitHandler<>(Paragraph.class, node -> visitor.visit(node))
-        };
+        super(context);
     }
 
-    public ParagraphNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners)
+    public void enter(Paragraph node)
     {
-        super(visitor, listeners);
+        getListener().beginParagraph(Collections.emptyMap());
     }
 
-    public void visit(Paragraph node)
+    public void exit(Paragraph node)
     {
-        getListener().beginParagraph(Collections.emptyMap());
-        getVisitor().visitChildren(node);
         getListener().endParagraph(Collections.emptyMap());
-
     }
 }
@@ -0,0 +1,167 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.vladsch.flexmark.ext.tables.TableCell;
+
+/**
+ * Immutable event parameters shared between all the generated events, for the parameter combinations which keep
+ * coming back (HTML macros, code languages, table cell alignments and spans). The listeners receiving the events and
+ * the blocks built from them never modify their parameters.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+final class ParameterMaps
+{
+    /**
+     * The parameters of the HTML macro. We don't clean the HTML since it's possible to intermix MD syntax with HTML
+     * and thus has not well-formed HTML content.
+     */
+    static final Map<String, String> HTML_MACRO = Collections.singletonMap("clean", "false");
+
+    private static final int NO_ALIGNMENT = 0;
+
+    private static final int LEFT_ALIGNMENT = 1;
+
+    private static final int RIGHT_ALIGNMENT = 2;
+
+    private static final int CENTER_ALIGNMENT = 3;
+
+    /**
+     * The values of the align parameter of table cells, indexed by the alignment constants above.
+     */
+    private static final String[] ALIGNMENTS = { null, "left", "right", "center" };
+
+    private static final String LANGUAGE_PARAMETER = "language";
+
+    private static final String NO_LANGUAGE = "none";
+
+    private static final Map<String, String> NO_LANGUAGE_CODE_MACRO =
+        Collections.singletonMap(LANGUAGE_PARAMETER, NO_LANGUAGE);
+
+    /**
+     * Languages come from the content so we stop sharing new ones once there are many of them.
+     */
+    private static final int MAX_LANGUAGES = 256;
+
+    private static final Map<String, Map<String, String>> CODE_MACROS = new ConcurrentHashMap<>();
+
+    /**
+     * Cells spanning more columns get their own parameters.
+     */
+    private static final int MAX_SHARED_SPAN = 16;
+
+    private static final Map<String, String>[][] TABLE_CELLS = createTableCells();
+
+    private ParameterMaps()
+    {
+    }
+
+    /**
+     * @param language the language of the code, or {@code null}
+     * @return the parameters of the code macro
+     */
+    static Map<String, String> getCodeMacroParameters(String language)
+    {
+        if (language == null) {
+            return NO_LANGUAGE_CODE_MACRO;
+        }
+        Map<String, String> parameters = CODE_MACROS.get(language);
+        if (parameters == null) {
+            parameters = Collections.singletonMap(LANGUAGE_PARAMETER, language);
+            if (CODE_MACROS.size() < MAX_LANGUAGES) {
+                CODE_MACROS.putIfAbsent(language, parameters);
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * @param span the number of columns spanned by the cell
+     * @param alignment the alignment of the cell, or {@code null}
+     * @return the parameters of the table cell
+     */
+    static Map<String, String> getTableCellParameters(int span, TableCell.Alignment alignment)
+    {
+        int index = getAlignmentIndex(alignment);
+        if (span <= MAX_SHARED_SPAN) {
+            return TABLE_CELLS[Math.max(span, 1)][index];
+        }
+        return createTableCell(span, ALIGNMENTS[index]);
+    }
+
+    /**
+     * @param name the parameter name
+     * @param value the parameter value, ignored if empty
+     * @return the parameters, empty if the value is
+     */
+    static Map<String, String> getOptionalParameter(String name, String value)
+    {
+        return value == null || value.isEmpty() ? Collections.emptyMap() : Collections.singletonMap(name, value);
+    }
+
+    private static int getAlignmentIndex(TableCell.Alignment alignment)
+    {
+        if (alignment == null) {
+            return NO_ALIGNMENT;
+        }
+        switch (alignment) {
+            case LEFT:
+                return LEFT_ALIGNMENT;
+            case RIGHT:
+                return RIGHT_ALIGNMENT;
+            case CENTER:
+                return CENTER_ALIGNMENT;
+            default:
+                return NO_ALIGNMENT;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String>[][] createTableCells()
+    {
+        Map<String, String>[][] tableCells = new Map[MAX_SHARED_SPAN + 1][ALIGNMENTS.length];
+        for (int span = 1; span <= MAX_SHARED_SPAN; span++) {
+            for (int alignment = 0; alignment < ALIGNMENTS.length; alignment++) {
+                tableCells[span][alignment] = createTableCell(span, ALIGNMENTS[alignment]);
+            }
+        }
+        return tableCells;
+    }
+
+    private static Map<String, String> createTableCell(int span, String alignment)
+    {
+        // Use a HashMap to keep the parameter order the cells have always had
+        Map<String, String> parameters = new HashMap<>();
+        if (span > 1) {
+            parameters.put("colspan", String.valueOf(span));
+        }
+        if (alignment != null) {
+            parameters.put("align", alignment);
+        }
+        return Collections.unmodifiableMap(parameters);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.util.concurrent.TimeUnit;
+
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.MarkdownConfiguration;
+
+/**
+ * The limits of the parsing of a single Markdown document, and what has been used of them so far. The limits are
+ * checked on each visited node, so the checks are kept to a few comparisons, the clock being read only every
+ * {@value #TIME_CHECK_INTERVAL} nodes.
+ * <p>
+ * The document size is checked before flexmark parses the content, while the parse time can only be checked once
+ * flexmark is done since its parsing can't be interrupted. Thus the time spent in flexmark is bounded by the document
+ * size limit, not by the parse time limit.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public final class ParseBudget
+{
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    private final int maxDocumentSize;
+
+    private final int maxNestingDepth;
+
+    private final int maxNodeCount;
+
+    private final long maxParseTime;
+
+    private final long deadline;
+
+    private int depth;
+
+    private int nodeCount;
+
+    private ParseBudget(int maxDocumentSize, int maxNestingDepth, int maxNodeCount, long maxParseTime)
+    {
+        this.maxDocumentSize = maxDocumentSize;
+        this.maxNestingDepth = maxNestingDepth;
+        this.maxNodeCount = maxNodeCount;
+        this.maxParseTime = maxParseTime;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxParseTime);
+    }
+
+    /**
+     * Start the parsing of a document.
+     *
+     * @param configuration the configuration defining the limits
+     * @return the budget of the document, or {@code null} if no limit is configured
+     */
+    public static ParseBudget start(MarkdownConfiguration configuration)
+    {
+        // The limits are read once per document since they come from the configuration source
+        int maxDocumentSize = configuration.getMaxDocumentSize();
+        int maxNestingDepth = configuration.getMaxNestingDepth();
+        int maxNodeCount = configuration.getMaxNodeCount();
+        long maxParseTime = configuration.getMaxParseTime();
+        if (maxDocumentSize > 0 || maxNestingDepth > 0 || maxNodeCount > 0 || maxParseTime > 0) {
+            return new ParseBudget(maxDocumentSize, maxNestingDepth, maxNodeCount, maxParseTime);
+        }
+        return null;
+    }
+
+    /**
+     * @param size the number of characters of the content to parse
+     * @throws ParseLimitExceededException if the content is too large
+     */
+    public void checkDocumentSize(int size)
+    {
+        if (this.maxDocumentSize > 0 && size > this.maxDocumentSize) {
+            throw new ParseLimitExceededException(ParseLimit.DOCUMENT_SIZE, this.maxDocumentSize);
+        }
+    }
+
+    /**
+     * @throws ParseLimitExceededException if the parsing has taken too long
+     */
+    public void checkParseTime()
+    {
+        if (this.maxParseTime > 0 && System.nanoTime() - this.deadline > 0) {
+            throw new ParseLimitExceededException(ParseLimit.PARSE_TIME, this.maxParseTime);
+        }
+    }
+
+    /**
+     * Called before visiting a node.
+     *
+     * @throws ParseLimitExceededException if visiting the node exceeds a limit
+     */
+    void enter()
+    {
+        this.depth++;
+        this.nodeCount++;
+        if (this.maxNestingDepth > 0 && this.depth > this.maxNestingDepth) {
+            throw new ParseLimitExceededException(ParseLimit.NESTING_DEPTH, this.maxNestingDepth);
+        }
+        if (this.maxNodeCount > 0 && this.nodeCount > this.maxNodeCount) {
+            throw new ParseLimitExceededException(ParseLimit.NODE_COUNT, this.maxNodeCount);
+        }
+        if (this.nodeCount % TIME_CHECK_INTERVAL == 0) {
+            checkParseTime();
+        }
+    }
+
+    /**
+     * Called after visiting a node.
+     */
+    void exit()
+    {
+        this.depth--;
+    }
+}
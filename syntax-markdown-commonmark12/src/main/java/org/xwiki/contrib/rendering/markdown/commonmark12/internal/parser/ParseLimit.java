@@ -0,0 +1,66 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+/**
+ * The limits enforced when parsing Markdown content, to protect the server from hostile content.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public enum ParseLimit
+{
+    /**
+     * Maximum number of characters of the content.
+     */
+    DOCUMENT_SIZE("Markdown content is longer than the maximum of [%d] characters"),
+
+    /**
+     * Maximum depth of nested Markdown elements, e.g. quotes and lists.
+     */
+    NESTING_DEPTH("Markdown content is nested deeper than the maximum of [%d] levels"),
+
+    /**
+     * Maximum number of Markdown elements.
+     */
+    NODE_COUNT("Markdown content has more than the maximum of [%d] elements"),
+
+    /**
+     * Maximum time taken to parse the content, in milliseconds. It's checked only once flexmark has parsed the
+     * content, and then while converting it, since flexmark can't be interrupted.
+     */
+    PARSE_TIME("Markdown content took longer than the maximum of [%d] milliseconds to parse");
+
+    private final String message;
+
+    ParseLimit(String message)
+    {
+        this.message = message;
+    }
+
+    /**
+     * @param value the value of the limit
+     * @return the message explaining that the limit has been exceeded
+     */
+    public String getMessage(long value)
+    {
+        return String.format(this.message, value);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+
+/**
+ * Counts the Markdown contents rejected by the parsers because they exceeded one of the {@link ParseLimit}s, for
+ * monitoring.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@Component(roles = ParseLimitStatistics.class)
+@Singleton
+public class ParseLimitStatistics
+{
+    private final AtomicLongArray rejectionCounts = new AtomicLongArray(ParseLimit.values().length);
+
+    /**
+     * @param limit the limit exceeded by a rejected content
+     */
+    public void rejected(ParseLimit limit)
+    {
+        this.rejectionCounts.incrementAndGet(limit.ordinal());
+    }
+
+    /**
+     * @param limit a parse limit
+     * @return the number of contents rejected because they exceeded the limit
+     */
+    public long getRejectionCount(ParseLimit limit)
+    {
+        return this.rejectionCounts.get(limit.ordinal());
+    }
+
+    /**
+     * @return the number of contents rejected because they exceeded any of the limits
+     */
+    public long getRejectionCount()
+    {
+        long count = 0;
+        for (int i = 0; i < this.rejectionCounts.length(); i++) {
+            count += this.rejectionCounts.get(i);
+        }
+        return count;
+    }
+}
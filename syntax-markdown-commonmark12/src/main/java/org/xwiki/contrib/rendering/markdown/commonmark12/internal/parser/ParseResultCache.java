@@ -0,0 +1,263 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * Least recently used XDOMs parsed from Markdown content, bounded by an estimate of their memory weight. The XDOMs
+ * are copied when stored and when returned, so that the callers can modify them freely.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@Component(roles = ParseResultCache.class)
+@Singleton
+public class ParseResultCache
+{
+    /**
+     * The default maximum weight of the cache, in bytes.
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 64L * 1024 * 1024;
+
+    /**
+     * Rough estimate of the memory taken by a block along with its parameters.
+     */
+    private static final int BLOCK_WEIGHT = 128;
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long maxWeight = DEFAULT_MAX_WEIGHT;
+
+    private long weight;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Identifies parsed content by a hash rather than by the content itself, which is compared only on hits.
+     */
+    private static final class Key
+    {
+        private final Syntax syntax;
+
+        private final Object options;
+
+        private final int length;
+
+        private final long hash;
+
+        Key(Syntax syntax, Object options, CharSequence content)
+        {
+            this.syntax = syntax;
+            this.options = options;
+            this.length = content.length();
+            this.hash = hash(content);
+        }
+
+        @Override
+        public boolean equals(Object object)
+        {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) object;
+            // The options are compared by identity since they are replaced whenever the configuration changes
+            return this.hash == other.hash && this.length == other.length && this.options == other.options
+                && Objects.equals(this.syntax, other.syntax);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Long.hashCode(this.hash) * 31 + this.length;
+        }
+
+        private static long hash(CharSequence content)
+        {
+            // FNV-1a
+            long result = 0xcbf29ce484222325L;
+            for (int i = 0; i < content.length(); i++) {
+                result ^= content.charAt(i);
+                result *= 0x100000001b3L;
+            }
+            return result;
+        }
+    }
+
+    private static final class Entry
+    {
+        private final String content;
+
+        private final XDOM xdom;
+
+        private final long weight;
+
+        Entry(String content, XDOM xdom, long weight)
+        {
+            this.content = content;
+            this.xdom = xdom;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * @param syntax the syntax of the content
+     * @param options the options the content is parsed with
+     * @param content the Markdown content
+     * @return a copy of the XDOM parsed from the content, or {@code null} if it's not in the cache
+     */
+    public XDOM get(Syntax syntax, Object options, CharSequence content)
+    {
+        Key key = new Key(syntax, options, content);
+        Entry entry;
+        synchronized (this) {
+            entry = this.entries.get(key);
+        }
+        if (entry == null || !entry.content.contentEquals(content)) {
+            this.missCount.incrementAndGet();
+            return null;
+        }
+        this.hitCount.incrementAndGet();
+        return entry.xdom.clone();
+    }
+
+    /**
+     * @param syntax the syntax of the content
+     * @param options the options the content has been parsed with
+     * @param content the Markdown content
+     * @param xdom the XDOM parsed from the content, which is copied
+     */
+    public void put(Syntax syntax, Object options, CharSequence content, XDOM xdom)
+    {
+        Key key = new Key(syntax, options, content);
+        String contentCopy = content.toString();
+        long entryWeight = 2L * contentCopy.length() + countBlocks(xdom) * BLOCK_WEIGHT;
+        Entry entry = new Entry(contentCopy, xdom.clone(), entryWeight);
+
+        synchronized (this) {
+            if (entryWeight > this.maxWeight) {
+                return;
+            }
+            Entry previous = this.entries.put(key, entry);
+            if (previous != null) {
+                this.weight -= previous.weight;
+            }
+            this.weight += entryWeight;
+            evict();
+        }
+    }
+
+    /**
+     * @param maxWeight the estimated memory, in bytes, above which the least recently used XDOMs are evicted
+     */
+    public synchronized void setMaxWeight(long maxWeight)
+    {
+        this.maxWeight = maxWeight;
+        evict();
+    }
+
+    /**
+     * Remove all the XDOMs from the cache.
+     */
+    public synchronized void clear()
+    {
+        this.entries.clear();
+        this.weight = 0;
+    }
+
+    /**
+     * @return the number of XDOMs in the cache
+     */
+    public synchronized int size()
+    {
+        return this.entries.size();
+    }
+
+    /**
+     * @return the estimated memory, in bytes, taken by the XDOMs in the cache
+     */
+    public synchronized long getWeight()
+    {
+        return this.weight;
+    }
+
+    /**
+     * @return the number of times a cached XDOM has been returned
+     */
+    public long getHitCount()
+    {
+        return this.hitCount.get();
+    }
+
+    /**
+     * @return the number of times the requested XDOM was not in the cache
+     */
+    public long getMissCount()
+    {
+        return this.missCount.get();
+    }
+
+    /**
+     * @return the number of XDOMs evicted to make room for other ones
+     */
+    public long getEvictionCount()
+    {
+        return this.evictionCount.get();
+    }
+
+    private void evict()
+    {
+        Iterator<Entry> iterator = this.entries.values().iterator();
+        while (this.weight > this.maxWeight && iterator.hasNext()) {
+            this.weight -= iterator.next().weight;
+            iterator.remove();
+            this.evictionCount.incrementAndGet();
+        }
+    }
+
+    private static long countBlocks(Block block)
+    {
+        long count = 1;
+        List<Block> children = block.getChildren();
+        for (Block child : children) {
+            count += countBlocks(child);
+        }
+        return count;
+    }
+}
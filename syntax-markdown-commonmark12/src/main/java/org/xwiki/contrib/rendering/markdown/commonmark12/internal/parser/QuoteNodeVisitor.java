@@ -19,14 +19,11 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
-
-import org.xwiki.rendering.listener.Listener;
+import java.util.List;
 
 import com.vladsch.flexmark.ast.BlockQuote;
-import com.vladsch.flexmark.util.ast.NodeVisitor;
-import com.vladsch.flexmark.util.ast.VisitHandler;
 
 /**
  * Handle quote events.
@@ -36,19 +33,16 @@ import com.vladsch.flexmark.util.ast.VisitHandler;
  */
 public class QuoteNodeVisitor extends AbstractNodeVisitor
 {
-    static <V extends QuoteNodeVisitor> VisitHandler<?>[] VISIT_HANDLERS(final V visitor)
-    {
-        return new VisitHandler<?>[]{
-                new VisitHandler<>(BlockQuote.class, node -> visitor.visit(node))
-        };
-    }
+    static final List<NodeHandler<?, QuoteNodeVisitor>> NODE_HANDLERS = Arrays.asList(
+        NodeHandler.of(QuoteNodeVisitor.class, BlockQuote.class, QuoteNodeVisitor::enter, QuoteNodeVisitor::exit)
+    );
 
-    public QuoteNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners)
+    public QuoteNodeVisitor(NodeVisitorContext context)
     {
-        super(visitor, listeners);
+        super(context);
     }
 
-    public void visit(BlockQuote node)
+    public void enter(BlockQuote node)
     {
         getListener().beginQuotation(Collections.emptyMap());
 
@@ -57,7 +51,12 @@ public class QuoteNodeVisitor extends AbstractNodeVisitor
         QuoteListener quoteListener = new QuoteListener();
         quoteListener.setWrappedListener(getListener());
         pushListener(quoteListener);
-        getVisitor().visitChildren(node);
+    }
+
+    public void exit(BlockQuote node)
+    {
+        // The children pop the listeners they push so the quote listener is back on top
+        QuoteListener quoteListener = (QuoteListener) getListener();
         popListener();
         quoteListener.closeOpenedQuotationLines();
 
@@ -0,0 +1,93 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+/**
+ * The listener events stored in an {@link EventRecording}, encoded by their ordinal. New events must be added at the
+ * end to keep the existing recordings readable.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+enum RecordedEvent
+{
+    BEGIN_DOCUMENT,
+    END_DOCUMENT,
+    BEGIN_GROUP,
+    END_GROUP,
+    BEGIN_FORMAT,
+    END_FORMAT,
+    BEGIN_PARAGRAPH,
+    END_PARAGRAPH,
+    BEGIN_LIST,
+    END_LIST,
+    BEGIN_LIST_ITEM,
+    END_LIST_ITEM,
+    BEGIN_DEFINITION_LIST,
+    END_DEFINITION_LIST,
+    BEGIN_DEFINITION_TERM,
+    END_DEFINITION_TERM,
+    BEGIN_DEFINITION_DESCRIPTION,
+    END_DEFINITION_DESCRIPTION,
+    BEGIN_QUOTATION,
+    END_QUOTATION,
+    BEGIN_QUOTATION_LINE,
+    END_QUOTATION_LINE,
+    BEGIN_SECTION,
+    END_SECTION,
+    BEGIN_HEADER,
+    END_HEADER,
+    BEGIN_TABLE,
+    END_TABLE,
+    BEGIN_TABLE_ROW,
+    END_TABLE_ROW,
+    BEGIN_TABLE_CELL,
+    END_TABLE_CELL,
+    BEGIN_TABLE_HEAD_CELL,
+    END_TABLE_HEAD_CELL,
+    BEGIN_LINK,
+    END_LINK,
+    BEGIN_MACRO_MARKER,
+    END_MACRO_MARKER,
+    BEGIN_METADATA,
+    END_METADATA,
+    ON_NEW_LINE,
+    ON_MACRO,
+    ON_WORD,
+    ON_SPACE,
+    ON_SPECIAL_SYMBOL,
+    ON_RAW_TEXT,
+    ON_ID,
+    ON_HORIZONTAL_LINE,
+    ON_EMPTY_LINES,
+    ON_VERBATIM,
+    ON_IMAGE;
+
+    private static final RecordedEvent[] VALUES = values();
+
+    /**
+     * @param code the code of an event
+     * @return the event
+     */
+    static RecordedEvent valueOf(int code)
+    {
+        return VALUES[code];
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.util.Set;
+
+import org.xwiki.rendering.util.IdGenerator;
+
+/**
+ * Id generator which never generates some reserved ids, used to generate the ids of new headers without changing the
+ * ids of the existing ones.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+final class ReservedIdGenerator extends IdGenerator
+{
+    private final Set<String> reservedIds;
+
+    /**
+     * @param reservedIds the ids already used and which thus must not be generated
+     */
+    ReservedIdGenerator(Set<String> reservedIds)
+    {
+        this.reservedIds = reservedIds;
+    }
+
+    @Override
+    public String generateUniqueId(String prefix, String text)
+    {
+        // The parent generator remembers all the ids it generated and thus each call returns a different id.
+        String id;
+        do {
+            id = super.generateUniqueId(prefix, text);
+        } while (this.reservedIds.contains(id));
+        return id;
+    }
+}
@@ -19,15 +19,13 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
+import java.util.List;
 
 import org.xwiki.rendering.listener.Format;
-import org.xwiki.rendering.listener.Listener;
 
 import com.vladsch.flexmark.ext.gfm.strikethrough.Strikethrough;
-import com.vladsch.flexmark.util.ast.NodeVisitor;
-import com.vladsch.flexmark.util.ast.VisitHandler;
 
 /**
  * Handle strikethrough events.
@@ -37,23 +35,23 @@ import com.vladsch.flexmark.util.ast.VisitHandler;
  */
 public class StrikethroughNodeVisitor extends AbstractNodeVisitor
 {
-    static <V extends StrikethroughNodeVisitor> VisitHandler<?>[] VISIT_HANDLERS(final V visitor)
+    static final List<NodeHandler<?, StrikethroughNodeVisitor>> NODE_HANDLERS = Arrays.asList(
+        NodeHandler.of(StrikethroughNodeVisitor.class, Strikethrough.class, StrikethroughNodeVisitor::enter,
+            StrikethroughNodeVisitor::exit)
+    );
+
+    public StrikethroughNodeVisitor(NodeVisitorContext context)
     {
-        return new VisitHandler<?>[]{
-                new VisitHandler<>(Strikethrough.class, node -> visitor.visit(node))
-        };
+        super(context);
     }
 
-    public StrikethroughNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners)
+    public void enter(Strikethrough node)
     {
-        super(visitor, listeners);
+        getListener().beginFormat(Format.STRIKEDOUT, Collections.emptyMap());
     }
 
-    public void visit(Strikethrough node)
+    public void exit(Strikethrough node)
     {
-        Format format = Format.STRIKEDOUT;
-        getListener().beginFormat(format, Collections.emptyMap());
-        getVisitor().visitChildren(node);
-        getListener().endFormat(format, Collections.emptyMap());
+        getListener().endFormat(Format.STRIKEDOUT, Collections.emptyMap());
     }
 }
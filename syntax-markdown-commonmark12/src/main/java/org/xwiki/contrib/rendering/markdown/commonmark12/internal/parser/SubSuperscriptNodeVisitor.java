@@ -19,16 +19,14 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
+import java.util.List;
 
 import org.xwiki.rendering.listener.Format;
-import org.xwiki.rendering.listener.Listener;
 
 import com.vladsch.flexmark.ext.gfm.strikethrough.Subscript;
 import com.vladsch.flexmark.ext.superscript.Superscript;
-import com.vladsch.flexmark.util.ast.NodeVisitor;
-import com.vladsch.flexmark.util.ast.VisitHandler;
 
 /**
  * Handle subscript and superscript events.
@@ -38,32 +36,35 @@ import com.vladsch.flexmark.util.ast.VisitHandler;
  */
 public class SubSuperscriptNodeVisitor extends AbstractNodeVisitor
 {
-    static <V extends SubSuperscriptNodeVisitor> VisitHandler<?>[] VISIT_HANDLERS(final V visitor)
+    static final List<NodeHandler<?, SubSuperscriptNodeVisitor>> NODE_HANDLERS = Arrays.asList(
+        NodeHandler.of(SubSuperscriptNodeVisitor.class, Superscript.class, SubSuperscriptNodeVisitor::enter,
+            SubSuperscriptNodeVisitor::exit),
+        NodeHandler.of(SubSuperscriptNodeVisitor.class, Subscript.class, SubSuperscriptNodeVisitor::enter,
+            SubSuperscriptNodeVisitor::exit)
+    );
+
+    public SubSuperscriptNodeVisitor(NodeVisitorContext context)
+    {
+        super(context);
+    }
+
+    public void enter(Superscript node)
     {
-        return new VisitHandler<?>[]{
-                new VisitHandler<>(Superscript.class, node -> visitor.visit(node)),
-                new VisitHandler<>(Subscript.class, node -> visitor.visit(node))
-        };
+        getListener().beginFormat(Format.SUPERSCRIPT, Collections.emptyMap());
     }
 
-    public SubSuperscriptNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners)
+    public void exit(Superscript node)
     {
-        super(visitor, listeners);
+        getListener().endFormat(Format.SUPERSCRIPT, Collections.emptyMap());
     }
 
-    public void visit(Superscript node)
+    public void enter(Subscript node)
     {
-        Format format = Format.SUPERSCRIPT;
-        getListener().beginFormat(format, Collections.emptyMap());
-        getVisitor().visitChildren(node);
-        getListener().endFormat(format, Collections.emptyMap());
+        getListener().beginFormat(Format.SUBSCRIPT, Collections.emptyMap());
     }
 
-    public void visit(Subscript node)
+    public void exit(Subscript node)
     {
-        Format format = Format.SUBSCRIPT;
-        getListener().beginFormat(format, Collections.emptyMap());
-        getVisitor().visitChildren(node);
-        getListener().endFormat(format, Collections.emptyMap());
+        getListener().endFormat(Format.SUBSCRIPT, Collections.emptyMap());
     }
 }
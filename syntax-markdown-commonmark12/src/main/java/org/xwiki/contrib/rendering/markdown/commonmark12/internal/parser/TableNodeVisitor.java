@@ -19,23 +19,18 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
-import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
-import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.renderer.PrintRendererFactory;
 
 import com.vladsch.flexmark.ext.tables.TableBlock;
 import com.vladsch.flexmark.ext.tables.TableCaption;
 import com.vladsch.flexmark.ext.tables.TableCell;
-import com.vladsch.flexmark.ext.tables.TableHead;
 import com.vladsch.flexmark.ext.tables.TableRow;
 import com.vladsch.flexmark.ext.tables.TableSeparator;
-import com.vladsch.flexmark.util.ast.NodeVisitor;
-import com.vladsch.flexmark.util.ast.VisitHandler;
 
 /**
  * Handle table events.
@@ -45,104 +40,67 @@ import com.vladsch.flexmark.util.ast.VisitHandler;
  */
 public class TableNodeVisitor extends AbstractNodeVisitor
 {
-    static <V extends TableNodeVisitor> VisitHandler<?>[] VISIT_HANDLERS(final V visitor)
+    static final List<NodeHandler<?, TableNodeVisitor>> NODE_HANDLERS = Arrays.asList(
+        NodeHandler.of(TableNodeVisitor.class, TableBlock.class, TableNodeVisitor::enter, TableNodeVisitor::exit),
+        NodeHandler.of(TableNodeVisitor.class, TableRow.class, TableNodeVisitor::enter, TableNodeVisitor::exit),
+        NodeHandler.of(TableNodeVisitor.class, TableCell.class, TableNodeVisitor::enter, TableNodeVisitor::exit),
+        NodeHandler.of(TableNodeVisitor.class, TableCaption.class, TableNodeVisitor::visit),
+        NodeHandler.of(TableNodeVisitor.class, TableSeparator.class, TableNodeVisitor::visit)
+    );
+
+    public TableNodeVisitor(NodeVisitorContext context, PrintRendererFactory plainRendererFactory)
     {
-        return new VisitHandler<?>[]{
-                new VisitHandler<>(TableBlock.class, node -> visitor.visit(node)),
-                new VisitHandler<>(TableHead.class, node -> visitor.visit(node)),
-                new VisitHandler<>(TableRow.class, node -> visitor.visit(node)),
-                new VisitHandler<>(TableCell.class, node -> visitor.visit(node)),
-                new VisitHandler<>(TableCaption.class, node -> visitor.visit(node)),
-                new VisitHandler<>(TableSeparator.class, node -> visitor.visit(node))
-        };
+        super(context, plainRendererFactory);
     }
 
-    /**
-     * HTML Align attribute for table cells.
-     */
-    private static final String ALIGN_ATTRIBUTE = "align";
-
-    /**
-     * The current table node we're in. It's stacked to support nested tables.
-     */
-    private Deque<TableBlock> currentTableStack = new ArrayDeque<>();
-
-    /**
-     * The current column position in the current table; used to handle colspan. It's stacked to support nested tables.
-     */
-    private Deque<Integer> currentTableColumnPositionStack = new ArrayDeque<>();
-
-    public TableNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners, PrintRendererFactory plainRendererFactory)
+    public void enter(TableBlock node)
     {
-        super(visitor, listeners, plainRendererFactory);
+        getContext().getTables().push(node);
+        getListener().beginTable(Collections.emptyMap());
     }
 
-    public void visit(TableBlock node)
+    public void exit(TableBlock node)
     {
-        this.currentTableStack.push(node);
-        getListener().beginTable(Collections.emptyMap());
-        getVisitor().visitChildren(node);
         getListener().endTable(Collections.emptyMap());
-        this.currentTableStack.pop();
+        getContext().getTables().pop();
     }
 
-    public void visit(TableHead node)
+    public void enter(TableRow node)
     {
-//        this.isInTableHeaderStack.push(true);
-        getVisitor().visitChildren(node);
-//        this.isInTableHeaderStack.pop();
+        getContext().getTableColumnPositions().push(0);
+        getListener().beginTableRow(Collections.emptyMap());
     }
 
-    public void visit(TableRow node)
+    public void exit(TableRow node)
     {
-        this.currentTableColumnPositionStack.push(0);
-        getListener().beginTableRow(Collections.emptyMap());
-        getVisitor().visitChildren(node);
         getListener().endTableRow(Collections.emptyMap());
-        this.currentTableColumnPositionStack.pop();
+        getContext().getTableColumnPositions().pop();
     }
 
-    public void visit(TableCell node)
+    public void enter(TableCell node)
     {
-        boolean isInHeader = node.isHeader();
-
-        // Compute cell parameters
-        Map<String, String> parameters = new HashMap<>();
-        if (node.getSpan() > 1) {
-            parameters.put("colspan", "" + node.getSpan());
-        }
-
-        if (node.getAlignment() != null) {
-            switch (node.getAlignment()) {
-                case LEFT:
-                    parameters.put(ALIGN_ATTRIBUTE, "left");
-                    break;
-                case RIGHT:
-                    parameters.put(ALIGN_ATTRIBUTE, "right");
-                    break;
-                case CENTER:
-                    parameters.put(ALIGN_ATTRIBUTE, "center");
-                    break;
-                default:
-                    break;
-            }
-        }
-
-        if (isInHeader) {
-            getListener().beginTableHeadCell(parameters);
+        if (node.isHeader()) {
+            getListener().beginTableHeadCell(getParameters(node));
         } else {
-            getListener().beginTableCell(parameters);
+            getListener().beginTableCell(getParameters(node));
         }
+    }
 
-        getVisitor().visitChildren(node);
-
-        if (isInHeader) {
-            getListener().endTableHeadCell(parameters);
+    public void exit(TableCell node)
+    {
+        if (node.isHeader()) {
+            getListener().endTableHeadCell(getParameters(node));
         } else {
-            getListener().endTableCell(parameters);
+            getListener().endTableCell(getParameters(node));
         }
     }
 
+    private Map<String, String> getParameters(TableCell node)
+    {
+        // Cell parameters are shared by all the cells with the same span and alignment
+        return ParameterMaps.getTableCellParameters(node.getSpan(), node.getAlignment());
+    }
+
     public void visit(TableCaption node)
     {
         // TODO: XWiki Rendering doesn't support Caption in tables ATM. Add proper support. Also note that the
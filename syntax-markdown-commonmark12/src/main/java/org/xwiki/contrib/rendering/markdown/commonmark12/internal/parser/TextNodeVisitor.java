@@ -19,14 +19,10 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
 
-import java.util.Deque;
-
-import org.xwiki.rendering.listener.Listener;
-import org.xwiki.rendering.parser.StreamParser;
+import java.util.Arrays;
+import java.util.List;
 
 import com.vladsch.flexmark.ast.Text;
-import com.vladsch.flexmark.util.ast.NodeVisitor;
-import com.vladsch.flexmark.util.ast.VisitHandler;
 
 /**
  * Handle text events.
@@ -36,21 +32,18 @@ import com.vladsch.flexmark.util.ast.VisitHandler;
  */
 public class TextNodeVisitor extends AbstractNodeVisitor
 {
-    static <V extends TextNodeVisitor> VisitHandler<?>[] VISIT_HANDLERS(final V visitor)
-    {
-        return new VisitHandler<?>[]{
-                new VisitHandler<>(Text.class, node -> visitor.visit(node))
-        };
-    }
+    static final List<NodeHandler<?, TextNodeVisitor>> NODE_HANDLERS = Arrays.asList(
+        NodeHandler.of(TextNodeVisitor.class, Text.class, TextNodeVisitor::visit)
+    );
 
-    public TextNodeVisitor(NodeVisitor visitor, Deque<Listener> listeners, StreamParser plainTextStreamParser)
+    public TextNodeVisitor(NodeVisitorContext context)
     {
-        super(visitor, listeners, null, plainTextStreamParser);
+        super(context);
     }
 
     public void visit(Text node)
     {
-        parseInline(node.getChars().toString());
+        parseInline(node.getChars());
 
         // Descend into children (could be omitted in this case because Text nodes don't have children).
         getVisitor().visitChildren(node);
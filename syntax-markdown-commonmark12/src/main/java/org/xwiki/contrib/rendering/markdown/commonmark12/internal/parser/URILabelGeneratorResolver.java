@@ -0,0 +1,80 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.renderer.reference.link.URILabelGenerator;
+
+/**
+ * Finds the label generator of each URI scheme, remembering the schemes without generator too, so that the component
+ * manager is not queried for every image. The cache is cleared by {@link URILabelGeneratorListener} whenever a label
+ * generator is registered or unregistered.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@Component(roles = URILabelGeneratorResolver.class)
+@Singleton
+public class URILabelGeneratorResolver
+{
+    @Inject
+    private ComponentManager componentManager;
+
+    private final Map<String, Optional<URILabelGenerator>> generators = new ConcurrentHashMap<>();
+
+    /**
+     * @param scheme the URI scheme
+     * @return the label generator for the scheme or {@code null} if there's none
+     */
+    public URILabelGenerator resolve(String scheme)
+    {
+        return this.generators.computeIfAbsent(scheme, this::lookup).orElse(null);
+    }
+
+    /**
+     * Forget the resolved label generators.
+     */
+    public void invalidate()
+    {
+        this.generators.clear();
+    }
+
+    private Optional<URILabelGenerator> lookup(String scheme)
+    {
+        // Avoid the cost of a lookup exception in the common case of schemes without label generator
+        if (this.componentManager.hasComponent(URILabelGenerator.class, scheme)) {
+            try {
+                return Optional.of(this.componentManager.getInstance(URILabelGenerator.class, scheme));
+            } catch (ComponentLookupException e) {
+                // Consider there's no label generator
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.renderer;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.renderer.AbstractBlockRenderer;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+
+/**
+ * Block Renderer reusing the Markdown renderers of its {@link AbstractMarkdownRendererFactory} from one rendering to
+ * the next.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public abstract class AbstractMarkdownBlockRenderer extends AbstractBlockRenderer
+{
+    @Override
+    public void render(Block block, WikiPrinter printer)
+    {
+        render(Collections.singletonList(block), printer);
+    }
+
+    @Override
+    public void render(Collection<Block> blocks, WikiPrinter printer)
+    {
+        PrintRendererFactory factory = getPrintRendererFactory();
+        if (!(factory instanceof AbstractMarkdownRendererFactory)) {
+            super.render(blocks, printer);
+            return;
+        }
+
+        AbstractMarkdownRendererFactory markdownFactory = (AbstractMarkdownRendererFactory) factory;
+        PrintRenderer renderer = markdownFactory.borrowRenderer(printer);
+        boolean completeDocuments = true;
+        for (Block block : blocks) {
+            block.traverse(renderer);
+            completeDocuments &= block instanceof XDOM;
+        }
+
+        // A renderer which didn't receive complete documents may still hold some events, so it's not reused
+        if (completeDocuments) {
+            markdownFactory.releaseRenderer(renderer);
+        }
+    }
+}
@@ -50,11 +50,26 @@ public abstract class AbstractMarkdownRenderer extends AbstractXWikiSyntaxRender
     @Named("markdown/1.2/image")
     protected ResourceReferenceSerializer imageReferenceSerializer;
 
+    private MarkdownChainingRenderer markdownRenderer;
+
     @Override
     protected ChainingListener createXWikiSyntaxChainingRenderer(ListenerChain chain)
     {
-        return new Markdown12ChainingRenderer(chain, this.linkReferenceSerializer, this.imageReferenceSerializer,
-            getConfiguration());
+        this.markdownRenderer = new Markdown12ChainingRenderer(chain, this.linkReferenceSerializer,
+            this.imageReferenceSerializer, getConfiguration());
+        return this.markdownRenderer;
+    }
+
+    /**
+     * Prepare the renderer to render a new document, so that it can be reused instead of looking up a new one. Only
+     * renderers which received complete documents can be reset.
+     *
+     * @return {@code true} if the renderer has been reset, {@code false} if it cannot be reused
+     * @since 8.9.2
+     */
+    public boolean reset()
+    {
+        return this.markdownRenderer != null && this.markdownRenderer.reset();
     }
 
     @Override
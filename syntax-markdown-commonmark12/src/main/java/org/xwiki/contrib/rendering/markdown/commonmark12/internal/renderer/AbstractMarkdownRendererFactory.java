@@ -0,0 +1,105 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.renderer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.xwiki.rendering.internal.renderer.AbstractPrintRendererFactory;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+
+/**
+ * Create Markdown renderers, and keep the renderers released after use so that they can be reused for the next
+ * documents instead of looking up and wiring new ones. {@link #createRenderer(WikiPrinter)} still returns a new
+ * renderer each time, the pooled renderers being only returned by {@link #borrowRenderer(WikiPrinter)}.
+ * <p>
+ * The pool can be used concurrently by several threads, each borrowed renderer being used by a single thread until
+ * it's released.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public abstract class AbstractMarkdownRendererFactory extends AbstractPrintRendererFactory
+{
+    private static final int MAX_IDLE_RENDERERS = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * Set on the released renderers, so that they don't keep a reference to the printer of their last document.
+     */
+    private static final WikiPrinter RELEASED_PRINTER = new WikiPrinter()
+    {
+        @Override
+        public void print(String text)
+        {
+            // Released renderers don't print anything
+        }
+
+        @Override
+        public void println(String text)
+        {
+            // Released renderers don't print anything
+        }
+    };
+
+    private final Queue<AbstractMarkdownRenderer> idleRenderers = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger idleRendererCount = new AtomicInteger();
+
+    /**
+     * @param printer the object where the renderer will output its content
+     * @return a renderer released by a previous rendering, or a new one, to give back with
+     *     {@link #releaseRenderer(PrintRenderer)} once the document has been rendered
+     */
+    public PrintRenderer borrowRenderer(WikiPrinter printer)
+    {
+        AbstractMarkdownRenderer renderer = this.idleRenderers.poll();
+        if (renderer == null) {
+            return createRenderer(printer);
+        }
+
+        this.idleRendererCount.decrementAndGet();
+        renderer.setPrinter(printer);
+
+        return renderer;
+    }
+
+    /**
+     * Give back a renderer after it has rendered complete documents. Renderers which failed or are in the middle of a
+     * document are not reused.
+     *
+     * @param renderer the renderer returned by {@link #borrowRenderer(WikiPrinter)}, not to be used anymore
+     */
+    public void releaseRenderer(PrintRenderer renderer)
+    {
+        if (renderer instanceof AbstractMarkdownRenderer) {
+            AbstractMarkdownRenderer markdownRenderer = (AbstractMarkdownRenderer) renderer;
+            if (markdownRenderer.reset()) {
+                markdownRenderer.setPrinter(RELEASED_PRINTER);
+                if (this.idleRendererCount.incrementAndGet() <= MAX_IDLE_RENDERERS) {
+                    this.idleRenderers.offer(markdownRenderer);
+                } else {
+                    this.idleRendererCount.decrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.renderer;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+ * An unsynchronized stack of booleans stored as bits, used for the renderer state which needs one flag per nesting
+ * level (list styles, table rows...). Pushing and popping don't allocate, except to grow beyond 64 levels.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+final class BitStack
+{
+    private long[] bits = new long[1];
+
+    private int size;
+
+    /**
+     * @param value the value to push on top of the stack
+     */
+    void push(boolean value)
+    {
+        if (this.size == this.bits.length * Long.SIZE) {
+            this.bits = Arrays.copyOf(this.bits, this.bits.length * 2);
+        }
+        this.size++;
+        set(value);
+    }
+
+    /**
+     * @return the value on top of the stack, removed from it
+     */
+    boolean pop()
+    {
+        boolean value = peek();
+        this.size--;
+        return value;
+    }
+
+    /**
+     * @return the value on top of the stack
+     */
+    boolean peek()
+    {
+        if (this.size == 0) {
+            throw new EmptyStackException();
+        }
+        int index = this.size - 1;
+        return (this.bits[index >> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * @param value the new value of the top of the stack
+     */
+    void set(boolean value)
+    {
+        int index = this.size - 1;
+        if (value) {
+            this.bits[index >> 6] |= 1L << index;
+        } else {
+            this.bits[index >> 6] &= ~(1L << index);
+        }
+    }
+
+    /**
+     * @return {@code true} if the stack is empty
+     */
+    boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.renderer;
+
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+
+/**
+ * A {@link WikiPrinter} accumulating the printed text in a buffer which can be cleared and reused, to avoid allocating
+ * a new printer for each construct whose content must be known before it's printed (link labels, table cells...).
+ * Contrary to {@link org.xwiki.rendering.renderer.printer.DefaultWikiPrinter} it's not synchronized, a renderer being
+ * used by a single thread.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public class BufferWikiPrinter implements WikiPrinter
+{
+    private final StringBuilder buffer = new StringBuilder();
+
+    @Override
+    public void print(String text)
+    {
+        this.buffer.append(text);
+    }
+
+    @Override
+    public void println(String text)
+    {
+        this.buffer.append(text).append('\n');
+    }
+
+    /**
+     * @return the number of characters printed since the last {@link #clear()}
+     */
+    public int length()
+    {
+        return this.buffer.length();
+    }
+
+    /**
+     * Discard the printed text, keeping the allocated buffer.
+     */
+    public void clear()
+    {
+        this.buffer.setLength(0);
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.buffer.toString();
+    }
+}
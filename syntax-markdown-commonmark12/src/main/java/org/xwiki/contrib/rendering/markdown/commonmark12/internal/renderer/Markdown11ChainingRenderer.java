@@ -25,7 +25,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.xwiki.rendering.listener.Format;
 import org.xwiki.rendering.listener.chaining.ListenerChain;
 import org.xwiki.rendering.listener.reference.ResourceReference;
-import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
 import org.xwiki.rendering.renderer.reference.ResourceReferenceSerializer;
 
 /**
@@ -73,7 +72,7 @@ public class Markdown11ChainingRenderer extends MarkdownChainingRenderer
         switch (format) {
             case SUPERSCRIPT:
             case SUBSCRIPT:
-                pushPrinter(createMarkdownPrinter(new DefaultWikiPrinter()));
+                pushBufferPrinter();
                 break;
             default:
         }
@@ -97,10 +96,7 @@ public class Markdown11ChainingRenderer extends MarkdownChainingRenderer
             case SUPERSCRIPT:
             case SUBSCRIPT:
                 // Escape any space in the accumulated text, see #beginFormat()
-                MarkdownEscapeWikiPrinter formatPrinter = getMarkdownPrinter();
-                formatPrinter.flush();
-                String text = formatPrinter.toString();
-                popPrinter();
+                String text = popBufferPrinter();
                 print(StringUtils.replace(text, " ", MarkdownEscapeHandler.ESCAPE_CHAR + " "));
                 break;
             default:
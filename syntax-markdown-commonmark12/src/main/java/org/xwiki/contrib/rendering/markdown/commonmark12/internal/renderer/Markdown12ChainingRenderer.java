@@ -30,11 +30,6 @@ import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.listener.reference.ResourceType;
 import org.xwiki.rendering.renderer.reference.ResourceReferenceSerializer;
 
-import com.vladsch.flexmark.ext.gfm.strikethrough.StrikethroughExtension;
-import com.vladsch.flexmark.ext.gfm.strikethrough.StrikethroughSubscriptExtension;
-import com.vladsch.flexmark.parser.Parser;
-import com.vladsch.flexmark.util.misc.Extension;
-
 /**
  * Convert listener events to Markdown 1.2.
  *
@@ -53,8 +48,6 @@ public class Markdown12ChainingRenderer extends Markdown11ChainingRenderer
 
     private MarkdownConfiguration configuration;
 
-    private boolean isStrikethroughSupported;
-
     /**
      * @param listenerChain the chain of listener filters used to compute various states
      * @param linkReferenceSerializer the component to use for converting {@link ResourceReference} links to strings
@@ -66,13 +59,12 @@ public class Markdown12ChainingRenderer extends Markdown11ChainingRenderer
     {
         super(listenerChain, linkReferenceSerializer, imageReferenceSerializer);
         this.configuration = configuration;
-        this.isStrikethroughSupported = isStrikethroughSupported();
     }
 
     @Override
     public void beginFormat(Format format, Map<String, String> parameters)
     {
-        if (format.equals(Format.STRIKEDOUT) && this.isStrikethroughSupported) {
+        if (format.equals(Format.STRIKEDOUT) && isStrikethroughSupported()) {
             print(STRIKEDOUT_SYMBOL);
         } else {
             // Override from Markdown11ChainingRenderer since there's no need to escape space characters with
@@ -93,7 +85,7 @@ public class Markdown12ChainingRenderer extends Markdown11ChainingRenderer
     @Override
     public void endFormat(Format format, Map<String, String> parameters)
     {
-        if (format.equals(Format.STRIKEDOUT) && this.isStrikethroughSupported) {
+        if (format.equals(Format.STRIKEDOUT) && isStrikethroughSupported()) {
             print(STRIKEDOUT_SYMBOL);
         } else {
             // Override from Markdown11ChainingRenderer since there's no need to escape space characters with
@@ -119,10 +111,7 @@ public class Markdown12ChainingRenderer extends Markdown11ChainingRenderer
         // - [...](...) and <...> for URL and mailto
         // - [[...]] for Document, UNC, DataURI and all other types or references
 
-        MarkdownEscapeWikiPrinter linkBlocksPrinter = getMarkdownPrinter();
-        linkBlocksPrinter.flush();
-        String label = linkBlocksPrinter.toString();
-        popPrinter();
+        String label = popBufferPrinter();
 
         if (ResourceType.URL.equals(reference.getType()) || ResourceType.MAILTO.equals(reference.getType())) {
             // Now decide if we should use an autolink or not
@@ -207,14 +196,31 @@ public class Markdown12ChainingRenderer extends Markdown11ChainingRenderer
         return new Markdown12MacroRenderer();
     }
 
-    private boolean isStrikethroughSupported()
+    /**
+     * @return {@code true} if the strikethrough syntax is supported, read at rendering time since the renderers are
+     *     reused after the configuration has changed
+     */
+    protected boolean isStrikethroughSupported()
     {
-        for (Extension extension : Parser.EXTENSIONS.get(this.configuration.getOptions())) {
-             if (extension instanceof StrikethroughExtension || extension instanceof StrikethroughSubscriptExtension) {
-                 return true;
-             }
-        }
-        return false;
+        return this.configuration.isStrikethroughSupported();
+    }
+
+    @Override
+    protected boolean isAbbreviationSupported()
+    {
+        return this.configuration.isAbbreviationSupported();
+    }
+
+    @Override
+    protected boolean isCompactTableRendering()
+    {
+        return this.configuration.isCompactTableRendering();
+    }
+
+    @Override
+    protected int getTableLookahead()
+    {
+        return this.configuration.getTableLookahead();
     }
 
     protected boolean handleHtmlMacro(String id, Map<String, String> parameters, String content, boolean isInline)
@@ -23,7 +23,6 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
-import org.xwiki.rendering.internal.renderer.AbstractPrintRendererFactory;
 import org.xwiki.rendering.syntax.Syntax;
 
 import static org.xwiki.contrib.rendering.markdown.commonmark12.internal.CommonMark12SyntaxProvider.MARKDOWN_COMMON_1_2;
@@ -37,7 +36,7 @@ import static org.xwiki.contrib.rendering.markdown.commonmark12.internal.CommonM
 @Component
 @Named("markdown/1.2")
 @Singleton
-public class Markdown12RendererFactory extends AbstractPrintRendererFactory
+public class Markdown12RendererFactory extends AbstractMarkdownRendererFactory
 {
     @Override
     public Syntax getSyntax()
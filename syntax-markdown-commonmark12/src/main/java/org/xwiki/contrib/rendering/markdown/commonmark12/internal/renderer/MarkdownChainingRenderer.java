@@ -19,18 +19,16 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.renderer;
 
-import java.io.StringReader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
 
 import org.apache.commons.lang3.StringUtils;
-import org.jdom2.Document;
-import org.jdom2.Element;
-import org.jdom2.input.SAXBuilder;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.MarkdownAbbreviation;
 import org.xwiki.rendering.internal.renderer.xwiki20.XWikiSyntaxListenerChain;
 import org.xwiki.rendering.listener.Format;
 import org.xwiki.rendering.listener.HeaderLevel;
@@ -41,7 +39,6 @@ import org.xwiki.rendering.listener.chaining.ListenerChain;
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.listener.reference.ResourceType;
 import org.xwiki.rendering.renderer.AbstractChainingPrintRenderer;
-import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
 import org.xwiki.rendering.renderer.reference.ResourceReferenceSerializer;
 import org.xwiki.rendering.syntax.Syntax;
@@ -58,6 +55,21 @@ public class MarkdownChainingRenderer extends AbstractChainingPrintRenderer
 
     private static final String TRIPLE_BACKTICK = BACKTICK + BACKTICK + BACKTICK;
 
+    private static final String BULLETED_LIST_ITEM = "* ";
+
+    private static final String NUMBERED_LIST_ITEM = "1. ";
+
+    /**
+     * The indentation of the list items of the first nesting levels, to not compute it for each item.
+     */
+    private static final String[] LIST_ITEM_INDENTATIONS = new String[8];
+
+    static {
+        for (int i = 0; i < LIST_ITEM_INDENTATIONS.length; i++) {
+            LIST_ITEM_INDENTATIONS[i] = StringUtils.repeat(' ', i * 4);
+        }
+    }
+
     protected ResourceReferenceSerializer linkReferenceSerializer;
 
     protected ResourceReferenceSerializer imageReferenceSerializer;
@@ -66,20 +78,28 @@ public class MarkdownChainingRenderer extends AbstractChainingPrintRenderer
 
     private boolean isFirstElementRendered;
 
-    private Stack<String> listStyle = new Stack<>();
+    /**
+     * Whether each list being rendered is numbered ({@code true}) or bulleted ({@code false}).
+     */
+    private final BitStack numberedLists = new BitStack();
 
     private int previousQuoteDepth;
 
-    private Stack<List<List<String>>> tableCells = new Stack<>();
+    private final Deque<TableState> tables = new ArrayDeque<>();
+
+    private final BitStack isOnFirstHeadCellInTableRow = new BitStack();
+
+    private final Deque<Map<String, String>> abbreviations = new ArrayDeque<>();
 
     /**
-     * How many head rows each table has.
+     * The printers used to buffer the content of links and table cells, kept to be reused by the next ones.
      */
-    private Stack<Integer> tableHeadRowsCount = new Stack<>();
+    private final Deque<MarkdownEscapeWikiPrinter> bufferPrinters = new ArrayDeque<>();
 
-    private Stack<Boolean> isOnFirstHeadCellInTableRow = new Stack<>();
-
-    private Stack<Map<String, String>> abbreviations = new Stack<>();
+    /**
+     * The number of printers pushed on top of the printer of the document, e.g. for headers, links and groups.
+     */
+    private int pushedPrinterCount;
 
     /**
      * @param listenerChain the chain of listener filters used to compute various states
@@ -95,6 +115,27 @@ public class MarkdownChainingRenderer extends AbstractChainingPrintRenderer
         this.imageReferenceSerializer = imageReferenceSerializer;
     }
 
+    /**
+     * Prepare the renderer to render a new document, keeping the objects it allocated.
+     *
+     * @return {@code true} if the renderer has been reset, {@code false} if it's in the middle of a document and
+     *     cannot be reused
+     * @since 8.9.2
+     */
+    public boolean reset()
+    {
+        if (this.pushedPrinterCount > 0 || !this.abbreviations.isEmpty() || !this.tables.isEmpty()
+            || !this.numberedLists.isEmpty() || !this.isOnFirstHeadCellInTableRow.isEmpty()
+            || !isListenerChainAtRest()) {
+            return false;
+        }
+
+        this.isFirstElementRendered = false;
+        this.previousQuoteDepth = 0;
+
+        return true;
+    }
+
     @Override
     public void beginDocument(MetaData metaData)
     {
@@ -199,17 +240,14 @@ public class MarkdownChainingRenderer extends AbstractChainingPrintRenderer
     {
         printEmptyLine();
         print(StringUtils.repeat("#", level.getAsInt()) + " ");
-        pushPrinter(createMarkdownPrinter(new DefaultWikiPrinter()));
+        // The heading content is printed as it comes, but escaped as if it was on a new line
+        pushPrinter(createMarkdownPrinter(getMarkdownPrinter()));
     }
 
     @Override
     public void endHeader(HeaderLevel level, String id, Map<String, String> parameters)
     {
-        MarkdownEscapeWikiPrinter headingPrinter = getMarkdownPrinter();
-        headingPrinter.flush();
-        String heading = headingPrinter.toString();
         popPrinter();
-        print(heading);
     }
 
     @Override
@@ -221,17 +259,13 @@ public class MarkdownChainingRenderer extends AbstractChainingPrintRenderer
             print("\n");
         }
 
-        if (listType == ListType.BULLETED) {
-            this.listStyle.push("*");
-        } else {
-            this.listStyle.push("1");
-        }
+        this.numberedLists.push(listType != ListType.BULLETED);
     }
 
     @Override
     public void endList(ListType listType, Map<String, String> parameters)
     {
-        this.listStyle.pop();
+        this.numberedLists.pop();
         // Ensure that any not printed characters are flushed.
         // TODO: Fix this better by introducing a state listener to handle escapes
         getMarkdownPrinter().flush();
@@ -244,12 +278,16 @@ public class MarkdownChainingRenderer extends AbstractChainingPrintRenderer
             print("\n");
         }
 
-        print(StringUtils.repeat(" ", (getBlockState().getListDepth() - 1) * 4));
-        print(this.listStyle.peek());
-        if (StringUtils.contains(this.listStyle.peek(), '1')) {
-            print(".");
+        print(getListItemIndentation(getBlockState().getListDepth() - 1));
+        print(this.numberedLists.peek() ? NUMBERED_LIST_ITEM : BULLETED_LIST_ITEM);
+    }
+
+    private static String getListItemIndentation(int level)
+    {
+        if (level < LIST_ITEM_INDENTATIONS.length) {
+            return LIST_ITEM_INDENTATIONS[level];
         }
-        print(" ");
+        return StringUtils.repeat(' ', level * 4);
     }
 
     /**
@@ -344,22 +382,18 @@ public class MarkdownChainingRenderer extends AbstractChainingPrintRenderer
     @Override
     public void beginLink(ResourceReference reference, boolean isFreeStandingURI, Map<String, String> parameters)
     {
-        MarkdownEscapeWikiPrinter linkLabelPrinter = createMarkdownPrinter(new DefaultWikiPrinter());
-
         // Make sure the escape handler knows there is already characters before
-        linkLabelPrinter.setOnNewLine(getMarkdownPrinter().isOnNewLine());
+        boolean onNewLine = getMarkdownPrinter().isOnNewLine();
 
         // Defer printing the link content since we need to gather all nested elements
-        pushPrinter(linkLabelPrinter);
+        pushBufferPrinter();
+        getMarkdownPrinter().setOnNewLine(onNewLine);
     }
 
     @Override
     public void endLink(ResourceReference reference, boolean isFreeStandingURI, Map<String, String> parameters)
     {
-        MarkdownEscapeWikiPrinter linkBlocksPrinter = getMarkdownPrinter();
-        linkBlocksPrinter.flush();
-        String label = linkBlocksPrinter.toString();
-        popPrinter();
+        String label = popBufferPrinter();
 
         String serializedReference = this.linkReferenceSerializer.serialize(reference);
 
@@ -458,84 +492,117 @@ public class MarkdownChainingRenderer extends AbstractChainingPrintRenderer
     public void beginTable(Map<String, String> parameters)
     {
         printEmptyLine();
-        this.tableCells.push(new ArrayList<>());
-        this.tableHeadRowsCount.push(0);
+        // The rendering mode is read once per table so that it can't change while the table is rendered
+        this.tables.push(new TableState(isCompactTableRendering(), getTableLookahead()));
     }
 
     @Override
     public void endTable(Map<String, String> parameters)
     {
-        // Display the full table
+        TableState table = this.tables.pop();
 
-        // First, find the max cell size per row
+        if (!table.isStreamed()) {
+            // Display the full table, the first rows being the header rows
+            table.leadingHeadRowsCount = table.headRowsCount;
+            table.columnSizes = getColumnSizes(table.rows);
+        } else if (table.columnSizes == null && !table.compact) {
+            // The table has less rows than the lookahead
+            table.columnSizes = getColumnSizes(table.rows);
+        }
+        printTableRows(table);
 
-        List<Integer> maxColumnSizes = new ArrayList<>();
-        // Find the max number of columns
-        int maxColumns = -1;
-        for (List<String> columnCells : this.tableCells.peek()) {
-            if (columnCells.size() > maxColumns) {
-                maxColumns = columnCells.size();
-            }
+        if (!table.separatorPrinted && table.firstRowSize >= 0) {
+            printTableSeparator(table);
         }
-        // Initialize max column sizes
-        for (int i = 0; i < maxColumns; i++) {
-            maxColumnSizes.add(-1);
+    }
+
+    /**
+     * @return {@code true} to print each table row as soon as it ends, without aligning the columns
+     * @since 8.9.2
+     */
+    protected boolean isCompactTableRendering()
+    {
+        return false;
+    }
+
+    /**
+     * @return the number of rows from which the width of the table columns is computed, the next rows being printed
+     *     as soon as they end, or {@code 0} to compute it from all the rows
+     * @since 8.9.2
+     */
+    protected int getTableLookahead()
+    {
+        return 0;
+    }
+
+    private int[] getColumnSizes(List<List<String>> rows)
+    {
+        // Find the max number of columns
+        int maxColumns = 0;
+        for (List<String> columnCells : rows) {
+            maxColumns = Math.max(maxColumns, columnCells.size());
         }
-        // Set the max column sizes
-        for (int rows = 0; rows < this.tableCells.peek().size(); rows++) {
-            List<String> columnCells = this.tableCells.peek().get(rows);
+
+        // Set the max column sizes. The minimum cell size is 3 to account for the header separator "---"
+        int[] maxColumnSizes = new int[maxColumns];
+        for (List<String> columnCells : rows) {
             for (int i = 0; i < columnCells.size(); i++) {
-                int currentCellSize = columnCells.get(i).length();
-                // The minimum cell size is 3 to account for the header separator "---"
-                if (currentCellSize < 3) {
-                    currentCellSize = 3;
-                }
-                if (currentCellSize > maxColumnSizes.get(i)) {
-                    maxColumnSizes.set(i, currentCellSize);
-                }
+                maxColumnSizes[i] = Math.max(maxColumnSizes[i], Math.max(columnCells.get(i).length(), 3));
             }
         }
 
-        // First, print header rows
-        if (this.tableHeadRowsCount.peek() > 0) {
-            for (int i = 0; i < this.tableHeadRowsCount.peek(); i++) {
-                List<String> columnCells = this.tableCells.peek().get(i);
-                printTableRow(columnCells, ' ', true, maxColumnSizes);
-            }
-            print("\n");
-        }
-        printTableRow(this.tableCells.peek().get(0), '-', false, maxColumnSizes);
-        print("\n");
+        return maxColumnSizes;
+    }
 
-        // Now print the body rows
-        for (int i = this.tableHeadRowsCount.peek(); i < this.tableCells.peek().size(); i++) {
-            List<String> columnCells = this.tableCells.peek().get(i);
-            printTableRow(columnCells, ' ', true, maxColumnSizes);
-            if (i < this.tableCells.peek().size() - 1) {
-                print("\n");
+    private void printTableRows(TableState table)
+    {
+        for (List<String> columnCells : table.rows) {
+            if (table.printedRowsCount < table.leadingHeadRowsCount) {
+                printTableRow(columnCells, table.columnSizes);
+            } else {
+                if (table.separatorPrinted) {
+                    print("\n");
+                } else {
+                    printTableSeparator(table);
+                }
+                printTableRow(columnCells, table.columnSizes);
             }
+            table.printedRowsCount++;
         }
+        table.rows.clear();
+    }
 
-        this.tableCells.pop();
-        this.tableHeadRowsCount.pop();
+    private void printTableSeparator(TableState table)
+    {
+        if (table.leadingHeadRowsCount > 0) {
+            print("\n");
+        }
+        print("|");
+        for (int i = 0; i < table.firstRowSize; i++) {
+            print(" ");
+            print(StringUtils.repeat('-', table.columnSizes != null ? table.columnSizes[i] : 3));
+            print(" ");
+            print("|");
+        }
+        print("\n");
+        table.separatorPrinted = true;
     }
 
-    private void printTableRow(List<String> columnCells, char separator, boolean printCellText,
-        List<Integer> maxColumnSizes)
+    private void printTableRow(List<String> columnCells, int[] columnSizes)
     {
         print("|");
         for (int j = 0; j < columnCells.size(); j++) {
             String cell = columnCells.get(j);
-            int spaceSize = (maxColumnSizes.get(j) - cell.length()) / 2;
-            print(" ");
-            print(StringUtils.repeat(separator, spaceSize));
-            if (printCellText) {
-                print(cell);
-            } else {
-                print(StringUtils.repeat(separator, cell.length()));
+            // Cells are not padded in compact mode, nor when they're wider than the rows used to compute the sizes
+            int columnSize = cell.length();
+            if (columnSizes != null && j < columnSizes.length) {
+                columnSize = Math.max(columnSize, columnSizes[j]);
             }
-            print(
-                StringUtils.repeat(separator, maxColumnSizes.get(j) - cell.length() - spaceSize));
+            int spaceSize = (columnSize - cell.length()) / 2;
+            print(" ");
+            print(StringUtils.repeat(' ', spaceSize));
+            print(cell);
+            print(StringUtils.repeat(' ', columnSize - cell.length() - spaceSize));
             print(" ");
             print("|");
         }
@@ -544,27 +611,24 @@ public class MarkdownChainingRenderer extends AbstractChainingPrintRenderer
     @Override
     public void beginTableCell(Map<String, String> parameters)
     {
-        pushPrinter(createMarkdownPrinter(new DefaultWikiPrinter()));
+        // The cells are printed when their row can be printed, once the width of the columns is known
+        pushBufferPrinter();
     }
 
     @Override
     public void endTableCell(Map<String, String> parameters)
     {
-        MarkdownEscapeWikiPrinter headingPrinter = getMarkdownPrinter();
-        headingPrinter.flush();
-        String cellText = headingPrinter.toString();
-        popPrinter();
-        List<String> cellsInLastRow = this.tableCells.peek().get(this.tableCells.peek().size() - 1);
-        cellsInLastRow.add(cellText);
+        String cellText = popBufferPrinter();
+        List<List<String>> rows = this.tables.peek().rows;
+        rows.get(rows.size() - 1).add(cellText);
     }
 
     @Override
     public void beginTableHeadCell(Map<String, String> parameters)
     {
         if (this.isOnFirstHeadCellInTableRow.peek()) {
-            this.isOnFirstHeadCellInTableRow.pop();
-            this.isOnFirstHeadCellInTableRow.push(false);
-            this.tableHeadRowsCount.push(this.tableHeadRowsCount.pop() + 1);
+            this.isOnFirstHeadCellInTableRow.set(false);
+            this.tables.peek().headRowsCount++;
         }
         beginTableCell(parameters);
     }
@@ -578,14 +642,36 @@ public class MarkdownChainingRenderer extends AbstractChainingPrintRenderer
     @Override
     public void beginTableRow(Map<String, String> parameters)
     {
-        this.tableCells.peek().add(new ArrayList<>());
+        this.tables.peek().rows.add(new ArrayList<>());
         this.isOnFirstHeadCellInTableRow.push(true);
     }
 
     @Override
     public void endTableRow(Map<String, String> parameters)
     {
-        this.isOnFirstHeadCellInTableRow.pop();
+        boolean isHeadRow = !this.isOnFirstHeadCellInTableRow.pop();
+
+        TableState table = this.tables.peek();
+        if (table.firstRowSize < 0) {
+            table.firstRowSize = table.rows.get(0).size();
+        }
+
+        if (table.isStreamed()) {
+            // Only the head rows at the beginning of the table are printed as head rows when streaming
+            if (isHeadRow && table.leadingHeadRowsCount == table.printedRowsCount + table.rows.size() - 1) {
+                table.leadingHeadRowsCount++;
+            }
+
+            if (table.compact) {
+                printTableRows(table);
+            } else if (table.columnSizes != null) {
+                // The rows after the lookahead are printed using the column sizes of the first rows
+                printTableRows(table);
+            } else if (table.rows.size() >= table.lookahead) {
+                table.columnSizes = getColumnSizes(table.rows);
+                printTableRows(table);
+            }
+        }
     }
 
     @Override
@@ -601,31 +687,28 @@ public class MarkdownChainingRenderer extends AbstractChainingPrintRenderer
         }
     }
 
+    /**
+     * @return {@code true} if abbreviations can be expressed using the Markdown abbreviation syntax, {@code false} if
+     *         they must be kept as HTML
+     */
+    protected boolean isAbbreviationSupported()
+    {
+        return true;
+    }
+
     private boolean handleAbbreviations(String text)
     {
-        boolean isHandled = false;
-        if (text.startsWith("<abbr ")) {
-            try {
-                SAXBuilder builder = new SAXBuilder();
-                // Disable entity processing since we don't need that feature, and it could lead to an XXE attack.
-                builder.setFeature("http://apache.org/xml/features/disallow-doctype-decl",true);
-                builder.setFeature("http://xml.org/sax/features/external-general-entities", false);
-                builder.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
-                builder.setExpandEntities(false);
-                Document document = builder.build(new StringReader(text));
-                Element abbrElement = document.getRootElement();
-                if (abbrElement.getAttributes().size() == 1) {
-                    String key = abbrElement.getText();
-                    String value = abbrElement.getAttributeValue("title");
-                    this.abbreviations.peek().put(key, value);
-                    print(key);
-                    isHandled = true;
-                }
-            } catch (Exception e) {
-                // Failure to parse HTML, send HTML as is!
+        if (isAbbreviationSupported()) {
+            // Read the abbreviation generated by the parser without parsing it as XML. Any other HTML (including
+            // malformed one) is sent as is.
+            MarkdownAbbreviation abbreviation = MarkdownAbbreviation.parse(text);
+            if (abbreviation != null) {
+                this.abbreviations.peek().put(abbreviation.getText(), abbreviation.getTitle());
+                print(abbreviation.getText());
+                return true;
             }
         }
-        return isHandled;
+        return false;
     }
 
     public MarkdownEscapeWikiPrinter createMarkdownPrinter(WikiPrinter printer)
@@ -655,6 +738,46 @@ public class MarkdownChainingRenderer extends AbstractChainingPrintRenderer
         return (MarkdownEscapeWikiPrinter) super.getPrinter();
     }
 
+    /**
+     * Start buffering the printed text, to print it later with {@link #popBufferPrinter()}. The buffers are reused,
+     * so that buffering a construct doesn't allocate new printers.
+     */
+    protected void pushBufferPrinter()
+    {
+        MarkdownEscapeWikiPrinter printer = this.bufferPrinters.poll();
+        if (printer == null) {
+            printer = createMarkdownPrinter(new BufferWikiPrinter());
+        } else {
+            printer.setOnNewLine(true);
+        }
+        pushPrinter(printer);
+    }
+
+    /**
+     * Stop buffering the printed text, see {@link #pushBufferPrinter()}.
+     *
+     * @return the text printed since the matching {@link #pushBufferPrinter()}
+     */
+    protected String popBufferPrinter()
+    {
+        MarkdownEscapeWikiPrinter printer = getMarkdownPrinter();
+        popPrinter();
+
+        BufferWikiPrinter buffer = (BufferWikiPrinter) printer.getWrappedPrinter();
+        String text = buffer.toString();
+        buffer.clear();
+        this.bufferPrinters.push(printer);
+
+        return text;
+    }
+
+    @Override
+    protected void pushPrinter(WikiPrinter printer)
+    {
+        super.pushPrinter(printer);
+        this.pushedPrinterCount++;
+    }
+
     @Override
     protected void popPrinter()
     {
@@ -662,6 +785,7 @@ public class MarkdownChainingRenderer extends AbstractChainingPrintRenderer
         getMarkdownPrinter().flush();
 
         super.popPrinter();
+        this.pushedPrinterCount--;
     }
 
     @Override
@@ -731,8 +855,81 @@ public class MarkdownChainingRenderer extends AbstractChainingPrintRenderer
         }
     }
 
+    /**
+     * @return {@code true} if the other listeners of the chain don't hold any event nor block state, as after a
+     *     complete document
+     */
+    private boolean isListenerChainAtRest()
+    {
+        XWikiSyntaxListenerChain chain = getXWikiSyntaxListenerChain();
+        BlockStateChainingListener blockState = chain.getBlockStateChainingListener();
+
+        return chain.getLookaheadChainingListener().getNextEvent() == null && blockState.getListDepth() == 0
+            && blockState.getDefinitionListDepth() == 0 && blockState.getQuotationDepth() == 0
+            && !blockState.isInTable() && !blockState.isInLine();
+    }
+
     private BlockStateChainingListener getBlockState()
     {
         return getXWikiSyntaxListenerChain().getBlockStateChainingListener();
     }
+
+    /**
+     * The state of a table being rendered.
+     */
+    private static final class TableState
+    {
+        /**
+         * Whether each row is printed as soon as it ends, without aligning the columns.
+         */
+        private final boolean compact;
+
+        /**
+         * The number of rows from which the width of the columns is computed, {@code 0} for all the rows.
+         */
+        private final int lookahead;
+
+        /**
+         * The cells of the rows not printed yet.
+         */
+        private final List<List<String>> rows = new ArrayList<>();
+
+        /**
+         * How many head rows the table has.
+         */
+        private int headRowsCount;
+
+        /**
+         * How many of the first rows are printed as head rows.
+         */
+        private int leadingHeadRowsCount;
+
+        private int printedRowsCount;
+
+        /**
+         * The number of cells of the first row, which gives the number of columns of the header separator.
+         */
+        private int firstRowSize = -1;
+
+        /**
+         * The width of the columns, {@code null} until they are known or when the cells are not padded.
+         */
+        private int[] columnSizes;
+
+        private boolean separatorPrinted;
+
+        TableState(boolean compact, int lookahead)
+        {
+            this.compact = compact;
+            this.lookahead = lookahead;
+        }
+
+        /**
+         * @return {@code true} if rows are printed before the end of the table
+         */
+        boolean isStreamed()
+        {
+            return this.compact || this.lookahead > 0;
+        }
+    }
 }
@@ -19,11 +19,7 @@
  */
 package org.xwiki.contrib.rendering.markdown.commonmark12.internal.renderer;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import org.xwiki.rendering.internal.renderer.xwiki20.XWikiSyntaxListenerChain;
-import org.xwiki.rendering.listener.chaining.BlockStateChainingListener;
 
 /**
  * Escape characters that would be confused for Markdown syntax if they were not escaped.
@@ -33,21 +29,10 @@ import org.xwiki.rendering.listener.chaining.BlockStateChainingListener;
  */
 public class MarkdownEscapeHandler
 {
-    private static final Pattern LIST_PATTERN = Pattern.compile(
-        "\\p{Blank}*((\\*)|(\\-)|(\\+)|(\\p{Digit}\\.))\\p{Blank}+");
-
-    private static final Pattern QUOTE_PATTERN = Pattern.compile("(\\>+)");
-
-    private static final Pattern HEADER_PATTERN = Pattern.compile("\\p{Blank}*((=+)|(-+))");
-
-    /**
-     * Note that we take care to not match if the first character is preceded by an escape (i.e. '\').
-     */
-    private static final Pattern RESERVED_CHARS_PATTERN = Pattern.compile(
-        "(?<!\\\\)\\*|(?<!\\\\)\\*\\*|(?<!\\\\)__|(?<!\\\\)_|(?<!\\\\)`");
-
     public static final String ESCAPE_CHAR = "\\";
 
+    private static final char ESCAPE_SYMBOL = '\\';
+
     private boolean onNewLine = true;
 
     public void setOnNewLine(boolean onNewLine)
@@ -60,59 +45,119 @@ public class MarkdownEscapeHandler
         return this.onNewLine;
     }
 
+    /**
+     * Escape the passed text in a single scan. The result is the same as the successive application of the following
+     * rules:
+     * <ul>
+     * <li>the escape symbol is escaped</li>
+     * <li>when in a paragraph at the beginning of a line, the first character of what could be confused with a list
+     * item ({@code * }, {@code - }, {@code + } or a digit followed by {@code . }, optionally preceded by blanks), a
+     * header ({@code =} or {@code -} optionally preceded by blanks) or a quote ({@code >}) is escaped</li>
+     * <li>the reserved characters ({@code *}, {@code _} and {@code `}) are escaped, unless preceded by an escape
+     * symbol</li>
+     * </ul>
+     *
+     * @param accumulatedBuffer the text to escape, replaced by the escaped text
+     * @param listenerChain the chain used to know the current block state
+     */
     public void escape(StringBuffer accumulatedBuffer, XWikiSyntaxListenerChain listenerChain)
     {
-        BlockStateChainingListener blockStateListener = listenerChain.getBlockStateChainingListener();
-
-        // Escape escape symbol.
-        // Note: This needs to be the first replacement since other replacements below also use the escape symbol
-        replaceAll(accumulatedBuffer, ESCAPE_CHAR, ESCAPE_CHAR + ESCAPE_CHAR);
+        String text = accumulatedBuffer.toString();
 
         // When in a paragraph we need to escape symbols that are at beginning of lines and that could be confused
         // with list items, headers or tables.
-        if (blockStateListener.isInLine() && isOnNewLine()) {
-
-            // Look for list pattern at beginning of line and escape the first character only (it's enough)
-            escapeFirstMatchedCharacter(LIST_PATTERN, accumulatedBuffer);
-
-            // Look for header pattern at beginning of line and escape the first character only (it's enough)
-            escapeFirstMatchedCharacter(HEADER_PATTERN, accumulatedBuffer);
-
-            // Look for quote pattern at beginning of line and escape the first character only (it's enough)
-            escapeFirstMatchedCharacter(QUOTE_PATTERN, accumulatedBuffer);
+        int lineStartIndex = -1;
+        if (listenerChain.getBlockStateChainingListener().isInLine() && isOnNewLine()) {
+            lineStartIndex = getLineStartIndex(text);
         }
 
-        // Escape reserved keywords
-        Matcher matcher = RESERVED_CHARS_PATTERN.matcher(accumulatedBuffer.toString());
-        for (int i = 0; matcher.find(); i = i + matcher.group().length()) {
-            if (matcher.group().length() == 1) {
-                accumulatedBuffer.replace(matcher.start() + i, matcher.end() + i,
-                    ESCAPE_CHAR + matcher.group().charAt(0));
-            } else {
-                accumulatedBuffer.replace(matcher.start() + i, matcher.end() + i,
-                    ESCAPE_CHAR + matcher.group().charAt(0) + ESCAPE_CHAR + matcher.group().charAt(1));
+        StringBuilder escaped = null;
+        int copied = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (i == lineStartIndex || needsEscape(text, i)) {
+                if (escaped == null) {
+                    escaped = new StringBuilder(text.length() + 16);
+                }
+                escaped.append(text, copied, i).append(ESCAPE_SYMBOL);
+                copied = i;
             }
         }
 
+        // Leave the buffer untouched when there's nothing to escape
+        if (escaped != null) {
+            escaped.append(text, copied, text.length());
+            accumulatedBuffer.setLength(0);
+            accumulatedBuffer.append(escaped);
+        }
+
         // TODO: Handle escaping link syntax, i.e. |(?<!\)[.*]\(.*\)
         // See http://spec.commonmark.org/0.27/#links
     }
 
-    private void replaceAll(StringBuffer accumulatedBuffer, String match, String replacement)
+    private static boolean needsEscape(String text, int index)
     {
-        int pos = -replacement.length();
-        while ((pos + replacement.length() < accumulatedBuffer.length())
-            && ((pos = accumulatedBuffer.indexOf(match, pos + replacement.length())) != -1)) {
-            accumulatedBuffer.replace(pos, pos + match.length(), replacement);
+        switch (text.charAt(index)) {
+            case ESCAPE_SYMBOL:
+                return true;
+            case '*':
+            case '_':
+            case '`':
+                // A reserved character preceded by an escape symbol is not escaped, the escape symbol being escaped
+                // itself
+                return index == 0 || text.charAt(index - 1) != ESCAPE_SYMBOL;
+            default:
+                return false;
         }
     }
 
-    private void escapeFirstMatchedCharacter(Pattern pattern, StringBuffer accumulatedBuffer)
+    /**
+     * @param text the text printed at the beginning of a line
+     * @return the index of the character to escape so that the line is not taken for a list item, a header or a
+     *     quote, or {@code -1} if there's none
+     */
+    private static int getLineStartIndex(String text)
     {
-        Matcher matcher = pattern.matcher(accumulatedBuffer);
-        if (matcher.lookingAt()) {
-            // Escape the first character
-            accumulatedBuffer.replace(matcher.start(1), matcher.start(1) + 1, ESCAPE_CHAR + matcher.group(1).charAt(0));
+        int index = 0;
+        while (index < text.length() && isBlank(text.charAt(index))) {
+            index++;
+        }
+        if (index == text.length()) {
+            return -1;
+        }
+
+        boolean found;
+        char c = text.charAt(index);
+        switch (c) {
+            case '*':
+            case '+':
+                // List item
+                found = isBlank(text, index + 1);
+                break;
+            case '-':
+            case '=':
+                // Header, or list item
+                found = true;
+                break;
+            case '>':
+                // Quote, only when there's no leading blank
+                found = index == 0;
+                break;
+            default:
+                // Numbered list item, with a single digit
+                found = c >= '0' && c <= '9' && index + 1 < text.length() && text.charAt(index + 1) == '.'
+                    && isBlank(text, index + 2);
         }
+
+        return found ? index : -1;
+    }
+
+    private static boolean isBlank(String text, int index)
+    {
+        return index < text.length() && isBlank(text.charAt(index));
+    }
+
+    private static boolean isBlank(char c)
+    {
+        return c == ' ' || c == '\t';
     }
 }
@@ -0,0 +1,88 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal.renderer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+
+/**
+ * A {@link WikiPrinter} writing the printed text directly to a {@link Writer}, so that a renderer can stream its
+ * output (e.g. to a file or to an HTTP response) instead of accumulating it in memory.
+ * <p>
+ * Since {@link WikiPrinter} methods can't throw checked exceptions, the first {@link IOException} raised by the
+ * writer is kept and the next prints are ignored. Call {@link #checkError()} once the rendering is done.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public class StreamingWikiPrinter implements WikiPrinter
+{
+    private final Writer writer;
+
+    private IOException error;
+
+    /**
+     * @param writer the writer to which to write the printed text, not closed by the printer
+     */
+    public StreamingWikiPrinter(Writer writer)
+    {
+        this.writer = writer;
+    }
+
+    @Override
+    public void print(String text)
+    {
+        write(text);
+    }
+
+    @Override
+    public void println(String text)
+    {
+        write(text);
+        write("\n");
+    }
+
+    private void write(String text)
+    {
+        if (this.error == null) {
+            try {
+                this.writer.write(text);
+            } catch (IOException e) {
+                this.error = e;
+            }
+        }
+    }
+
+    /**
+     * Flush the writer and make sure that all the printed text has been written.
+     *
+     * @throws IOException the first error raised by the writer
+     */
+    public void checkError() throws IOException
+    {
+        if (this.error == null) {
+            this.writer.flush();
+        } else {
+            throw this.error;
+        }
+    }
+}
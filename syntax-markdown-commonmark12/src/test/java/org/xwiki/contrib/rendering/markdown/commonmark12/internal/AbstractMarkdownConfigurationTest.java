@@ -0,0 +1,135 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import com.vladsch.flexmark.ext.abbreviation.AbbreviationExtension;
+import com.vladsch.flexmark.ext.gfm.strikethrough.StrikethroughExtension;
+import com.vladsch.flexmark.ext.gfm.strikethrough.StrikethroughSubscriptExtension;
+import com.vladsch.flexmark.parser.Parser;
+import com.vladsch.flexmark.util.data.DataHolder;
+import com.vladsch.flexmark.util.data.MutableDataHolder;
+import com.vladsch.flexmark.util.data.MutableDataSet;
+import com.vladsch.flexmark.util.misc.Extension;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Verify the capabilities derived by {@link AbstractMarkdownConfiguration} and {@link MarkdownConfiguration} from the
+ * configured extensions.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public class AbstractMarkdownConfigurationTest
+{
+    private static class TestMarkdownConfiguration extends AbstractMarkdownConfiguration
+    {
+        private List<Extension> extensions = Collections.emptyList();
+
+        @Override
+        protected MutableDataHolder createOptions()
+        {
+            MutableDataHolder options = new MutableDataSet();
+            options.set(Parser.EXTENSIONS, this.extensions);
+            return options;
+        }
+
+        @Override
+        protected Logger getLogger()
+        {
+            return mock(Logger.class);
+        }
+    }
+
+    private final TestMarkdownConfiguration configuration = new TestMarkdownConfiguration();
+
+    @Test
+    public void withoutExtensions()
+    {
+        assertFalse(this.configuration.isStrikethroughSupported());
+        assertFalse(this.configuration.isAbbreviationSupported());
+    }
+
+    @Test
+    public void withStrikethroughExtension()
+    {
+        this.configuration.extensions = Collections.singletonList(StrikethroughExtension.create());
+
+        assertTrue(this.configuration.isStrikethroughSupported());
+        assertFalse(this.configuration.isAbbreviationSupported());
+    }
+
+    @Test
+    public void withStrikethroughSubscriptAndAbbreviationExtensions()
+    {
+        this.configuration.extensions =
+            Arrays.asList(StrikethroughSubscriptExtension.create(), AbbreviationExtension.create());
+
+        assertTrue(this.configuration.isStrikethroughSupported());
+        assertTrue(this.configuration.isAbbreviationSupported());
+    }
+
+    @Test
+    public void flagsAreComputedAgainAfterReset()
+    {
+        DataHolder options = this.configuration.getOptions();
+        assertFalse(this.configuration.isAbbreviationSupported());
+
+        // The options and the flags are cached until the configuration is reset
+        this.configuration.extensions = Collections.singletonList(AbbreviationExtension.create());
+        assertSame(options, this.configuration.getOptions());
+        assertFalse(this.configuration.isAbbreviationSupported());
+
+        this.configuration.reset();
+        assertNotSame(options, this.configuration.getOptions());
+        assertTrue(this.configuration.isAbbreviationSupported());
+    }
+
+    @Test
+    public void flagsDerivedByDefaultMethods()
+    {
+        MutableDataHolder options = new MutableDataSet();
+        options.set(Parser.EXTENSIONS, Collections.singletonList(StrikethroughSubscriptExtension.create()));
+        MarkdownConfiguration otherConfiguration = () -> options;
+
+        assertTrue(otherConfiguration.isStrikethroughSupported());
+        assertFalse(otherConfiguration.isAbbreviationSupported());
+    }
+
+    @Test
+    public void defaultConfigurationSupportsStrikethroughAndAbbreviations()
+    {
+        DefaultMarkdownConfiguration defaultConfiguration = new DefaultMarkdownConfiguration();
+
+        assertTrue(defaultConfiguration.isStrikethroughSupported());
+        assertTrue(defaultConfiguration.isAbbreviationSupported());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.parser.XDOMGeneratorListener;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.parser.StreamParser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.wiki.WikiModel;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Verify that the XDOM built directly by a Markdown parser is the same as the one generated from the events of the
+ * matching stream parser, for the inputs of all the {@code *.test} files of a directory, including the disabled ones.
+ * Shared by the Markdown flavors through the test jar of this module.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public abstract class AbstractXDOMBuilderTest
+{
+    private final String syntax;
+
+    private final String testDirectory;
+
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    /**
+     * @param syntax the id of the tested syntax, e.g. {@code markdown/1.2}
+     * @param testDirectory the classpath directory containing the {@code *.test} files, e.g.
+     *     {@code /markdown12/specific}
+     */
+    protected AbstractXDOMBuilderTest(String syntax, String testDirectory)
+    {
+        this.syntax = syntax;
+        this.testDirectory = testDirectory;
+    }
+
+    @BeforeComponent
+    public void setUpComponents() throws Exception
+    {
+        this.mocker.registerMockComponent(WikiModel.class);
+    }
+
+    @Test
+    public void builtXDOMIsSameAsGeneratedXDOM() throws Exception
+    {
+        Parser parser = this.mocker.getInstance(Parser.class, this.syntax);
+        StreamParser streamParser = this.mocker.getInstance(StreamParser.class, this.syntax);
+        BlockRenderer eventRenderer = this.mocker.getInstance(BlockRenderer.class, "event/1.0");
+
+        File[] testFiles = new File(getClass().getResource(this.testDirectory).toURI()).listFiles();
+        Arrays.sort(testFiles);
+        int inputCount = 0;
+        for (File testFile : testFiles) {
+            for (String input : getInputs(testFile)) {
+                XDOMGeneratorListener listener = new XDOMGeneratorListener();
+                streamParser.parse(new StringReader(input), listener);
+                String expected = render(listener.getXDOM(), eventRenderer);
+
+                String actual = render(parser.parse(new StringReader(input)), eventRenderer);
+
+                assertEquals(String.format("Different XDOM for [%s]", testFile.getName()), expected, actual);
+                inputCount++;
+            }
+        }
+        assertFalse("No test input found", inputCount == 0);
+    }
+
+    private List<String> getInputs(File testFile) throws Exception
+    {
+        String inputDirective = "input|" + this.syntax;
+        String inputExpectDirective = "inputexpect|" + this.syntax;
+        List<String> inputs = new ArrayList<>();
+        StringBuilder input = null;
+        for (String line : Files.readAllLines(testFile.toPath(), StandardCharsets.UTF_8)) {
+            if (line.startsWith(".")) {
+                // The inputs of the disabled tests are compared too, since the equivalence doesn't depend on whether
+                // their expectation is right
+                boolean comment = line.startsWith(".#");
+                String directive = line.substring(comment ? 2 : 1);
+                boolean inputStart = directive.equals(inputDirective) || directive.equals(inputExpectDirective);
+                if (comment && !inputStart) {
+                    continue;
+                }
+                if (input != null) {
+                    inputs.add(input.toString());
+                    input = null;
+                }
+                if (inputStart) {
+                    input = new StringBuilder();
+                }
+            } else if (input != null) {
+                input.append(line.startsWith("\\.") ? line.substring(1) : line).append('\n');
+            }
+        }
+        if (input != null) {
+            inputs.add(input.toString());
+        }
+        return inputs;
+    }
+
+    private String render(XDOM xdom, BlockRenderer renderer)
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        renderer.render(xdom, printer);
+        return printer.toString();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
+
+import java.io.StringReader;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.component.event.ComponentDescriptorAddedEvent;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.CachingMarkdownParser;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.ParseResultCache;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.URILabelGeneratorListener;
+import org.xwiki.observation.EventListener;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.reference.link.URILabelGenerator;
+import org.xwiki.rendering.wiki.WikiModel;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * Verify that the caching parser returns the same XDOM as the regular parser and that the cached XDOMs are protected
+ * from modifications.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@AllComponents
+public class CachingMarkdownParserTest
+{
+    private static final String SOURCE = "# Title\n\nSome *content* with a [link](https://xwiki.org).\n";
+
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    private CachingMarkdownParser cachingParser;
+
+    private ParseResultCache cache;
+
+    private Parser parser;
+
+    private BlockRenderer eventRenderer;
+
+    @BeforeComponent
+    public void setUpComponents() throws Exception
+    {
+        this.mocker.registerMockComponent(WikiModel.class);
+    }
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.cachingParser = this.mocker.getInstance(CachingMarkdownParser.class, "markdown/1.2");
+        this.cache = this.mocker.getInstance(ParseResultCache.class);
+        this.parser = this.mocker.getInstance(Parser.class, "markdown/1.2");
+        this.eventRenderer = this.mocker.getInstance(BlockRenderer.class, "event/1.0");
+    }
+
+    @Test
+    public void cachedXDOMsAreCopies() throws Exception
+    {
+        String expected = render(this.parser.parse(new StringReader(SOURCE)));
+
+        XDOM first = this.cachingParser.parse(new StringReader(SOURCE));
+        assertEquals(expected, render(first));
+        assertEquals(1, this.cache.getMissCount());
+
+        // Modifying a returned XDOM must not affect the cached one
+        first.addChild(new WordBlock("modified"));
+
+        XDOM second = this.cachingParser.parse(new StringReader(SOURCE));
+        assertNotSame(first, second);
+        assertEquals(expected, render(second));
+        assertEquals(1, this.cache.getHitCount());
+
+        // Different content is not taken from the cache
+        this.cachingParser.parse(new StringReader(SOURCE + "More content.\n"));
+        assertEquals(2, this.cache.getMissCount());
+        assertEquals(2, this.cache.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedXDOMsAreEvicted() throws Exception
+    {
+        this.cachingParser.parse(new StringReader("first"));
+        this.cachingParser.parse(new StringReader("second"));
+        this.cachingParser.parse(new StringReader("first"));
+
+        // Only keep the most recently used XDOM
+        this.cache.setMaxWeight(this.cache.getWeight() - 1);
+
+        assertEquals(1, this.cache.size());
+        assertEquals(1, this.cache.getEvictionCount());
+        this.cachingParser.parse(new StringReader("first"));
+        assertEquals(2, this.cache.getHitCount());
+    }
+
+    @Test
+    public void cacheClearedWhenLabelGeneratorsChange() throws Exception
+    {
+        this.cachingParser.parse(new StringReader("![](https://xwiki.org/image.png)"));
+        assertEquals(1, this.cache.size());
+
+        EventListener listener = this.mocker.getInstance(EventListener.class, URILabelGeneratorListener.NAME);
+        listener.onEvent(new ComponentDescriptorAddedEvent(URILabelGenerator.class), null, null);
+
+        assertEquals(0, this.cache.size());
+    }
+
+    private String render(XDOM xdom)
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.eventRenderer.render(xdom, printer);
+        return printer.toString();
+    }
+}
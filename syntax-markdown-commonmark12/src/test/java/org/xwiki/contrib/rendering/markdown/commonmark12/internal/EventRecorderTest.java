@@ -0,0 +1,124 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.EventRecorder;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.EventRecording;
+import org.xwiki.rendering.parser.StreamParser;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.wiki.WikiModel;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verify that replaying recorded events produces the same events as the parser.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@AllComponents
+public class EventRecorderTest
+{
+    private static final String SOURCE = "# Title\n\nSome *content* with a [link](https://xwiki.org \"title\"), "
+        + "![image](image.png) and <span>html</span>.\n\n"
+        + "* item\n* item\n\n"
+        + "| a | b |\n|:--|--:|\n| c | d |\n\n"
+        + "```java\ncode\n```\n\n"
+        + "> quote\n\n---\n";
+
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    private StreamParser streamParser;
+
+    private PrintRendererFactory eventRendererFactory;
+
+    @BeforeComponent
+    public void setUpComponents() throws Exception
+    {
+        this.mocker.registerMockComponent(WikiModel.class);
+    }
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.streamParser = this.mocker.getInstance(StreamParser.class, "markdown/1.2");
+        this.eventRendererFactory = this.mocker.getInstance(PrintRendererFactory.class, "event/1.0");
+    }
+
+    @Test
+    public void replayProducesTheParsedEvents() throws Exception
+    {
+        PrintRenderer expected = this.eventRendererFactory.createRenderer(new DefaultWikiPrinter());
+        this.streamParser.parse(new StringReader(SOURCE), expected);
+
+        EventRecorder recorder = new EventRecorder();
+        this.streamParser.parse(new StringReader(SOURCE), recorder);
+        EventRecording recording = recorder.getRecording();
+
+        assertEquals(expected.getPrinter().toString(), replay(recording));
+        // Replaying again gives the same events
+        assertEquals(expected.getPrinter().toString(), replay(recording));
+    }
+
+    @Test
+    public void replayFromDirectBuffer() throws Exception
+    {
+        EventRecorder recorder = new EventRecorder();
+        this.streamParser.parse(new StringReader(SOURCE), recorder);
+        EventRecording recording = recorder.getRecording();
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(recording.size());
+        buffer.put(recording.toByteBuffer());
+        buffer.flip();
+
+        assertEquals(replay(recording), replay(EventRecording.wrap(buffer)));
+    }
+
+    @Test
+    public void stringsAreStoredOnce() throws Exception
+    {
+        EventRecorder once = new EventRecorder();
+        this.streamParser.parse(new StringReader("word"), once);
+        EventRecorder twice = new EventRecorder();
+        this.streamParser.parse(new StringReader("word word"), twice);
+
+        // The second word only adds its event code and its string index, plus the space event
+        assertEquals(once.getRecording().size() + 3, twice.getRecording().size());
+    }
+
+    private String replay(EventRecording recording)
+    {
+        PrintRenderer renderer = this.eventRendererFactory.createRenderer(new DefaultWikiPrinter());
+        recording.replay(renderer);
+        return renderer.getPrinter().toString();
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
+
+import java.io.StringReader;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.IncrementalMarkdownDocument;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.IncrementalMarkdownParser;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.wiki.WikiModel;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verify that the XDOM produced by incremental parsing is the same as the one produced by a full parsing.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@AllComponents
+public class IncrementalMarkdownParserTest
+{
+    private static final String SOURCE = "# Title\n\nFirst paragraph with *emphasis*.\n\n## Sub title\n\n"
+        + "* item 1\n* item 2\n\nSecond paragraph.\n\n```java\ncode\n```\n\n# Other\n\nLast paragraph.\n";
+
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    private IncrementalMarkdownParser incrementalParser;
+
+    private Parser parser;
+
+    private BlockRenderer eventRenderer;
+
+    @BeforeComponent
+    public void setUpComponents() throws Exception
+    {
+        this.mocker.registerMockComponent(WikiModel.class);
+    }
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.incrementalParser = this.mocker.getInstance(IncrementalMarkdownParser.class, "markdown/1.2");
+        this.parser = this.mocker.getInstance(Parser.class, "markdown/1.2");
+        this.eventRenderer = this.mocker.getInstance(BlockRenderer.class, "event/1.0");
+    }
+
+    @Test
+    public void editsGiveSameResultAsFullParsing() throws Exception
+    {
+        IncrementalMarkdownDocument document = this.incrementalParser.parse(SOURCE);
+        assertSameAsFullParsing(document);
+
+        // Change a word in a paragraph
+        replace(document, "First", "Initial");
+        // Merge 2 blocks by removing the blank line between them
+        replace(document, "item 2\n\n", "item 2\n");
+        // Turn a paragraph into a header
+        replace(document, "Second paragraph.", "### Second paragraph");
+        // Open a fenced code block swallowing the rest of the document
+        replace(document, "# Other", "```\n# Other");
+        replace(document, "```\n# Other", "# Other");
+        // Append and remove content at the end
+        document.update(document.getSource() + "\nMore *text*");
+        assertSameAsFullParsing(document);
+        document.update("");
+        assertSameAsFullParsing(document);
+        document.update(SOURCE);
+        assertSameAsFullParsing(document);
+    }
+
+    @Test
+    public void editsWithReferenceDefinitions() throws Exception
+    {
+        IncrementalMarkdownDocument document = this.incrementalParser.parse("[link][ref]\n\nparagraph\n");
+        assertSameAsFullParsing(document);
+
+        document.update("[link][ref]\n\nparagraph\n\n[ref]: http://xwiki.org\n");
+        assertSameAsFullParsing(document);
+    }
+
+    @Test
+    public void headerIdsStayStable() throws Exception
+    {
+        IncrementalMarkdownDocument document = this.incrementalParser.parse("# Title\n\ntext\n");
+        assertEquals("HTitle", getFirstHeaderId(document.getXDOM()));
+
+        // Insert a header with the same title before the existing one.
+        XDOM xdom = document.replace(0, 0, "# Title\n\n");
+        assertEquals("HTitle-1", getFirstHeaderId(xdom));
+        assertEquals(2, xdom.getBlocks(new ClassBlockMatcher(HeaderBlock.class), Block.Axes.DESCENDANT).size());
+    }
+
+    private void replace(IncrementalMarkdownDocument document, String oldText, String newText) throws Exception
+    {
+        int offset = document.getSource().indexOf(oldText);
+        document.replace(offset, oldText.length(), newText);
+        assertSameAsFullParsing(document);
+    }
+
+    private void assertSameAsFullParsing(IncrementalMarkdownDocument document) throws Exception
+    {
+        XDOM expected = this.parser.parse(new StringReader(document.getSource()));
+        assertEquals(render(expected), render(document.getXDOM()));
+    }
+
+    private String render(XDOM xdom)
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.eventRenderer.render(xdom, printer);
+        return printer.toString();
+    }
+
+    private String getFirstHeaderId(XDOM xdom)
+    {
+        return ((HeaderBlock) xdom.getFirstBlock(new ClassBlockMatcher(HeaderBlock.class), Block.Axes.DESCENDANT))
+            .getId();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
+
+import java.io.StringReader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.InlineTextTokenizer;
+import org.xwiki.rendering.listener.InlineFilterListener;
+import org.xwiki.rendering.parser.StreamParser;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verify that {@link InlineTextTokenizer} generates the same events as the plain text parser.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@AllComponents
+public class InlineTextTokenizerTest
+{
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    @Test
+    public void tokenizeLikePlainTextParser() throws Exception
+    {
+        assertTokenizedLikePlainTextParser("");
+        assertTokenizedLikePlainTextParser("word");
+        assertTokenizedLikePlainTextParser("two  words ");
+        assertTokenizedLikePlainTextParser(" all !\"#$%&'()*+,-./:;<=>?@[]^_`{|}~ symbols\\ and a backslash");
+        assertTokenizedLikePlainTextParser("line\nother\r\nlast\n");
+        assertTokenizedLikePlainTextParser("split\rword\r\r and\ttab été");
+    }
+
+    private void assertTokenizedLikePlainTextParser(String text) throws Exception
+    {
+        PrintRendererFactory eventRendererFactory = this.mocker.getInstance(PrintRendererFactory.class, "event/1.0");
+
+        PrintRenderer expected = eventRendererFactory.createRenderer(new DefaultWikiPrinter());
+        InlineFilterListener inlineListener = new InlineFilterListener();
+        inlineListener.setWrappedListener(expected);
+        this.mocker.<StreamParser>getInstance(StreamParser.class, "plain/1.0").parse(new StringReader(text),
+            inlineListener);
+
+        PrintRenderer actual = eventRendererFactory.createRenderer(new DefaultWikiPrinter());
+        InlineTextTokenizer.tokenize(text, actual);
+
+        assertEquals(expected.getPrinter().toString(), actual.getPrinter().toString());
+    }
+}
@@ -67,9 +67,11 @@ public class Markdown12ConfigurationTest
     @BeforeComponent
     public void setUpComponents() throws Exception
     {
-        // Simulate an empty configuration
+        // Simulate an empty configuration, without any extension
         MarkdownConfiguration configuration = this.mocker.registerMockComponent(MarkdownConfiguration.class);
         when(configuration.getOptions()).thenReturn(new MutableDataSet());
+        when(configuration.isStrikethroughSupported()).thenReturn(false);
+        when(configuration.isAbbreviationSupported()).thenReturn(false);
     }
 
     @Test
@@ -84,4 +86,19 @@ public class Markdown12ConfigurationTest
 
         assertEquals("<del>hello</del>", printer.toString());
     }
+
+    @Test
+    public void strikedOutRenderingWithStrikethroughExtension() throws Exception
+    {
+        MarkdownConfiguration configuration = this.mocker.getInstance(MarkdownConfiguration.class);
+        when(configuration.isStrikethroughSupported()).thenReturn(true);
+        BlockRenderer renderer = this.mocker.getInstance(BlockRenderer.class, "markdown/1.2");
+
+        XDOM xdom = new XDOM(Arrays.asList(new ParagraphBlock(Arrays.asList(new FormatBlock(Arrays.asList(
+            new WordBlock("hello")), Format.STRIKEDOUT)))));
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        renderer.render(xdom, printer);
+
+        assertEquals("~~hello~~", printer.toString());
+    }
 }
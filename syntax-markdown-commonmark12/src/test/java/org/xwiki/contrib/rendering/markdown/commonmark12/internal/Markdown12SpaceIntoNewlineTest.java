@@ -26,6 +26,8 @@ import org.junit.Test;
 import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.DefaultFlexmarkNodeVisitor;
 import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.Markdown12Parser;
 import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.Markdown12StreamParser;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.ParseLimitStatistics;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.URILabelGeneratorResolver;
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.NewLineBlock;
 import org.xwiki.rendering.block.XDOM;
@@ -51,6 +53,8 @@ import static org.junit.Assert.assertEquals;
     Markdown12Parser.class,
     Markdown12StreamParser.class,
     DefaultFlexmarkNodeVisitor.class,
+    ParseLimitStatistics.class,
+    URILabelGeneratorResolver.class,
     PlainTextStreamParser.class,
     PlainTextRendererFactory.class
 })
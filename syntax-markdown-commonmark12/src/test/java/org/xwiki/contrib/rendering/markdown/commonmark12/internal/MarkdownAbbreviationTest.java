@@ -0,0 +1,99 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for {@link MarkdownAbbreviation}.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public class MarkdownAbbreviationTest
+{
+    @Test
+    public void toHTML()
+    {
+        assertEquals("<abbr title=\"Hyper Text Markup Language\">HTML</abbr>",
+            new MarkdownAbbreviation("HTML", "Hyper Text Markup Language").toHTML());
+        assertEquals("<abbr>HTML</abbr>", new MarkdownAbbreviation("HTML", "").toHTML());
+        assertEquals("<abbr>HTML</abbr>", new MarkdownAbbreviation("HTML", null).toHTML());
+        assertEquals("<abbr title=\"&quot;a&quot; &amp; &lt;b&gt;\">R&amp;&lt;&gt;&quot;</abbr>",
+            new MarkdownAbbreviation("R&<>\"", "\"a\" & <b>").toHTML());
+    }
+
+    @Test
+    public void parseGeneratedHTMLWithSpecialCharacters()
+    {
+        assertRoundTrip("R&R", "Rock & Roll");
+        assertRoundTrip("a<b", "less <than>");
+        assertRoundTrip("a>b", "greater > than");
+        assertRoundTrip("\"Q\"", "the \"quoted\" text");
+        assertRoundTrip("&amp;", "&lt;abbr title=\"x\"&gt;</abbr>");
+    }
+
+    @Test
+    public void parseGeneratedHTML()
+    {
+        MarkdownAbbreviation abbreviation =
+            MarkdownAbbreviation.parse(new MarkdownAbbreviation("HTML", "Hyper Text Markup Language").toHTML());
+
+        assertEquals("HTML", abbreviation.getText());
+        assertEquals("Hyper Text Markup Language", abbreviation.getTitle());
+    }
+
+    @Test
+    public void parseLegacyHTML()
+    {
+        MarkdownAbbreviation abbreviation =
+            MarkdownAbbreviation.parse("<abbr  title = 'Rock &amp; Roll &#38; &#x26;&quot;'>R&amp;R</abbr>\n");
+
+        assertEquals("R&R", abbreviation.getText());
+        assertEquals("Rock & Roll & &\"", abbreviation.getTitle());
+    }
+
+    @Test
+    public void parseOtherHTML()
+    {
+        assertNull(MarkdownAbbreviation.parse("<abbr>HTML</abbr>"));
+        assertNull(MarkdownAbbreviation.parse("<abbr class=\"name\">HTML</abbr>"));
+        assertNull(MarkdownAbbreviation.parse("<abbr title=\"a\" class=\"name\">HTML</abbr>"));
+        assertNull(MarkdownAbbreviation.parse("<abbr titles=\"a\">HTML</abbr>"));
+        assertNull(MarkdownAbbreviation.parse("<abbr title=\"a\">H<b>T</b>ML</abbr>"));
+        assertNull(MarkdownAbbreviation.parse("<abbr title=\"a\">HTML</abbr> text"));
+        assertNull(MarkdownAbbreviation.parse("<abbr title=\"a&nbsp;b\">HTML</abbr>"));
+        assertNull(MarkdownAbbreviation.parse("<abbr title=\"a & b\">HTML</abbr>"));
+        assertNull(MarkdownAbbreviation.parse("<abbr title=\"a\">HTML"));
+        assertNull(MarkdownAbbreviation.parse("<abbr title=\"a>HTML</abbr>"));
+        assertNull(MarkdownAbbreviation.parse("<span>HTML</span>"));
+    }
+
+    private void assertRoundTrip(String text, String title)
+    {
+        MarkdownAbbreviation abbreviation = MarkdownAbbreviation.parse(new MarkdownAbbreviation(text, title).toHTML());
+
+        assertEquals(text, abbreviation.getText());
+        assertEquals(title, abbreviation.getTitle());
+    }
+}
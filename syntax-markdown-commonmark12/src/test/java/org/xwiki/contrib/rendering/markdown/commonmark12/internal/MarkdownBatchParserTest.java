@@ -0,0 +1,178 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.MarkdownBatchParser;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.MarkdownBatchResult;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.wiki.WikiModel;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verify that a batch of documents is converted in order and that failures only affect their own document.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@AllComponents
+public class MarkdownBatchParserTest
+{
+    private static final int SIZE = 50;
+
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    private MarkdownBatchParser batchParser;
+
+    @BeforeComponent
+    public void setUpComponents() throws Exception
+    {
+        this.mocker.registerMockComponent(WikiModel.class);
+    }
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.batchParser = this.mocker.getInstance(MarkdownBatchParser.class, "markdown/1.2");
+    }
+
+    @Test
+    public void parseKeepsOrderAndReportsFailures() throws Exception
+    {
+        List<MarkdownBatchResult<XDOM>> results = this.batchParser.parse(createSources());
+
+        assertEquals(SIZE, results.size());
+        for (int i = 0; i < SIZE; i++) {
+            MarkdownBatchResult<XDOM> result = results.get(i);
+            if (i == SIZE / 2) {
+                assertTrue(result.isFailed());
+            } else {
+                assertFalse(result.isFailed());
+                HeaderBlock header = (HeaderBlock) result.getValue()
+                    .getFirstBlock(new ClassBlockMatcher(HeaderBlock.class), Block.Axes.DESCENDANT);
+                assertEquals("HDocument" + i, header.getId());
+            }
+        }
+    }
+
+    @Test
+    public void renderKeepsOrder() throws Exception
+    {
+        PrintRendererFactory rendererFactory = this.mocker.getInstance(PrintRendererFactory.class, "event/1.0");
+
+        List<MarkdownBatchResult<String>> results = this.batchParser.render(createSources(), rendererFactory);
+
+        assertEquals(SIZE, results.size());
+        assertTrue(results.get(SIZE / 2).isFailed());
+        assertTrue(results.get(SIZE - 1).getValue().contains("[Document" + (SIZE - 1) + "]"));
+    }
+
+    @Test
+    public void documentsAreConvertedInAnExecutionContextInheritingFromTheCaller() throws Exception
+    {
+        Execution execution = this.mocker.getInstance(Execution.class);
+        ExecutionContext callerContext = new ExecutionContext();
+        callerContext.newProperty("wiki").inherited().initial("test").declare();
+        execution.setContext(callerContext);
+
+        PrintRendererFactory eventRendererFactory =
+            this.mocker.getInstance(PrintRendererFactory.class, "event/1.0");
+        Queue<ExecutionContext> contexts = new ConcurrentLinkedQueue<>();
+        PrintRendererFactory rendererFactory = new PrintRendererFactory()
+        {
+            @Override
+            public Syntax getSyntax()
+            {
+                return eventRendererFactory.getSyntax();
+            }
+
+            @Override
+            public PrintRenderer createRenderer(WikiPrinter printer)
+            {
+                contexts.add(execution.getContext());
+                return eventRendererFactory.createRenderer(printer);
+            }
+        };
+
+        try {
+            this.batchParser.render(createSources(), rendererFactory);
+        } finally {
+            execution.removeContext();
+        }
+
+        assertEquals(SIZE, contexts.size());
+        for (ExecutionContext context : contexts) {
+            assertNotSame(callerContext, context);
+            assertEquals("test", context.getProperty("wiki"));
+        }
+    }
+
+    private List<Reader> createSources()
+    {
+        List<Reader> sources = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            if (i == SIZE / 2) {
+                sources.add(new Reader()
+                {
+                    @Override
+                    public int read(char[] buffer, int offset, int length) throws IOException
+                    {
+                        throw new IOException("Unreadable document");
+                    }
+
+                    @Override
+                    public void close()
+                    {
+                    }
+                });
+            } else {
+                sources.add(new StringReader(String.format("# Document%d\n\nContent of *document* %d.\n", i, i)));
+            }
+        }
+        return sources;
+    }
+}
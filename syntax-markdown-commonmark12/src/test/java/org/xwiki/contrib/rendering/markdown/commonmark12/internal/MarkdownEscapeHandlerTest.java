@@ -0,0 +1,83 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
+
+import org.junit.Test;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.renderer.MarkdownEscapeHandler;
+import org.xwiki.rendering.internal.renderer.xwiki20.XWikiSyntaxListenerChain;
+import org.xwiki.rendering.listener.chaining.BlockStateChainingListener;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link MarkdownEscapeHandler}.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public class MarkdownEscapeHandlerTest
+{
+    @Test
+    public void escapeReservedCharacters()
+    {
+        assertEscaped("", "", false);
+        assertEscaped("plain text", "plain text", false);
+        assertEscaped("a\\\\b", "a\\b", false);
+        assertEscaped("a\\*b\\_c\\`d", "a*b_c`d", false);
+        assertEscaped("\\_\\_init\\_\\_", "__init__", false);
+        // Reserved characters preceded by an escape symbol are left as is
+        assertEscaped("\\\\*", "\\*", false);
+        assertEscaped("- item", "- item", false);
+    }
+
+    @Test
+    public void escapeLineStart()
+    {
+        assertEscaped("\\* item", "* item", true);
+        assertEscaped("\\+ item", "+ item", true);
+        assertEscaped("  \\- item", "  - item", true);
+        assertEscaped("\\1. item", "1. item", true);
+        assertEscaped("12. item", "12. item", true);
+        assertEscaped("+item", "+item", true);
+        assertEscaped("\\=title", "=title", true);
+        assertEscaped("\t\\-dash", "\t-dash", true);
+        assertEscaped("\\> quote", "> quote", true);
+        assertEscaped(" > quote", " > quote", true);
+        assertEscaped("\\\\* item", "\\* item", true);
+        assertEscaped("   ", "   ", true);
+    }
+
+    private void assertEscaped(String expected, String text, boolean onNewLine)
+    {
+        BlockStateChainingListener blockState = mock(BlockStateChainingListener.class);
+        when(blockState.isInLine()).thenReturn(true);
+        XWikiSyntaxListenerChain listenerChain = mock(XWikiSyntaxListenerChain.class);
+        when(listenerChain.getBlockStateChainingListener()).thenReturn(blockState);
+
+        MarkdownEscapeHandler handler = new MarkdownEscapeHandler();
+        handler.setOnNewLine(onNewLine);
+        StringBuffer buffer = new StringBuffer(text);
+        handler.escape(buffer, listenerChain);
+
+        assertEquals(expected, buffer.toString());
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
+
+import java.io.StringReader;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.configuration.internal.MemoryConfigurationSource;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.IncrementalMarkdownDocument;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.IncrementalMarkdownParser;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.ParseLimit;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.ParseLimitStatistics;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.wiki.WikiModel;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Verify that the Markdown parser rejects the content exceeding the configured limits.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@AllComponents
+public class MarkdownParseLimitsTest
+{
+    private static final String NESTED_QUOTES = StringUtils.repeat("> ", 50) + "quote";
+
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    private MemoryConfigurationSource configurationSource;
+
+    private ParseLimitStatistics statistics;
+
+    private Parser parser;
+
+    private interface Parsing
+    {
+        void parse() throws ParseException;
+    }
+
+    @BeforeComponent
+    public void setUpComponents() throws Exception
+    {
+        this.mocker.registerMockComponent(WikiModel.class);
+        this.configurationSource = this.mocker.registerMemoryConfigurationSource();
+    }
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.statistics = this.mocker.getInstance(ParseLimitStatistics.class);
+        this.parser = this.mocker.getInstance(Parser.class, "markdown/1.2");
+    }
+
+    @Test
+    public void noLimitByDefault() throws Exception
+    {
+        assertNotNull(this.parser.parse(new StringReader(NESTED_QUOTES)));
+        assertEquals(0, this.statistics.getRejectionCount());
+    }
+
+    @Test
+    public void maxDocumentSize() throws Exception
+    {
+        this.configurationSource.setProperty("rendering.markdown.maxDocumentSize", 10);
+
+        assertNotNull(this.parser.parse(new StringReader("short")));
+        assertRejected("some longer content", ParseLimit.DOCUMENT_SIZE,
+            "Markdown content is longer than the maximum of [10] characters");
+    }
+
+    @Test
+    public void maxNestingDepth() throws Exception
+    {
+        this.configurationSource.setProperty("rendering.markdown.maxNestingDepth", 20);
+
+        assertNotNull(this.parser.parse(new StringReader("> > quote")));
+        assertRejected(NESTED_QUOTES, ParseLimit.NESTING_DEPTH,
+            "Markdown content is nested deeper than the maximum of [20] levels");
+    }
+
+    @Test
+    public void maxNodeCount() throws Exception
+    {
+        this.configurationSource.setProperty("rendering.markdown.maxNodeCount", 10);
+
+        assertNotNull(this.parser.parse(new StringReader("some *text*")));
+        assertRejected("a *b* c *d* e *f* g *h*", ParseLimit.NODE_COUNT,
+            "Markdown content has more than the maximum of [10] elements");
+    }
+
+    @Test
+    public void incrementalParsing() throws Exception
+    {
+        this.configurationSource.setProperty("rendering.markdown.maxDocumentSize", 10);
+        this.configurationSource.setProperty("rendering.markdown.maxNestingDepth", 20);
+        IncrementalMarkdownParser incrementalParser =
+            this.mocker.getInstance(IncrementalMarkdownParser.class, "markdown/1.2");
+
+        IncrementalMarkdownDocument document = incrementalParser.parse("short");
+        assertRejected(() -> document.replace(5, 0, " and longer"), ParseLimit.DOCUMENT_SIZE,
+            "Markdown content is longer than the maximum of [10] characters");
+
+        // The content is parsed again after a rejected edit
+        assertNotNull(document.update("> quote"));
+        assertEquals("> quote", document.getSource());
+
+        // The blocks parsed again are visited with the limits too
+        this.configurationSource.setProperty("rendering.markdown.maxDocumentSize", 0);
+        try {
+            document.replace(0, 0, NESTED_QUOTES + "\n\n");
+            fail("The content should have been rejected");
+        } catch (ParseException e) {
+            assertEquals("Markdown content is nested deeper than the maximum of [20] levels", e.getMessage());
+        }
+        assertEquals(1, this.statistics.getRejectionCount(ParseLimit.NESTING_DEPTH));
+        assertEquals(2, this.statistics.getRejectionCount());
+    }
+
+    private void assertRejected(String source, ParseLimit limit, String message)
+    {
+        assertRejected(() -> this.parser.parse(new StringReader(source)), limit, message);
+    }
+
+    private void assertRejected(Parsing parsing, ParseLimit limit, String message)
+    {
+        try {
+            parsing.parse();
+            fail("The content should have been rejected");
+        } catch (ParseException e) {
+            assertEquals(message, e.getMessage());
+        }
+        assertEquals(1, this.statistics.getRejectionCount(limit));
+        assertEquals(1, this.statistics.getRejectionCount());
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.renderer.AbstractMarkdownRendererFactory;
+import org.xwiki.rendering.block.GroupBlock;
+import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.wiki.WikiModel;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Verify that reused Markdown renderers render like new ones.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@AllComponents
+public class MarkdownRendererPoolTest
+{
+    private static final String FIRST = "# Title\n\n* item\n* item\n\n| a | b |\n|---|---|\n| c | d |\n\n"
+        + "*[HTML]: Hyper Text Markup Language\n\nSome HTML.\n";
+
+    private static final String SECOND = "Paragraph with a [link](https://xwiki.org).\n\n1. item\n2. item\n";
+
+    private static final String NESTED = "* item\n    * nested item\n        1. deep item\n\n"
+        + "{{info}}\nSome **macro** content.\n{{/info}}\n\n```java\ncode\n```\n";
+
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    private Parser parser;
+
+    private AbstractMarkdownRendererFactory rendererFactory;
+
+    private BlockRenderer blockRenderer;
+
+    @BeforeComponent
+    public void setUpComponents() throws Exception
+    {
+        this.mocker.registerMockComponent(WikiModel.class);
+    }
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.parser = this.mocker.getInstance(Parser.class, "markdown/1.2");
+        this.rendererFactory = this.mocker.getInstance(PrintRendererFactory.class, "markdown/1.2");
+        this.blockRenderer = this.mocker.getInstance(BlockRenderer.class, "markdown/1.2");
+    }
+
+    @Test
+    public void reusedRendererRendersLikeNewOne() throws Exception
+    {
+        XDOM first = this.parser.parse(new StringReader(FIRST));
+        XDOM second = this.parser.parse(new StringReader(SECOND));
+
+        String expectedFirst = renderWithNewRenderer(first);
+        String expectedSecond = renderWithNewRenderer(second);
+
+        assertEquals(expectedFirst, render(first));
+        assertEquals(expectedSecond, render(second));
+        assertEquals(expectedFirst, render(first));
+    }
+
+    @Test
+    public void reusedRendererAfterGroupsMacrosAndNestedLists() throws Exception
+    {
+        XDOM nested = this.parser.parse(new StringReader(NESTED));
+        nested.addChild(new GroupBlock(Arrays.asList(
+            new ParagraphBlock(Arrays.asList(new WordBlock("grouped"))))));
+        XDOM first = this.parser.parse(new StringReader(FIRST));
+
+        String expectedNested = renderWithNewRenderer(nested);
+        String expectedFirst = renderWithNewRenderer(first);
+
+        assertEquals(expectedNested, render(nested));
+        assertEquals(expectedFirst, render(first));
+
+        PrintRenderer renderer = this.rendererFactory.borrowRenderer(new DefaultWikiPrinter());
+        nested.traverse(renderer);
+        this.rendererFactory.releaseRenderer(renderer);
+
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        PrintRenderer reused = this.rendererFactory.borrowRenderer(printer);
+        assertSame(renderer, reused);
+        first.traverse(reused);
+        assertEquals(expectedFirst, printer.toString());
+    }
+
+    @Test
+    public void releasedRendererIsBorrowedAgain()
+    {
+        PrintRenderer renderer = this.rendererFactory.borrowRenderer(new DefaultWikiPrinter());
+        new XDOM(Collections.emptyList()).traverse(renderer);
+        this.rendererFactory.releaseRenderer(renderer);
+
+        assertSame(renderer, this.rendererFactory.borrowRenderer(new DefaultWikiPrinter()));
+        assertNotSame(renderer, this.rendererFactory.borrowRenderer(new DefaultWikiPrinter()));
+    }
+
+    private String render(XDOM xdom)
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.blockRenderer.render(xdom, printer);
+        return printer.toString();
+    }
+
+    private String renderWithNewRenderer(XDOM xdom)
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        xdom.traverse(this.rendererFactory.createRenderer(printer));
+        return printer.toString();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.AbstractMarkdownStreamParser;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.CachingMarkdownParser;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.IncrementalMarkdownDocument;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.IncrementalMarkdownParser;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.MarkdownParseResult;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.MarkdownSectionIndex;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.SectionBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.parser.StreamParser;
+import org.xwiki.rendering.wiki.WikiModel;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Verify the index of the sections built by the Markdown parsers.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@AllComponents
+public class MarkdownSectionIndexTest
+{
+    private static final String SOURCE = "Intro\n\n# One\n\nText\n\n## Two\n\nMore\n\n# Three\n\nEnd\n";
+
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    private AbstractMarkdownStreamParser streamParser;
+
+    @BeforeComponent
+    public void setUpComponents() throws Exception
+    {
+        this.mocker.registerMockComponent(WikiModel.class);
+    }
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.streamParser = this.mocker.getInstance(StreamParser.class, "markdown/1.2");
+    }
+
+    @Test
+    public void indexSections() throws Exception
+    {
+        MarkdownParseResult result = this.streamParser.parseIndexedXDOM(SOURCE, false);
+        MarkdownSectionIndex index = result.getSectionIndex();
+
+        assertEquals(3, index.getSections().size());
+
+        MarkdownSectionIndex.Section one = index.getSection("HOne");
+        assertEquals(1, one.getLevel());
+        assertEquals(SOURCE.indexOf("# One"), one.getStartOffset());
+        assertEquals(SOURCE.indexOf("# Three"), one.getEndOffset());
+        assertNull(one.getParent());
+
+        MarkdownSectionIndex.Section two = index.getSection("HTwo");
+        assertEquals(2, two.getLevel());
+        assertEquals(SOURCE.indexOf("## Two"), two.getStartOffset());
+        assertEquals(SOURCE.indexOf("# Three"), two.getEndOffset());
+        assertSame(one, two.getParent());
+
+        MarkdownSectionIndex.Section three = index.getSection("HThree");
+        assertEquals(SOURCE.length(), three.getEndOffset());
+        assertNull(index.getSection("HFour"));
+
+        assertSections(result.getXDOM(), index);
+
+        assertNull(index.getSectionAt(SOURCE.indexOf("Intro")));
+        assertSame(one, index.getSectionAt(SOURCE.indexOf("Text")));
+        assertSame(two, index.getSectionAt(SOURCE.indexOf("More")));
+        assertSame(three, index.getSectionAt(SOURCE.indexOf("# Three")));
+        assertSame(three, index.getSectionAt(SOURCE.length() - 1));
+    }
+
+    @Test
+    public void indexNotInCachedXDOMs() throws Exception
+    {
+        CachingMarkdownParser cachingParser = this.mocker.getInstance(CachingMarkdownParser.class, "markdown/1.2");
+
+        XDOM first = cachingParser.parse(new StringReader(SOURCE));
+        XDOM second = cachingParser.parse(new StringReader(SOURCE));
+
+        assertNotIndexed(first);
+        assertNotIndexed(second);
+        assertSections(second, this.streamParser.parseIndexedXDOM(SOURCE, false).getSectionIndex());
+    }
+
+    @Test
+    public void indexEditedDocument() throws Exception
+    {
+        IncrementalMarkdownParser incrementalParser =
+            this.mocker.getInstance(IncrementalMarkdownParser.class, "markdown/1.2");
+        IncrementalMarkdownDocument document = incrementalParser.parse(SOURCE);
+
+        XDOM xdom = document.update(SOURCE.replace("Text", "Some longer text"));
+        assertNotIndexed(xdom);
+        assertSections(xdom, document.getSectionIndex());
+        assertEquals(describe(this.streamParser.parseIndexedXDOM(document.getSource(), false).getSectionIndex()),
+            describe(document.getSectionIndex()));
+    }
+
+    private void assertSections(XDOM xdom, MarkdownSectionIndex index)
+    {
+        List<SectionBlock> sectionBlocks =
+            xdom.getBlocks(new ClassBlockMatcher(SectionBlock.class), Block.Axes.DESCENDANT);
+        List<HeaderBlock> headerBlocks =
+            xdom.getBlocks(new ClassBlockMatcher(HeaderBlock.class), Block.Axes.DESCENDANT);
+
+        assertEquals(sectionBlocks.size(), index.getSections().size());
+        for (int i = 0; i < headerBlocks.size(); i++) {
+            MarkdownSectionIndex.Section section = index.getSections().get(i);
+            assertEquals(headerBlocks.get(i).getId(), section.getId());
+            assertEquals(headerBlocks.get(i).getLevel().getAsInt(), section.getLevel());
+        }
+    }
+
+    private void assertNotIndexed(XDOM xdom)
+    {
+        for (Object value : xdom.getMetaData().getMetaData().values()) {
+            assertFalse(value instanceof MarkdownSectionIndex);
+        }
+    }
+
+    private List<String> describe(MarkdownSectionIndex index)
+    {
+        List<String> sections = new ArrayList<>();
+        for (MarkdownSectionIndex.Section section : index.getSections()) {
+            sections.add(section.toString());
+        }
+        return sections;
+    }
+}
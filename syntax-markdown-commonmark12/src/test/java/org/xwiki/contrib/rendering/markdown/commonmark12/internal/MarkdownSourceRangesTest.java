@@ -0,0 +1,113 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.AbstractMarkdownStreamParser;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.MarkdownParseResult;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.MarkdownSourceRanges;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.FormatBlock;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.SectionBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.parser.StreamParser;
+import org.xwiki.rendering.wiki.WikiModel;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Verify the source ranges kept by the Markdown parser on request.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@AllComponents
+public class MarkdownSourceRangesTest
+{
+    private static final String SOURCE = "# Title\n\nSome *bold* text\n";
+
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    private AbstractMarkdownStreamParser streamParser;
+
+    @BeforeComponent
+    public void setUpComponents() throws Exception
+    {
+        this.mocker.registerMockComponent(WikiModel.class);
+    }
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.streamParser = this.mocker.getInstance(StreamParser.class, "markdown/1.2");
+    }
+
+    @Test
+    public void keepSourceRanges() throws Exception
+    {
+        MarkdownParseResult result = this.streamParser.parseIndexedXDOM(SOURCE, true);
+        XDOM xdom = result.getXDOM();
+        MarkdownSourceRanges ranges = result.getSourceRanges();
+
+        assertEquals(xdom.getBlocks(block -> true, Block.Axes.DESCENDANT_OR_SELF).size(), ranges.size());
+
+        assertRange(ranges, xdom, 0, SOURCE.length());
+        assertRange(ranges, getBlock(xdom, SectionBlock.class), 0, SOURCE.length());
+        assertEquals(0, ranges.getStartOffset(getBlock(xdom, HeaderBlock.class)));
+        assertEquals(SOURCE.indexOf("Some"), ranges.getStartOffset(getBlock(xdom, ParagraphBlock.class)));
+        assertRange(ranges, getBlock(xdom, FormatBlock.class), SOURCE.indexOf("*bold*"), SOURCE.indexOf(" text"));
+        assertRange(ranges, getBlock(getBlock(xdom, FormatBlock.class), WordBlock.class), SOURCE.indexOf("bold"),
+            SOURCE.indexOf("* text"));
+
+        assertEquals(-1, ranges.indexOf(new WordBlock("added")));
+        assertEquals(-1, ranges.indexOf(xdom.clone()));
+        assertFalse(xdom.getMetaData().getMetaData().values().stream()
+            .anyMatch(value -> value instanceof MarkdownSourceRanges));
+    }
+
+    @Test
+    public void noSourceRangesByDefault() throws Exception
+    {
+        assertNull(this.streamParser.parseIndexedXDOM(SOURCE, false).getSourceRanges());
+    }
+
+    private void assertRange(MarkdownSourceRanges ranges, Block block, int startOffset, int endOffset)
+    {
+        assertEquals(startOffset, ranges.getStartOffset(block));
+        assertEquals(endOffset, ranges.getEndOffset(block));
+    }
+
+    private Block getBlock(Block parent, Class<? extends Block> blockClass)
+    {
+        return parent.getFirstBlock(new ClassBlockMatcher(blockClass), Block.Axes.DESCENDANT);
+    }
+}
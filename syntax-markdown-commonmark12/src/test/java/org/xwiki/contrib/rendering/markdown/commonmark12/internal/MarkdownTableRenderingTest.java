@@ -0,0 +1,164 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.configuration.internal.MemoryConfigurationSource;
+import org.xwiki.rendering.block.AbstractBlock;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.TableBlock;
+import org.xwiki.rendering.block.TableCellBlock;
+import org.xwiki.rendering.block.TableHeadCellBlock;
+import org.xwiki.rendering.block.TableRowBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.wiki.WikiModel;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verify the rendering of tables with the various table rendering modes.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@AllComponents
+public class MarkdownTableRenderingTest
+{
+    private static final XDOM TABLE = new XDOM(Arrays.<Block>asList(new TableBlock(Arrays.<Block>asList(
+        new TableRowBlock(Arrays.<Block>asList(headCell("a"), headCell("bb"))),
+        new TableRowBlock(Arrays.<Block>asList(cell("ccccc"), cell("d"))),
+        new TableRowBlock(Arrays.<Block>asList(cell("e"), cell("ffff")))))));
+
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    private MemoryConfigurationSource configurationSource;
+
+    private BlockRenderer renderer;
+
+    @BeforeComponent
+    public void setUpComponents() throws Exception
+    {
+        this.mocker.registerMockComponent(WikiModel.class);
+        this.configurationSource = this.mocker.registerMemoryConfigurationSource();
+    }
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.renderer = this.mocker.getInstance(BlockRenderer.class, "markdown/1.2");
+    }
+
+    @Test
+    public void alignedTable()
+    {
+        assertEquals("|   a   |  bb  |\n"
+            + "| ----- | ---- |\n"
+            + "| ccccc |  d   |\n"
+            + "|   e   | ffff |", render());
+    }
+
+    @Test
+    public void compactTable()
+    {
+        this.configurationSource.setProperty("rendering.markdown.compactTableRendering", true);
+
+        assertEquals("| a | bb |\n"
+            + "| --- | --- |\n"
+            + "| ccccc | d |\n"
+            + "| e | ffff |", render());
+    }
+
+    @Test
+    public void tableWithLookahead()
+    {
+        this.configurationSource.setProperty("rendering.markdown.tableLookahead", 2);
+
+        // The last row is not taken into account to compute the width of the columns
+        assertEquals("|   a   | bb  |\n"
+            + "| ----- | --- |\n"
+            + "| ccccc |  d  |\n"
+            + "|   e   | ffff |", render());
+    }
+
+    @Test
+    public void modeChangedWhileRenderingTable()
+    {
+        // Switch to the compact mode after the first row has been rendered
+        Block modeSwitch = new AbstractBlock()
+        {
+            @Override
+            public void traverse(Listener listener)
+            {
+                MarkdownTableRenderingTest.this.configurationSource
+                    .setProperty("rendering.markdown.compactTableRendering", true);
+            }
+        };
+        XDOM table = new XDOM(Arrays.<Block>asList(new TableBlock(Arrays.<Block>asList(
+            new TableRowBlock(Arrays.<Block>asList(headCell("a"), headCell("bb"))), modeSwitch,
+            new TableRowBlock(Arrays.<Block>asList(cell("ccccc"), cell("d"))),
+            new TableRowBlock(Arrays.<Block>asList(cell("e"), cell("ffff")))))));
+
+        // The table is rendered with the mode it started with
+        assertEquals("|   a   |  bb  |\n"
+            + "| ----- | ---- |\n"
+            + "| ccccc |  d   |\n"
+            + "|   e   | ffff |", render(table));
+    }
+
+    private String render()
+    {
+        return render(TABLE);
+    }
+
+    private String render(XDOM xdom)
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.renderer.render(xdom, printer);
+        return printer.toString();
+    }
+
+    private static Block headCell(String word)
+    {
+        return new TableHeadCellBlock(words(word));
+    }
+
+    private static Block cell(String word)
+    {
+        return new TableCellBlock(words(word));
+    }
+
+    private static List<Block> words(String word)
+    {
+        return Arrays.<Block>asList(new WordBlock(word));
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.NodeDispatcher;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.NodeHandler;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.parser.NodeHandlerTable;
+
+import com.vladsch.flexmark.ast.BlockQuote;
+import com.vladsch.flexmark.ast.Emphasis;
+import com.vladsch.flexmark.ast.Paragraph;
+import com.vladsch.flexmark.util.ast.Node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Verify that the {@link NodeDispatcher} pairs the enter and exit actions of the handlers, and walks deeply nested
+ * nodes without growing the Java stack.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+public class NodeDispatcherTest
+{
+    private static final NodeHandlerTable TABLE = new NodeHandlerTable().register(Collections.singletonList(
+        NodeHandler.of(RecordingVisitor.class, BlockQuote.class, RecordingVisitor::enter, RecordingVisitor::exit)))
+        .register(Collections.singletonList(
+            NodeHandler.of(ParagraphVisitor.class, Paragraph.class, ParagraphVisitor::visit)));
+
+    private NodeDispatcher dispatcher;
+
+    private RecordingVisitor recordingVisitor;
+
+    /**
+     * Records the quotes with split enter and exit actions.
+     */
+    public static class RecordingVisitor
+    {
+        private final NodeDispatcher dispatcher;
+
+        private final StringBuilder events = new StringBuilder();
+
+        private int depth;
+
+        private int maxDepth;
+
+        RecordingVisitor(NodeDispatcher dispatcher)
+        {
+            this.dispatcher = dispatcher;
+        }
+
+        public void enter(BlockQuote node)
+        {
+            assertSame(node, this.dispatcher.getCurrentNode());
+            this.events.append('[');
+            this.depth++;
+            this.maxDepth = Math.max(this.maxDepth, this.depth);
+        }
+
+        public void exit(BlockQuote node)
+        {
+            assertSame(node, this.dispatcher.getCurrentNode());
+            this.events.append(']');
+            this.depth--;
+        }
+    }
+
+    /**
+     * Records the paragraphs with a handler visiting the children itself.
+     */
+    public static class ParagraphVisitor
+    {
+        private final NodeDispatcher dispatcher;
+
+        private final StringBuilder events;
+
+        ParagraphVisitor(NodeDispatcher dispatcher, StringBuilder events)
+        {
+            this.dispatcher = dispatcher;
+            this.events = events;
+        }
+
+        public void visit(Paragraph node)
+        {
+            this.events.append("p(");
+            this.dispatcher.visitChildren(node);
+            assertSame(node, this.dispatcher.getCurrentNode());
+            this.events.append(')');
+        }
+    }
+
+    @Before
+    public void setUp()
+    {
+        this.dispatcher = new NodeDispatcher(TABLE);
+        this.dispatcher.setTrackingNodes(true);
+        this.recordingVisitor = new RecordingVisitor(this.dispatcher);
+        this.dispatcher.register(RecordingVisitor.class, this.recordingVisitor);
+        this.dispatcher.register(ParagraphVisitor.class,
+            new ParagraphVisitor(this.dispatcher, this.recordingVisitor.events));
+    }
+
+    @Test
+    public void enterAndExitActionsArePaired()
+    {
+        // Emphasis nodes have no handler so only their children are visited
+        Node root = new BlockQuote();
+        Node paragraph = new Paragraph();
+        Node emphasis = new Emphasis();
+        emphasis.appendChild(new BlockQuote());
+        paragraph.appendChild(emphasis);
+        root.appendChild(paragraph);
+        root.appendChild(new BlockQuote());
+
+        this.dispatcher.visit(root);
+
+        assertEquals("[p([])[]]", this.recordingVisitor.events.toString());
+        assertNull(this.dispatcher.getCurrentNode());
+    }
+
+    @Test
+    public void deeplyNestedNodes() throws Exception
+    {
+        int depth = 100000;
+        Node root = new BlockQuote();
+        Node parent = root;
+        for (int i = 1; i < depth; i++) {
+            Node child = new BlockQuote();
+            parent.appendChild(child);
+            parent = child;
+        }
+
+        // A recursive walk would need much more than this stack
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                this.dispatcher.visit(root);
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        }, "NodeDispatcherTest", 256 * 1024);
+        thread.start();
+        thread.join();
+
+        assertNull(error.get());
+        assertEquals(depth, this.recordingVisitor.maxDepth);
+        assertEquals(0, this.recordingVisitor.depth);
+        assertEquals(2 * depth, this.recordingVisitor.events.length());
+        assertNull(this.dispatcher.getCurrentNode());
+    }
+}
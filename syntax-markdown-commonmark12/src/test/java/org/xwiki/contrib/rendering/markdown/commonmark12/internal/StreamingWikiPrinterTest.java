@@ -0,0 +1,89 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.rendering.markdown.commonmark12.internal;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.renderer.StreamingWikiPrinter;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.wiki.WikiModel;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verify that rendering Markdown to a {@link StreamingWikiPrinter} gives the same result as rendering it in memory.
+ *
+ * @version $Id$
+ * @since 8.9.2
+ */
+@AllComponents
+public class StreamingWikiPrinterTest
+{
+    private static final String SOURCE = "# Title with a [link](https://xwiki.org)\n\n"
+        + "Some *content* with a [[wiki link|Space.Page]] and <span>html</span>.\n\n"
+        + "| head | [link](https://xwiki.org) |\n|------|------|\n| cell | longer cell |\n\n"
+        + "## Other title\n\nLast paragraph.\n";
+
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    private Parser parser;
+
+    private BlockRenderer renderer;
+
+    @BeforeComponent
+    public void setUpComponents() throws Exception
+    {
+        this.mocker.registerMockComponent(WikiModel.class);
+    }
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.parser = this.mocker.getInstance(Parser.class, "markdown/1.2");
+        this.renderer = this.mocker.getInstance(BlockRenderer.class, "markdown/1.2");
+    }
+
+    @Test
+    public void streamedOutputIsTheSame() throws Exception
+    {
+        XDOM xdom = this.parser.parse(new StringReader(SOURCE));
+
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.renderer.render(xdom, printer);
+
+        StringWriter writer = new StringWriter();
+        StreamingWikiPrinter streamingPrinter = new StreamingWikiPrinter(writer);
+        this.renderer.render(xdom, streamingPrinter);
+        streamingPrinter.checkError();
+
+        assertEquals(printer.toString(), writer.toString());
+    }
+}
@@ -20,7 +20,7 @@
 package org.xwiki.contrib.rendering.markdown.github10.internal.renderer;
 
 import org.xwiki.component.annotation.Component;
-import org.xwiki.rendering.internal.renderer.AbstractPrintRendererFactory;
+import org.xwiki.contrib.rendering.markdown.commonmark12.internal.renderer.AbstractMarkdownRendererFactory;
 import org.xwiki.rendering.syntax.Syntax;
 
 import javax.inject.Named;
@@ -37,7 +37,7 @@ import static org.xwiki.contrib.rendering.markdown.github10.internal.GitHubMarkd
 @Component
 @Named("markdown+github/1.0")
 @Singleton
-public class MarkdownGitHubRendererFactory extends AbstractPrintRendererFactory
+public class MarkdownGitHubRendererFactory extends AbstractMarkdownRendererFactory
 {
     @Override
     public Syntax getSyntax()